@@ -0,0 +1,93 @@
+package com.kg2s.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Prints a JMH result next to the checked-in baseline (src/jmh/baseline.json) and marks
+ * every score or allocation that got more than 10% worse. Run by mvn test -Pjmh after the benchmarks.
+ * Usage: JmhBaselineComparison baseline.json result.json
+ */
+public class JmhBaselineComparison {
+
+    private static final double THRESHOLD = 0.10;
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    private record Score(String unit, double score, double bytesPerOp) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        File baselineFile = new File(args[0]);
+        File resultFile = new File(args[1]);
+        if (!resultFile.exists()) {
+            System.out.println("No JMH result at " + resultFile);
+            return;
+        }
+        if (!baselineFile.exists()) {
+            System.out.println("No baseline at " + baselineFile + ", copy " + resultFile + " there to create one");
+            return;
+        }
+
+        Map<String, Score> baseline = read(baselineFile);
+        Map<String, Score> result = read(resultFile);
+        int regressions = 0;
+        System.out.printf("%n%-72s %14s %14s %8s %10s %10s%n", "benchmark", "baseline", "current", "change",
+            "B/op base", "B/op now");
+        for (Map.Entry<String, Score> entry : result.entrySet()) {
+            Score current = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-72s %14s %14.3f %8s %10s %10.0f%n", entry.getKey(), "-", current.score(), "new",
+                    "-", current.bytesPerOp());
+                continue;
+            }
+            double change = (current.score() - before.score()) / before.score();
+            // Throughput should not drop, time per op should not grow
+            boolean slower = current.unit().startsWith("ops/") ? change < -THRESHOLD : change > THRESHOLD;
+            boolean allocates = current.bytesPerOp() > before.bytesPerOp() * (1 + THRESHOLD) + 8;
+            String marker = slower || allocates ? "  <-- REGRESSION" : "";
+            if (!marker.isEmpty()) {
+                regressions++;
+            }
+            System.out.printf("%-72s %14.3f %14.3f %+7.1f%% %10.0f %10.0f%s%n", entry.getKey(), before.score(),
+                current.score(), change * 100, before.bytesPerOp(), current.bytesPerOp(), marker);
+        }
+        System.out.printf("%n%d of %d benchmarks regressed by more than %.0f%% against %s%n", regressions,
+            result.size(), THRESHOLD * 100, baselineFile.getName());
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(run.path("benchmark").asText().replace("com.kg2s.", ""));
+            if (run.has("params")) {
+                // Sorted, so the key does not depend on the parameter order in the file
+                new TreeMap<>(new ObjectMapper().convertValue(run.get("params"), Map.class))
+                    .forEach((name, value) -> key.append(':').append(name).append('=').append(value));
+            }
+            key.append(" [").append(run.path("mode").asText()).append(']');
+
+            JsonNode primary = run.path("primaryMetric");
+            double bytesPerOp = Double.NaN;
+            var secondary = run.path("secondaryMetrics").fields();
+            while (secondary.hasNext()) {
+                var metric = secondary.next();
+                // Older JMH versions prefix profiler metrics with a middle dot
+                if (metric.getKey().replace("·", "").equals(ALLOCATION)) {
+                    bytesPerOp = metric.getValue().path("score").asDouble();
+                }
+            }
+            scores.put(key.toString(), new Score(primary.path("scoreUnit").asText(),
+                primary.path("score").asDouble(), bytesPerOp));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,118 @@
+package com.kg2s.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kg2s.domain.CurrentWeather;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.domain.WeatherInfoResp;
+import com.kg2s.http.SerializedWeatherInfo;
+import com.kg2s.service.impl.OpenWeatherMapDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Reading an OpenWeatherMap response and writing a weather response, with an
+ * ObjectMapper configured the way Spring configures the application's. The response is read both
+ * by binding it whole, as the service used to, and with the streaming OpenWeatherMapDecoder. The
+ * response is written both by Jackson and from the bytes kept by api.cache.serialized-responses.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private static final String OPEN_WEATHER_MAP_RESPONSE = """
+        {"coord":{"lon":-0.1257,"lat":51.5085},
+         "weather":[{"id":803,"main":"Clouds","description":"broken clouds","icon":"04d"}],
+         "base":"stations",
+         "main":{"temp":288.15,"feels_like":287.61,"temp_min":286.93,"temp_max":289.26,
+                 "pressure":1012,"humidity":72,"sea_level":1012,"grnd_level":1008},
+         "visibility":10000,"wind":{"speed":4.63,"deg":240},"clouds":{"all":75},"dt":1792324800,
+         "sys":{"type":2,"id":2075535,"country":"GB","sunrise":1792306500,"sunset":1792344400},
+         "timezone":3600,"id":2643743,"name":"London","cod":200}
+        """;
+
+    private static final String API_KEY = "5b595d4b-01d3-4d2c-9c51-508d344f2022";
+
+    private ObjectReader openWeatherMapReader;
+    private OpenWeatherMapDecoder openWeatherMapDecoder;
+    private ObjectWriter weatherInfoWriter;
+    private byte[] openWeatherMapBody;
+    private WeatherInfoResp weatherInfo;
+    private SerializedWeatherInfo serializedWeatherInfo;
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream(512);
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        openWeatherMapReader = objectMapper.readerFor(OpenWeatherMapResponse.class);
+        openWeatherMapDecoder = new OpenWeatherMapDecoder(objectMapper.getFactory());
+        weatherInfoWriter = objectMapper.writerFor(WeatherInfoResp.class);
+        openWeatherMapBody = OPEN_WEATHER_MAP_RESPONSE.getBytes(StandardCharsets.UTF_8);
+        weatherInfo = new WeatherInfoResp("803", "Clouds", "broken clouds", "04d", "London", "uk",
+            API_KEY, "2026-10-18 12:00:00");
+        try {
+            serializedWeatherInfo = SerializedWeatherInfo.of(
+                new WeatherData("London", "uk", API_KEY, "803", "Clouds", "broken clouds", "04d"),
+                new WeatherInfoResp("803", "Clouds", "broken clouds", "04d", "London", "uk", null, "2026-10-18 12:00:00"),
+                weatherInfoWriter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public OpenWeatherMapResponse deserializeOpenWeatherMapResponse() throws IOException {
+        return openWeatherMapReader.readValue(openWeatherMapBody);
+    }
+
+    @Benchmark
+    public CurrentWeather decodeOpenWeatherMapResponse() throws IOException {
+        return openWeatherMapDecoder.decode(openWeatherMapBody);
+    }
+
+    /**
+     * As the service reads it, from the response stream
+     */
+    @Benchmark
+    public CurrentWeather decodeOpenWeatherMapResponseStream() throws IOException {
+        return openWeatherMapDecoder.decode(new ByteArrayInputStream(openWeatherMapBody));
+    }
+
+    @Benchmark
+    public byte[] serializeWeatherInfoResp() throws IOException {
+        return weatherInfoWriter.writeValueAsBytes(weatherInfo);
+    }
+
+    /**
+     * A fresh cache hit with api.cache.serialized-responses, into a reused buffer like the servlet's
+     */
+    @Benchmark
+    public int writeSerializedWeatherInfo() throws IOException {
+        responseBody.reset();
+        serializedWeatherInfo.withApiKey(API_KEY).writeTo(responseBody);
+        return responseBody.size();
+    }
+}
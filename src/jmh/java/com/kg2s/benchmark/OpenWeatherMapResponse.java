@@ -1,4 +1,4 @@
-package com.kg2s.domain;
+package com.kg2s.benchmark;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
@@ -6,7 +6,8 @@ import java.util.List;
 /**
  * @author Yanfu Zhang
  * @date 2025-08-08
- * @description OpenWeatherMap API Response DTO
+ * @description OpenWeatherMap API Response DTO. The service used to bind whole responses into it;
+ * it now only serves JsonBenchmark as the reference for OpenWeatherMapDecoder.
  */
 public class OpenWeatherMapResponse {
     
@@ -0,0 +1,63 @@
+package com.kg2s.cache;
+
+import com.kg2s.domain.WeatherData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Cache lookups as done for every weather request, over a full cache of 1000 locations
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeatherDataCacheBenchmark {
+
+    private static final int LOCATIONS = 1000;
+
+    private WeatherDataCache cache;
+    // Cities are built up front so the benchmark only measures the lookup
+    private String[] cities;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cache = new WeatherDataCache(LOCATIONS, Duration.ofHours(1), Duration.ofMinutes(10));
+        cities = new String[LOCATIONS];
+        for (int i = 0; i < LOCATIONS; i++) {
+            cities[i] = "City" + i;
+            WeatherData data = new WeatherData(cities[i], "uk", "key", "800", "Clear", "clear sky", "01d");
+            data.setTimestamp(LocalDateTime.now());
+            cache.put(data);
+        }
+    }
+
+    @Benchmark
+    public Optional<WeatherData> hit() {
+        next = (next + 1) % LOCATIONS;
+        return cache.get(cities[next], "uk");
+    }
+
+    @Benchmark
+    public Optional<WeatherData> miss() {
+        next = (next + 1) % LOCATIONS;
+        return cache.get(cities[next], "fr");
+    }
+}
@@ -0,0 +1,61 @@
+package com.kg2s.ratelimit;
+
+import com.kg2s.config.WeatherApiConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Rate limit check and increment of each engine, with a limit high enough never to refuse
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimiterBenchmark {
+
+    private static final String[] KEYS = {
+        "5b595d4b-01d3-4d2c-9c51-508d344f2022",
+        "8c610030-ae5c-4e61-a455-d6e57af180c4",
+        "6682b565-f821-42e6-b2f5-46987514919a",
+        "8a82ecc8-54d6-43bc-a68b-8015251e09e6",
+        "f6e167de-a301-417d-8637-097f961d2946"
+    };
+
+    @Param({"HOURLY_WINDOW", "TOKEN_BUCKET"})
+    private WeatherApiConfig.RateLimit.Engine engine;
+
+    private RateLimiter rateLimiter;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = switch (engine) {
+            case HOURLY_WINDOW -> new HourlyWindowRateLimiter(Clock.systemDefaultZone(), Integer.MAX_VALUE);
+            case TOKEN_BUCKET -> new TokenBucketRateLimiter(Clock.systemDefaultZone(), Integer.MAX_VALUE);
+            // Needs a database; its local path is the hourly window's CAS on a leased batch
+            case CLUSTER -> throw new IllegalArgumentException("Not benchmarked: " + engine);
+        };
+    }
+
+    @Benchmark
+    public boolean tryAcquire() {
+        next = (next + 1) % KEYS.length;
+        return rateLimiter.tryAcquire(KEYS[next]);
+    }
+}
@@ -0,0 +1,96 @@
+package com.kg2s.service.impl;
+
+import com.kg2s.apikey.ApiKeyRegistry;
+import com.kg2s.cache.WeatherDataCache;
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.ApiKey;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.domain.WeatherInfoResp;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Per-request work of the weather service: API key validation against a registry of
+ * several thousand keys and the conversion of weather data into a response, including the
+ * timestamp formatting
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeatherServiceBenchmark {
+
+    private static final List<String> KEYS = List.of(
+        "5b595d4b-01d3-4d2c-9c51-508d344f2022",
+        "8c610030-ae5c-4e61-a455-d6e57af180c4",
+        "6682b565-f821-42e6-b2f5-46987514919a",
+        "8a82ecc8-54d6-43bc-a68b-8015251e09e6",
+        "f6e167de-a301-417d-8637-097f961d2946");
+    private static final int REGISTERED_KEYS = 5_000;
+
+    private WeatherServiceImpl weatherService;
+    private WeatherData data;
+    // Not a constant, so the lookup is not folded away
+    private String lastKey;
+    private String unknownKey;
+
+    @Setup
+    public void setUp() {
+        WeatherApiConfig weatherApiConfig = new WeatherApiConfig();
+        weatherApiConfig.setKeys(KEYS);
+        weatherApiConfig.setRateLimit(new WeatherApiConfig.RateLimit());
+        weatherApiConfig.getRateLimit().setRequestsPerHour(5);
+        ApiKeyRegistry apiKeyRegistry = new ApiKeyRegistry();
+        ReflectionTestUtils.setField(apiKeyRegistry, "weatherApiConfig", weatherApiConfig);
+        List<ApiKey> registered = IntStream.range(0, REGISTERED_KEYS)
+            .mapToObj(i -> new ApiKey(i < KEYS.size() ? KEYS.get(i) : "generated-" + i, "standard"))
+            .collect(Collectors.toList());
+        apiKeyRegistry.load(registered);
+
+        weatherService = new WeatherServiceImpl();
+        ReflectionTestUtils.setField(weatherService, "weatherApiConfig", weatherApiConfig);
+        ReflectionTestUtils.setField(weatherService, "apiKeyRegistry", apiKeyRegistry);
+        ReflectionTestUtils.setField(weatherService, "weatherDataCache",
+            new WeatherDataCache(1000, Duration.ofHours(1)));
+
+        data = new WeatherData("London", "GB", KEYS.get(0), "803", "Clouds", "broken clouds", "04d");
+        data.setTimestamp(LocalDateTime.now());
+        lastKey = new String(KEYS.get(KEYS.size() - 1));
+        unknownKey = "00000000-0000-0000-0000-000000000000";
+    }
+
+    @Benchmark
+    public WeatherInfoResp convertToResponse() {
+        return weatherService.convertToResponse(data, lastKey);
+    }
+
+    @Benchmark
+    public boolean validApiKey() {
+        return weatherService.isValidApiKey(lastKey);
+    }
+
+    @Benchmark
+    public boolean invalidApiKey() {
+        return weatherService.isValidApiKey(unknownKey);
+    }
+}
@@ -0,0 +1,216 @@
+package com.kg2s.apikey;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.ApiKey;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.ratelimit.Quota;
+import com.kg2s.repository.ApiKeyRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Active API keys and their tiers, read from the api_key table into an immutable
+ * hash map. A lookup is a single read of the current map; reloads and admin changes build a new
+ * map and swap it in, so requests never wait on them. Keys listed under api.keys are added to
+ * the table on startup with the default tier.
+ */
+@Component
+public class ApiKeyRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyRegistry.class);
+
+    @Autowired
+    private ApiKeyRepository apiKeyRepository;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    private volatile Map<String, ApiKeyTier> keys = Map.of();
+
+    // Serializes the writers, so a reload cannot overwrite a newer admin change
+    private final Lock updateLock = new ReentrantLock();
+
+    @PostConstruct
+    public void init() {
+        importConfiguredKeys();
+        reload();
+    }
+
+    /**
+     * Tier of an active key, null for an unknown or revoked key
+     */
+    public ApiKeyTier resolve(String apiKey) {
+        return apiKey == null ? null : keys.get(apiKey);
+    }
+
+    /**
+     * Read all active keys again, picking up changes made through other instances
+     */
+    @Scheduled(fixedDelayString = "#{@weatherApiConfig.keyRegistry.reloadInterval.toMillis()}",
+        initialDelayString = "#{@weatherApiConfig.keyRegistry.reloadInterval.toMillis()}")
+    public void reload() {
+        updateLock.lock();
+        try {
+            int before = keys.size();
+            load(apiKeyRepository.findByRevokedFalse());
+            if (keys.size() != before) {
+                logger.info("API key registry reloaded: {} active keys", keys.size());
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Replace the active keys; keys of a tier that is not configured are left out
+     */
+    public void load(Collection<ApiKey> activeKeys) {
+        Map<String, ApiKeyTier> tiers = getTiers();
+        Map<String, ApiKeyTier> index = new HashMap<>(activeKeys.size() * 4 / 3 + 1);
+        for (ApiKey key : activeKeys) {
+            ApiKeyTier tier = tiers.get(key.getTier());
+            if (tier == null) {
+                logger.warn("API key {}... has unknown tier '{}' and is ignored", prefix(key.getApiKey()),
+                    key.getTier());
+                continue;
+            }
+            index.put(key.getApiKey(), tier);
+        }
+        keys = Map.copyOf(index);
+    }
+
+    /**
+     * Add a key, or change the tier of an existing one and reinstate it if revoked
+     *
+     * @param apiKey Key to register, generated when null
+     * @param tier Tier name, the default tier when null
+     */
+    public ApiKey register(String apiKey, String tier) {
+        String tierName = tier != null ? tier : weatherApiConfig.getKeyRegistry().getDefaultTier();
+        ApiKeyTier resolved = getTiers().get(tierName);
+        if (resolved == null) {
+            throw new IllegalArgumentException("Unknown tier: " + tierName);
+        }
+        if (WeatherData.SYSTEM_API_KEY.equals(apiKey)) {
+            throw new IllegalArgumentException("Reserved API key: " + apiKey);
+        }
+        String key = apiKey != null ? apiKey : UUID.randomUUID().toString();
+
+        ApiKey entity = apiKeyRepository.findById(key).orElseGet(() -> new ApiKey(key, tierName));
+        entity.setTier(tierName);
+        entity.setRevoked(false);
+        entity.setUpdatedAt(LocalDateTime.now());
+        ApiKey saved = apiKeyRepository.save(entity);
+        update(index -> index.put(key, resolved));
+        logger.info("API key {}... registered with tier {}", prefix(key), tierName);
+        return saved;
+    }
+
+    /**
+     * Revoke a key; it is refused from the next request on
+     *
+     * @return The revoked key, empty if it does not exist
+     */
+    public Optional<ApiKey> revoke(String apiKey) {
+        Optional<ApiKey> entity = apiKeyRepository.findById(apiKey);
+        entity.ifPresent(key -> {
+            key.setRevoked(true);
+            key.setUpdatedAt(LocalDateTime.now());
+            apiKeyRepository.save(key);
+            update(index -> index.remove(apiKey));
+            logger.info("API key {}... revoked", prefix(apiKey));
+        });
+        return entity;
+    }
+
+    public Optional<ApiKey> find(String apiKey) {
+        return apiKeyRepository.findById(apiKey);
+    }
+
+    /**
+     * Configured tiers by name, always including the default tier
+     */
+    public Map<String, ApiKeyTier> getTiers() {
+        WeatherApiConfig.KeyRegistry registry = weatherApiConfig.getKeyRegistry();
+        int defaultRequestsPerHour = weatherApiConfig.getRateLimit().getRequestsPerHour();
+        Map<String, ApiKeyTier> tiers = new LinkedHashMap<>();
+        registry.getTiers().forEach((name, tier) -> tiers.put(name, toTier(name, tier, defaultRequestsPerHour)));
+        tiers.computeIfAbsent(registry.getDefaultTier(),
+            name -> toTier(name, new WeatherApiConfig.KeyRegistry.Tier(), defaultRequestsPerHour));
+        return tiers;
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    private void update(Consumer<Map<String, ApiKeyTier>> change) {
+        updateLock.lock();
+        try {
+            Map<String, ApiKeyTier> index = new HashMap<>(keys);
+            change.accept(index);
+            keys = Map.copyOf(index);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void importConfiguredKeys() {
+        List<String> configured = weatherApiConfig.getKeys();
+        if (configured == null || configured.isEmpty()) {
+            return;
+        }
+        Set<String> known = apiKeyRepository.findAllById(configured).stream()
+            .map(ApiKey::getApiKey)
+            .collect(Collectors.toSet());
+        String defaultTier = weatherApiConfig.getKeyRegistry().getDefaultTier();
+        List<ApiKey> added = configured.stream()
+            .distinct()
+            .filter(key -> !known.contains(key))
+            .map(key -> new ApiKey(key, defaultTier))
+            .collect(Collectors.toList());
+        if (!added.isEmpty()) {
+            apiKeyRepository.saveAll(added);
+            logger.info("Added {} API keys from api.keys with tier {}", added.size(), defaultTier);
+        }
+    }
+
+    private static ApiKeyTier toTier(String name, WeatherApiConfig.KeyRegistry.Tier tier, int defaultRequestsPerHour) {
+        int requestsPerHour = tier.getRequestsPerHour() != null ? tier.getRequestsPerHour() : defaultRequestsPerHour;
+        int burst = tier.getBurst() != null ? tier.getBurst() : requestsPerHour;
+        Set<Endpoint> endpoints = tier.getEndpoints().isEmpty()
+            ? EnumSet.allOf(Endpoint.class)
+            : tier.getEndpoints().stream()
+                .map(endpoint -> Endpoint.valueOf(endpoint.trim().toUpperCase()))
+                .collect(Collectors.toCollection(() -> EnumSet.noneOf(Endpoint.class)));
+        return new ApiKeyTier(name, new Quota(requestsPerHour, burst), endpoints);
+    }
+
+    /**
+     * Enough of a key to tell it apart in the logs without writing it there
+     */
+    private static String prefix(String apiKey) {
+        return apiKey.substring(0, Math.min(8, apiKey.length()));
+    }
+}
@@ -0,0 +1,17 @@
+package com.kg2s.apikey;
+
+import com.kg2s.ratelimit.Quota;
+
+import java.util.Set;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Rate limit and allowed endpoints shared by the API keys of one tier
+ */
+public record ApiKeyTier(String name, Quota quota, Set<Endpoint> endpoints) {
+    
+    public boolean allows(Endpoint endpoint) {
+        return endpoints.contains(endpoint);
+    }
+}
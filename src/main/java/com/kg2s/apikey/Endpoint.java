@@ -0,0 +1,15 @@
+package com.kg2s.apikey;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Groups of API endpoints a tier can be allowed to call
+ */
+public enum Endpoint {
+    /** Current weather of one location, by path or query parameters */
+    WEATHER,
+    /** Current weather of several locations */
+    BATCH,
+    /** History by API key */
+    HISTORY
+}
@@ -0,0 +1,87 @@
+package com.kg2s.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Runs refreshes of stale locations off the request thread on a bounded executor.
+ * At most one refresh per location is queued or running; when the executor is saturated the
+ * refresh is dropped and left to a later request, so callers never wait on it.
+ */
+public class BackgroundRefresher {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BackgroundRefresher.class);
+    
+    private final Executor executor;
+    private final Set<LocationKey> pending = ConcurrentHashMap.newKeySet();
+    
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    
+    public BackgroundRefresher(Executor executor) {
+        this.executor = executor;
+    }
+    
+    /**
+     * Schedule a refresh of the location unless one is already pending
+     * 
+     * @return true if the refresh was handed to the executor
+     */
+    public boolean schedule(LocationKey key, Runnable refresh) {
+        if (!pending.add(key)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> run(key, refresh));
+            scheduled.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            rejected.increment();
+            return false;
+        }
+    }
+    
+    private void run(LocationKey key, Runnable refresh) {
+        try {
+            refresh.run();
+            completed.increment();
+        } catch (RuntimeException e) {
+            // The stale entry keeps being served until the grace window runs out
+            failed.increment();
+            logger.warn("Background refresh of {} failed: {}", key, e.getMessage());
+        } finally {
+            pending.remove(key);
+        }
+    }
+    
+    public int getPendingCount() {
+        return pending.size();
+    }
+    
+    public long getScheduledCount() {
+        return scheduled.sum();
+    }
+    
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+    
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+    
+    public long getFailedCount() {
+        return failed.sum();
+    }
+}
@@ -0,0 +1,129 @@
+package com.kg2s.cache;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.resilience.CircuitBreaker;
+import com.kg2s.service.WeatherService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Refreshes the most requested locations shortly before their freshness ends, so that
+ * requests for them stay on the cache hit path. Each scan refreshes at most its share of the
+ * per-minute upstream budget, most requested first; what does not fit is picked up by the next
+ * scans, which spreads the refreshes over the lead time instead of sending them in a burst.
+ */
+@Component
+@ConditionalOnProperty(prefix = "api.pre-warm", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachePreWarmer {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachePreWarmer.class);
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @Autowired
+    private WeatherDataCache weatherDataCache;
+
+    @Autowired
+    private FrequencySketch<LocationKey> requestFrequency;
+
+    @Autowired
+    private BackgroundRefresher backgroundRefresher;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Autowired
+    private CircuitBreaker upstreamCircuitBreaker;
+
+    // Refreshes the budget still allows, accrued per scan; only touched by the scheduler thread
+    private double credit;
+
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder deferred = new LongAdder();
+
+    @Scheduled(fixedDelayString = "#{@weatherApiConfig.preWarm.interval.toMillis()}",
+               initialDelayString = "#{@weatherApiConfig.preWarm.interval.toMillis()}")
+    public void preWarm() {
+        scans.increment();
+        // Pre-warming is optional work, leave the upstream alone while it is failing
+        if (!upstreamCircuitBreaker.isCallPermitted()) {
+            return;
+        }
+
+        double perScan = budgetPerScan();
+        credit = Math.min(credit + perScan, Math.max(1, perScan));
+        int budget = (int) credit;
+        if (budget == 0) {
+            return;
+        }
+
+        List<WeatherData> due = selectDue(LocalDateTime.now());
+        int count = 0;
+        for (WeatherData data : due) {
+            if (count == budget) {
+                break;
+            }
+            String city = data.getCity();
+            String country = data.getCountry();
+            if (backgroundRefresher.schedule(LocationKey.of(city, country),
+                    () -> weatherService.refreshWeatherInfo(city, country))) {
+                count++;
+            }
+        }
+        credit -= count;
+        scheduled.add(count);
+        deferred.add(due.size() - count);
+        if (count > 0) {
+            logger.debug("Pre-warming {} of {} hot locations about to expire", count, due.size());
+        }
+    }
+
+    /**
+     * Hot locations whose freshness ends within the lead time, most requested first
+     */
+    List<WeatherData> selectDue(LocalDateTime now) {
+        WeatherApiConfig.PreWarm preWarm = weatherApiConfig.getPreWarm();
+        Comparator<WeatherData> byFrequency = Comparator.comparingInt(this::frequency);
+        return weatherDataCache.expiringBefore(now.plus(preWarm.getLead())).stream()
+                .filter(data -> frequency(data) >= preWarm.getMinFrequency())
+                .sorted(byFrequency.reversed().thenComparing(WeatherData::getTimestamp))
+                .limit(preWarm.getHotSetSize())
+                .collect(Collectors.toList());
+    }
+
+    private int frequency(WeatherData data) {
+        return requestFrequency.frequency(LocationKey.of(data.getCity(), data.getCountry()));
+    }
+
+    private double budgetPerScan() {
+        WeatherApiConfig.PreWarm preWarm = weatherApiConfig.getPreWarm();
+        return preWarm.getMaxRefreshesPerMinute() * preWarm.getInterval().toMillis() / 60_000.0;
+    }
+
+    public long getScanCount() {
+        return scans.sum();
+    }
+
+    public long getScheduledCount() {
+        return scheduled.sum();
+    }
+
+    public long getDeferredCount() {
+        return deferred.sum();
+    }
+}
@@ -0,0 +1,17 @@
+package com.kg2s.cache;
+
+import com.kg2s.resilience.UpstreamQuotaGovernor.Priority;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Key of an upstream fetch. User fetches and background refreshes of a location are
+ * separate flights: a background refresh queues behind every user call for its share of the call
+ * budget, and a client joining it would wait as long as the refresh does.
+ */
+public record FetchKey(LocationKey location, Priority priority) {
+    
+    public static FetchKey of(LocationKey location, Priority priority) {
+        return new FetchKey(location, priority);
+    }
+}
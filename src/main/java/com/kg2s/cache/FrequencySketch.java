@@ -0,0 +1,101 @@
+package com.kg2s.cache;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Count-min sketch estimating how often each key is requested, in a fixed amount of
+ * memory whatever the number of distinct keys. Estimates never undercount recent traffic; all
+ * counters are halved once every sample period so that keys that went cold fade out.
+ */
+public class FrequencySketch<K> {
+
+    private static final int DEPTH = 4;
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+
+    private final AtomicIntegerArray table;
+    private final int widthMask;
+    private final long sampleSize;
+    private final AtomicLong additions = new AtomicLong();
+    private final Lock agingLock = new ReentrantLock();
+
+    /**
+     * @param width counters per row, rounded up to a power of two; a few times the number of hot keys
+     */
+    public FrequencySketch(int width) {
+        int size = Integer.highestOneBit(Math.max(16, width - 1)) << 1;
+        this.table = new AtomicIntegerArray(DEPTH * size);
+        this.widthMask = size - 1;
+        this.sampleSize = 10L * size;
+    }
+
+    /**
+     * Record one occurrence of the key
+     */
+    public void increment(K key) {
+        int hash = spread(key.hashCode());
+        int[] indexes = new int[DEPTH];
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            indexes[row] = indexOf(hash, row);
+            min = Math.min(min, table.get(indexes[row]));
+        }
+        // Conservative update: only the counters at the current estimate move, which limits overcounting
+        for (int index : indexes) {
+            table.compareAndSet(index, min, min + 1);
+        }
+        if (additions.incrementAndGet() >= sampleSize) {
+            age();
+        }
+    }
+
+    /**
+     * Estimated number of occurrences of the key since it was last aged
+     */
+    public int frequency(K key) {
+        int hash = spread(key.hashCode());
+        int min = Integer.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, table.get(indexOf(hash, row)));
+        }
+        return min;
+    }
+
+    private void age() {
+        // One thread halves the table, the others keep counting
+        if (!agingLock.tryLock()) {
+            return;
+        }
+        try {
+            if (additions.get() < sampleSize) {
+                return;
+            }
+            for (int i = 0; i < table.length(); i++) {
+                table.set(i, table.get(i) >>> 1);
+            }
+            additions.set(additions.get() / 2);
+        } finally {
+            agingLock.unlock();
+        }
+    }
+
+    private int indexOf(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        h += h >>> 32;
+        return row * (widthMask + 1) + ((int) h & widthMask);
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 17;
+        hash *= 0xed5ad4bb;
+        hash ^= hash >>> 11;
+        hash *= 0xac4c1b51;
+        return hash ^ (hash >>> 15);
+    }
+}
@@ -0,0 +1,13 @@
+package com.kg2s.cache;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Cache key identifying a (city, country) location
+ */
+public record LocationKey(String city, String country) {
+    
+    public static LocationKey of(String city, String country) {
+        return new LocationKey(city, country);
+    }
+}
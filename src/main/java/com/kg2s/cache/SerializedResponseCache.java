@@ -0,0 +1,91 @@
+package com.kg2s.cache;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.http.SerializedWeatherInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Serialized JSON response per location, kept for the WeatherData instance it was
+ * written from. When the weather cache holds newer data for the location the next request writes
+ * it again; entries whose data has left the weather cache are dropped once there are more of them
+ * than the weather cache can hold.
+ */
+@Component
+public class SerializedResponseCache {
+
+    private final Map<LocationKey, SerializedWeatherInfo> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder renders = new LongAdder();
+
+    private final WeatherDataCache weatherDataCache;
+    private final int purgeAbove;
+
+    @Autowired
+    public SerializedResponseCache(WeatherApiConfig weatherApiConfig, WeatherDataCache weatherDataCache) {
+        this(weatherApiConfig.getCache().getMaxSize(), weatherDataCache);
+    }
+
+    public SerializedResponseCache(int maxSize, WeatherDataCache weatherDataCache) {
+        this.weatherDataCache = weatherDataCache;
+        // Some slack, so a full cache is not scanned on every new location
+        this.purgeAbove = maxSize + maxSize / 4;
+    }
+
+    /**
+     * Get the serialized response for the data, serializing it if what is kept was written from other data
+     */
+    public SerializedWeatherInfo get(WeatherData data, Function<WeatherData, SerializedWeatherInfo> serializer) {
+        LocationKey key = LocationKey.of(data.getCity(), data.getCountry());
+        SerializedWeatherInfo serialized = entries.get(key);
+        if (serialized != null && serialized.getSource() == data) {
+            hits.increment();
+            return serialized;
+        }
+        // Racing writers of the same data produce the same bytes, either one may stay
+        serialized = serializer.apply(data);
+        renders.increment();
+        entries.put(key, serialized);
+        if (entries.size() > purgeAbove) {
+            purge();
+        }
+        return serialized;
+    }
+
+    /**
+     * Drop what was written from data the weather cache no longer serves as fresh
+     */
+    public void purge() {
+        entries.values().removeIf(serialized -> {
+            WeatherData source = serialized.getSource();
+            return weatherDataCache.peek(source.getCity(), source.getCountry())
+                .map(current -> current != source)
+                .orElse(true);
+        });
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getRenders() {
+        return renders.sum();
+    }
+}
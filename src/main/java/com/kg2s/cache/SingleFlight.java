@@ -0,0 +1,77 @@
+package com.kg2s.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Coalesces concurrent loads of the same key into a single in-flight call.
+ * The first caller for a key runs the loader, every caller arriving while it is still
+ * running waits for and shares its result (or its exception).
+ */
+public class SingleFlight<K, V> {
+    
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+        
+        executions.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+    
+    private V await(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Number of loader invocations actually executed
+     */
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+    
+    /**
+     * Number of callers that joined an already in-flight call instead of loading themselves
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+    
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,249 @@
+package com.kg2s.cache;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.WeatherData;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Bounded in-memory cache of the latest weather data per (city, country).
+ * An entry is served as fresh while it is within the configured freshness window, and as stale
+ * for a further grace window while it is refreshed; once the cache is full the entries closest
+ * to expiry are evicted first.
+ */
+@Component
+public class WeatherDataCache {
+    
+    private final Map<LocationKey, WeatherData> entries = new ConcurrentHashMap<>();
+    private final Lock evictionLock = new ReentrantLock();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    
+    private final int maxSize;
+    private final Duration freshness;
+    private final Duration staleGrace;
+    
+    @Autowired
+    public WeatherDataCache(WeatherApiConfig weatherApiConfig) {
+        this(weatherApiConfig.getCache().getMaxSize(), weatherApiConfig.getCache().getFreshness(),
+            weatherApiConfig.getCache().getStaleGrace());
+    }
+    
+    public WeatherDataCache(int maxSize, Duration freshness) {
+        this(maxSize, freshness, Duration.ZERO);
+    }
+    
+    public WeatherDataCache(int maxSize, Duration freshness, Duration staleGrace) {
+        this.maxSize = maxSize;
+        this.freshness = freshness;
+        this.staleGrace = staleGrace;
+    }
+    
+    /**
+     * Get fresh weather data for the given location, dropping the entry if it is past the grace window too
+     */
+    public Optional<WeatherData> get(String city, String country) {
+        LocationKey key = LocationKey.of(city, country);
+        WeatherData data = entries.get(key);
+        if (data == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        if (!isFresh(data)) {
+            if (!isServable(data) && entries.remove(key, data)) {
+                expirations.increment();
+            }
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(data);
+    }
+    
+    /**
+     * Get weather data that is past freshness but still within the grace window.
+     * Called after a {@link #get} miss, so only stale hits are recorded.
+     */
+    public Optional<WeatherData> getStale(String city, String country) {
+        WeatherData data = entries.get(LocationKey.of(city, country));
+        if (data == null || isFresh(data) || !isServable(data)) {
+            return Optional.empty();
+        }
+        staleHits.increment();
+        return Optional.of(data);
+    }
+    
+    /**
+     * Get fresh weather data for the given location without recording a hit or miss
+     */
+    public Optional<WeatherData> peek(String city, String country) {
+        WeatherData data = entries.get(LocationKey.of(city, country));
+        return data != null && isFresh(data) ? Optional.of(data) : Optional.empty();
+    }
+    
+    /**
+     * Record a hit for fresh data found with {@link #peek} and served
+     */
+    public void recordHit() {
+        hits.increment();
+    }
+    
+    /**
+     * Get fresh or stale weather data still within the grace window without recording a hit or miss
+     */
+    public Optional<WeatherData> peekServable(String city, String country) {
+        WeatherData data = entries.get(LocationKey.of(city, country));
+        return data != null && isServable(data) ? Optional.of(data) : Optional.empty();
+    }
+    
+    /**
+     * Store weather data, replacing any older entry for the same location
+     */
+    public void put(WeatherData data) {
+        LocationKey key = LocationKey.of(data.getCity(), data.getCountry());
+        // Never let a late writer replace newer data
+        entries.merge(key, data, (current, candidate) ->
+            candidate.getTimestamp().isBefore(current.getTimestamp()) ? current : candidate);
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+    
+    /**
+     * Entries still servable, fresh or stale, whose freshness ends before the given time
+     */
+    public List<WeatherData> expiringBefore(LocalDateTime time) {
+        LocalDateTime recordedBefore = time.minus(freshness);
+        List<WeatherData> expiring = new ArrayList<>();
+        for (WeatherData data : entries.values()) {
+            if (data.getTimestamp().isBefore(recordedBefore) && isServable(data)) {
+                expiring.add(data);
+            }
+        }
+        return expiring;
+    }
+    
+    public void invalidate(String city, String country) {
+        entries.remove(LocationKey.of(city, country));
+    }
+    
+    public void invalidateAll() {
+        entries.clear();
+    }
+    
+    /**
+     * Freshness policy shared by the cache and the database fallback
+     */
+    public boolean isFresh(WeatherData data) {
+        return data.getTimestamp().isAfter(freshSince());
+    }
+    
+    /**
+     * Whether the data may still be served, fresh or stale within the grace window
+     */
+    public boolean isServable(WeatherData data) {
+        return data.getTimestamp().isAfter(servableSince());
+    }
+    
+    /**
+     * Data recorded after this time is still fresh
+     */
+    public LocalDateTime freshSince() {
+        return LocalDateTime.now().minus(freshness);
+    }
+    
+    /**
+     * Data recorded after this time may still be served, possibly as stale
+     */
+    public LocalDateTime servableSince() {
+        return freshSince().minus(staleGrace);
+    }
+    
+    /**
+     * Make room in bulk, down to 90% of the maximum size, so that the scan is amortised over many puts
+     */
+    private void evict() {
+        // Whoever holds the lock is already making room for everybody
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            if (entries.size() <= maxSize) {
+                return;
+            }
+            // Expired entries go first, they would never be served again anyway
+            entries.forEach((key, data) -> {
+                if (!isServable(data) && entries.remove(key, data)) {
+                    expirations.increment();
+                }
+            });
+            
+            int target = maxSize - Math.max(1, maxSize / 10);
+            if (entries.size() <= maxSize) {
+                return;
+            }
+            List<Map.Entry<LocationKey, WeatherData>> oldestFirst = new ArrayList<>(entries.entrySet());
+            oldestFirst.sort(Comparator.comparing(entry -> entry.getValue().getTimestamp()));
+            for (Map.Entry<LocationKey, WeatherData> entry : oldestFirst) {
+                if (entries.size() <= target) {
+                    break;
+                }
+                if (entries.remove(entry.getKey(), entry.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+    
+    public int size() {
+        return entries.size();
+    }
+    
+    public long getHits() {
+        return hits.sum();
+    }
+    
+    public long getStaleHits() {
+        return staleHits.sum();
+    }
+    
+    public long getMisses() {
+        return misses.sum();
+    }
+    
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    public long getExpirations() {
+        return expirations.sum();
+    }
+    
+    public Duration getFreshness() {
+        return freshness;
+    }
+    
+    public Duration getStaleGrace() {
+        return staleGrace;
+    }
+}
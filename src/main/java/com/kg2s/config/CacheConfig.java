@@ -0,0 +1,40 @@
+package com.kg2s.config;
+
+import com.kg2s.cache.BackgroundRefresher;
+import com.kg2s.cache.FetchKey;
+import com.kg2s.cache.FrequencySketch;
+import com.kg2s.cache.LocationKey;
+import com.kg2s.cache.SingleFlight;
+import com.kg2s.domain.WeatherData;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Cache Configuration
+ */
+@Configuration
+public class CacheConfig {
+    
+    @Bean
+    public SingleFlight<FetchKey, WeatherData> upstreamFetches() {
+        return new SingleFlight<>();
+    }
+    
+    /**
+     * Request frequency per location, read by the pre-warmer to find the hot set
+     */
+    @Bean
+    public FrequencySketch<LocationKey> requestFrequency(WeatherApiConfig weatherApiConfig) {
+        return new FrequencySketch<>(weatherApiConfig.getPreWarm().getSketchWidth());
+    }
+    
+    @Bean
+    public BackgroundRefresher backgroundRefresher(@Qualifier("refreshExecutor") ExecutorService refreshExecutor) {
+        return new BackgroundRefresher(refreshExecutor);
+    }
+}
@@ -0,0 +1,57 @@
+package com.kg2s.config;
+
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Executor Configuration for work fanned out from a request or run behind it
+ */
+@Configuration
+public class ExecutorConfig {
+    
+    /**
+     * Runs upstream calls for batch misses; virtual threads in virtual mode, otherwise a fixed pool
+     * shared by all batches, with a bounded queue. Overflow is rejected, not queued.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService upstreamFetchExecutor(WeatherApiConfig weatherApiConfig, Environment environment) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("upstream-fetch-", 0).factory());
+        }
+        WeatherApiConfig.Batch batch = weatherApiConfig.getBatch();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(batch.getFetchThreads(), batch.getFetchThreads(),
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(batch.getFetchQueueCapacity()),
+            new CustomizableThreadFactory("upstream-fetch-"), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+    
+    /**
+     * Runs stale-while-revalidate refreshes; bounded in threads and queue in both modes, so a burst of
+     * stale entries cannot turn into a burst of upstream calls. Overflow is rejected, not queued.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService refreshExecutor(WeatherApiConfig weatherApiConfig, Environment environment) {
+        WeatherApiConfig.Refresh refresh = weatherApiConfig.getRefresh();
+        ThreadFactory threadFactory = Threading.VIRTUAL.isActive(environment)
+            ? Thread.ofVirtual().name("stale-refresh-", 0).factory()
+            : new CustomizableThreadFactory("stale-refresh-");
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(refresh.getThreads(), refresh.getThreads(),
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(refresh.getQueueCapacity()), threadFactory,
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,93 @@
+package com.kg2s.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.kg2s.domain.ApiKeyUsage;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.repository.ApiKeyUsageRepository;
+import com.kg2s.repository.WeatherDataRepository;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Hibernate second-level and query cache Configuration. Regions live in a Caffeine
+ * JCache manager of their own, created here with the TTL and size of api.entity-cache.regions.
+ * Hibernate drops cached query results whenever a table they read from is written.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    /**
+     * Regions sized from api.entity-cache.regions, besides the update timestamps
+     */
+    static final List<String> ENTITY_REGIONS = List.of(WeatherData.CACHE_REGION, ApiKeyUsage.CACHE_REGION);
+
+    static final List<String> QUERY_REGIONS = List.of(
+        WeatherDataRepository.LATEST_CACHE_REGION,
+        ApiKeyUsageRepository.BY_KEY_CACHE_REGION,
+        RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME);
+
+    /**
+     * Own URI per application context, so contexts in the same JVM never share regions
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "api.entity-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CacheManager entityCacheManager(WeatherApiConfig weatherApiConfig) {
+        WeatherApiConfig.EntityCache entityCache = weatherApiConfig.getEntityCache();
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(URI.create("entity-cache:" + UUID.randomUUID()), getClass().getClassLoader());
+        for (String region : Stream.concat(ENTITY_REGIONS.stream(), QUERY_REGIONS.stream()).toList()) {
+            WeatherApiConfig.EntityCache.Region settings =
+                entityCache.getRegions().getOrDefault(region, new WeatherApiConfig.EntityCache.Region());
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setStoreByValue(false);
+            configuration.setMaximumSize(OptionalLong.of(settings.getMaxSize()));
+            configuration.setExpireAfterWrite(OptionalLong.of(settings.getTtl().toNanos()));
+            cacheManager.createCache(region, configuration);
+        }
+
+        // Must neither expire nor be evicted, or stale query results could be served
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStoreByValue(false);
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, timestamps);
+        return cacheManager;
+    }
+
+    /**
+     * hibernate-jcache would otherwise turn the cache on by itself, with the provider's defaults
+     */
+    @Bean
+    public HibernatePropertiesCustomizer entityCacheCustomizer(WeatherApiConfig weatherApiConfig,
+                                                               ObjectProvider<CacheManager> entityCacheManager) {
+        return properties -> {
+            CacheManager cacheManager = entityCacheManager.getIfAvailable();
+            properties.put(AvailableSettings.GENERATE_STATISTICS, weatherApiConfig.getEntityCache().isStatistics());
+            if (cacheManager == null) {
+                properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, false);
+                properties.put(AvailableSettings.USE_QUERY_CACHE, false);
+                return;
+            }
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+}
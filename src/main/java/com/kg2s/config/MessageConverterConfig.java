@@ -0,0 +1,60 @@
+package com.kg2s.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.kg2s.http.SerializedWeatherInfoConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Binary response formats next to JSON, chosen by the Accept header:
+ * application/cbor and application/x-jackson-smile. Both are set up to write each repeated
+ * string once and refer back to it, which is what makes history and batch arrays small.
+ * These beans replace the converters Spring registers by default for the two formats.
+ */
+@Configuration
+public class MessageConverterConfig {
+    
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(cborFactory()).build());
+    }
+    
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(smileFactory()).build());
+    }
+    
+    /**
+     * JSON weather responses kept as bytes, see api.cache.serialized-responses
+     */
+    @Bean
+    public SerializedWeatherInfoConverter serializedWeatherInfoConverter() {
+        return new SerializedWeatherInfoConverter();
+    }
+    
+    /**
+     * CBOR with stringref (tag 256) back-references for repeated strings
+     */
+    public static CBORFactory cborFactory() {
+        return CBORFactory.builder()
+                .enable(CBORGenerator.Feature.STRINGREF)
+                .build();
+    }
+    
+    /**
+     * Smile with shared property names (on by default) and shared string values
+     */
+    public static SmileFactory smileFactory() {
+        return SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+    }
+}
@@ -0,0 +1,251 @@
+package com.kg2s.config;
+
+import com.kg2s.cache.BackgroundRefresher;
+import com.kg2s.cache.FetchKey;
+import com.kg2s.cache.SerializedResponseCache;
+import com.kg2s.cache.SingleFlight;
+import com.kg2s.cache.WeatherDataCache;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.http.InstrumentedConnectionManager;
+import com.kg2s.metrics.WeatherMetrics;
+import com.kg2s.persistence.WriteBehindWriter;
+import com.kg2s.ratelimit.ClusterRateLimiter;
+import com.kg2s.ratelimit.RateLimiter;
+import com.kg2s.resilience.CircuitBreaker;
+import com.kg2s.resilience.UpstreamQuotaGovernor;
+import com.kg2s.resilience.UpstreamQuotaStatus;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Metrics Configuration. The components keep their own LongAdder counters; they are
+ * read here when the registry is scraped, so exporting them adds nothing to the request path.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public WeatherMetrics weatherMetrics(MeterRegistry registry) {
+        return new WeatherMetrics(registry);
+    }
+
+    @Bean
+    public MeterBinder cacheMetrics(WeatherDataCache cache, SerializedResponseCache serializedResponses,
+                                    SingleFlight<FetchKey, WeatherData> upstreamFetches,
+                                    BackgroundRefresher backgroundRefresher) {
+        return registry -> {
+            Gauge.builder("weather.cache.size", cache, WeatherDataCache::size)
+                .description("Locations held in memory")
+                .register(registry);
+            counter(registry, "weather.cache.requests", "result", "hit", cache, WeatherDataCache::getHits);
+            counter(registry, "weather.cache.requests", "result", "stale", cache, WeatherDataCache::getStaleHits);
+            counter(registry, "weather.cache.requests", "result", "miss", cache, WeatherDataCache::getMisses);
+            counter(registry, "weather.cache.removals", "cause", "size", cache, WeatherDataCache::getEvictions);
+            counter(registry, "weather.cache.removals", "cause", "expired", cache, WeatherDataCache::getExpirations);
+            counter(registry, "weather.cache.serialized", "result", "reused", serializedResponses,
+                SerializedResponseCache::getHits);
+            counter(registry, "weather.cache.serialized", "result", "written", serializedResponses,
+                SerializedResponseCache::getRenders);
+
+            Gauge.builder("weather.upstream.in-flight", upstreamFetches, SingleFlight::getInFlightCount)
+                .description("Upstream fetches in progress, user fetches and refreshes of a location apart")
+                .register(registry);
+            counter(registry, "weather.upstream.fetches", "result", "executed", upstreamFetches,
+                SingleFlight::getExecutionCount);
+            counter(registry, "weather.upstream.fetches", "result", "coalesced", upstreamFetches,
+                SingleFlight::getCoalescedCount);
+
+            Gauge.builder("weather.refresh.pending", backgroundRefresher, BackgroundRefresher::getPendingCount)
+                .description("Stale locations queued or being refreshed")
+                .register(registry);
+            counter(registry, "weather.refresh.tasks", "result", "scheduled", backgroundRefresher,
+                BackgroundRefresher::getScheduledCount);
+            counter(registry, "weather.refresh.tasks", "result", "rejected", backgroundRefresher,
+                BackgroundRefresher::getRejectedCount);
+            counter(registry, "weather.refresh.tasks", "result", "completed", backgroundRefresher,
+                BackgroundRefresher::getCompletedCount);
+            counter(registry, "weather.refresh.tasks", "result", "failed", backgroundRefresher,
+                BackgroundRefresher::getFailedCount);
+        };
+    }
+
+    @Bean
+    public MeterBinder upstreamMetrics(CircuitBreaker circuitBreaker, UpstreamQuotaGovernor quotaGovernor,
+                                       InstrumentedConnectionManager upstreamConnectionManager) {
+        return registry -> {
+            // Calls that reached OpenWeatherMap, and those refused by the open circuit
+            counter(registry, "weather.upstream.calls", "outcome", "success", circuitBreaker,
+                breaker -> breaker.status().successfulCalls());
+            counter(registry, "weather.upstream.calls", "outcome", "failure", circuitBreaker,
+                breaker -> breaker.status().failedCalls());
+            counter(registry, "weather.upstream.calls", "outcome", "not-permitted", circuitBreaker,
+                breaker -> breaker.status().notPermittedCalls());
+            Gauge.builder("weather.upstream.circuit.state", circuitBreaker, breaker -> breaker.getState().ordinal())
+                .description("0 closed, 1 open, 2 half-open")
+                .register(registry);
+
+            // Calls granted and refused by the budget of the account key, and what is left of it
+            quotaCounter(registry, "user", "granted", quotaGovernor, UpstreamQuotaStatus::grantedUserCalls);
+            quotaCounter(registry, "background", "granted", quotaGovernor, UpstreamQuotaStatus::grantedBackgroundCalls);
+            quotaCounter(registry, "user", "shed", quotaGovernor, UpstreamQuotaStatus::shedUserCalls);
+            quotaCounter(registry, "background", "shed", quotaGovernor, UpstreamQuotaStatus::shedBackgroundCalls);
+            Gauge.builder("weather.upstream.quota.available", quotaGovernor,
+                    governor -> governor.status().availableThisMinute())
+                .tag("period", "minute")
+                .register(registry);
+            Gauge.builder("weather.upstream.quota.available", quotaGovernor,
+                    governor -> governor.status().availableToday())
+                .tag("period", "day")
+                .register(registry);
+            Gauge.builder("weather.upstream.quota.waiting", quotaGovernor, governor -> governor.status().waiting())
+                .description("Upstream calls waiting for the budget")
+                .register(registry);
+
+            Gauge.builder("weather.upstream.pool.connections", upstreamConnectionManager,
+                    InstrumentedConnectionManager::getLeasedConnections)
+                .tag("state", "leased")
+                .register(registry);
+            Gauge.builder("weather.upstream.pool.connections", upstreamConnectionManager,
+                    InstrumentedConnectionManager::getAvailableConnections)
+                .tag("state", "available")
+                .register(registry);
+            Gauge.builder("weather.upstream.pool.pending", upstreamConnectionManager,
+                    InstrumentedConnectionManager::getPendingLeases)
+                .description("Callers waiting for a pooled connection")
+                .register(registry);
+        };
+    }
+
+    @Bean
+    public MeterBinder persistenceMetrics(WriteBehindWriter writeBehindWriter) {
+        return registry -> {
+            Gauge.builder("weather.write-behind.queue", writeBehindWriter, WriteBehindWriter::getQueueDepth)
+                .description("Entities waiting to be written")
+                .register(registry);
+            FunctionTimer.builder("weather.write-behind.flush", writeBehindWriter, WriteBehindWriter::getFlushCount,
+                    writer -> writer.getAverageFlushMillis() * writer.getFlushCount(), TimeUnit.MILLISECONDS)
+                .register(registry);
+            counter(registry, "weather.write-behind.entities", "result", "flushed", writeBehindWriter,
+                WriteBehindWriter::getFlushedEntityCount);
+            counter(registry, "weather.write-behind.entities", "result", "failed", writeBehindWriter,
+                WriteBehindWriter::getFailedEntityCount);
+            counter(registry, "weather.write-behind.entities", "result", "merged", writeBehindWriter,
+                WriteBehindWriter::getMergedEntityCount);
+            counter(registry, "weather.write-behind.entities", "result", "synchronous", writeBehindWriter,
+                WriteBehindWriter::getSynchronousWriteCount);
+            FunctionCounter.builder("weather.write-behind.retries", writeBehindWriter, WriteBehindWriter::getRetryCount)
+                .description("Failed batches written again")
+                .register(registry);
+        };
+    }
+
+    /**
+     * Second-level and query cache hits and misses per region, while Hibernate statistics are on.
+     * Query regions only exist once first used, so their statistics are looked up on each read.
+     */
+    @Bean
+    public MeterBinder entityCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        return registry -> {
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            if (!statistics.isStatisticsEnabled()) {
+                return;
+            }
+            for (String region : HibernateCacheConfig.ENTITY_REGIONS) {
+                regionMetrics(registry, region, statistics, stats -> stats.getDomainDataRegionStatistics(region));
+            }
+            for (String region : HibernateCacheConfig.QUERY_REGIONS) {
+                regionMetrics(registry, region, statistics, stats -> stats.getQueryRegionStatistics(region));
+            }
+        };
+    }
+
+    /**
+     * How often the cluster engine goes to the shared table; nothing for the in-memory engines
+     */
+    @Bean
+    public MeterBinder rateLimitMetrics(RateLimiter rateLimiter) {
+        return registry -> {
+            if (rateLimiter instanceof ClusterRateLimiter cluster) {
+                FunctionCounter.builder("weather.ratelimit.lease.grants", cluster,
+                        ClusterRateLimiter::getLocalGrantCount)
+                    .description("Requests granted from permits this instance already leased")
+                    .register(registry);
+                FunctionCounter.builder("weather.ratelimit.database.calls", cluster,
+                        ClusterRateLimiter::getDatabaseCallCount)
+                    .description("Conditional updates sent to the rate_limit_window table")
+                    .register(registry);
+            }
+        };
+    }
+
+    /**
+     * Pool size, active threads and queue depth of the executors; only thread pools report them,
+     * the virtual-thread executors have nothing to queue
+     */
+    @Bean
+    public MeterBinder executorMetrics(@Qualifier("upstreamFetchExecutor") ExecutorService upstreamFetchExecutor,
+                                       @Qualifier("refreshExecutor") ExecutorService refreshExecutor) {
+        return registry -> {
+            new ExecutorServiceMetrics(upstreamFetchExecutor, "upstreamFetch", Tags.empty()).bindTo(registry);
+            new ExecutorServiceMetrics(refreshExecutor, "refresh", Tags.empty()).bindTo(registry);
+        };
+    }
+
+    private static void regionMetrics(MeterRegistry registry, String region, Statistics statistics,
+                                      Function<Statistics, CacheRegionStatistics> lookup) {
+        ToDoubleFunction<Statistics> hits = stats -> {
+            CacheRegionStatistics regionStatistics = lookup.apply(stats);
+            return regionStatistics == null ? 0 : regionStatistics.getHitCount();
+        };
+        ToDoubleFunction<Statistics> misses = stats -> {
+            CacheRegionStatistics regionStatistics = lookup.apply(stats);
+            return regionStatistics == null ? 0 : regionStatistics.getMissCount();
+        };
+        FunctionCounter.builder("weather.entity-cache.requests", statistics, hits)
+            .tags("region", region, "result", "hit")
+            .register(registry);
+        FunctionCounter.builder("weather.entity-cache.requests", statistics, misses)
+            .tags("region", region, "result", "miss")
+            .register(registry);
+        Gauge.builder("weather.entity-cache.hit.ratio", statistics, stats -> {
+                double hit = hits.applyAsDouble(stats);
+                double lookups = hit + misses.applyAsDouble(stats);
+                return lookups == 0 ? 0 : hit / lookups;
+            })
+            .tag("region", region)
+            .description("Share of lookups answered from the region since startup")
+            .register(registry);
+    }
+
+    private static void quotaCounter(MeterRegistry registry, String priority, String result,
+                                     UpstreamQuotaGovernor governor, ToDoubleFunction<UpstreamQuotaStatus> count) {
+        FunctionCounter.builder("weather.upstream.quota.calls", governor, g -> count.applyAsDouble(g.status()))
+            .tag("priority", priority)
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private static <T> void counter(MeterRegistry registry, String name, String tag, String value, T source,
+                                    ToDoubleFunction<T> count) {
+        FunctionCounter.builder(name, source, count).tag(tag, value).register(registry);
+    }
+}
@@ -3,6 +3,8 @@ package com.kg2s.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * @author Yanfu Zhang
  * @date 2025-08-08
@@ -15,6 +17,321 @@ public class OpenWeatherMapConfig {
     private String key;
     private String baseUrl;
     private String units;
+    private Pool pool = new Pool();
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+    private Quota quota = new Quota();
+    
+    public static class Pool {
+        /**
+         * Maximum number of connections across all routes
+         */
+        private Integer maxTotal = 100;
+        
+        /**
+         * Maximum number of connections to a single upstream host
+         */
+        private Integer maxPerRoute = 50;
+        
+        private Duration connectTimeout = Duration.ofSeconds(10);
+        
+        private Duration readTimeout = Duration.ofSeconds(30);
+        
+        /**
+         * Maximum time to wait for a free connection when the pool is saturated
+         */
+        private Duration leaseTimeout = Duration.ofSeconds(5);
+        
+        /**
+         * How long an idle connection is kept alive when the server does not say otherwise
+         */
+        private Duration keepAlive = Duration.ofMinutes(1);
+        
+        /**
+         * Idle connections older than this are closed by a background evictor
+         */
+        private Duration idleEviction = Duration.ofSeconds(30);
+        
+        /**
+         * Connections idle for longer than this are validated before being reused
+         */
+        private Duration validateAfterInactivity = Duration.ofSeconds(2);
+        
+        public Integer getMaxTotal() {
+            return maxTotal;
+        }
+        
+        public void setMaxTotal(Integer maxTotal) {
+            this.maxTotal = maxTotal;
+        }
+        
+        public Integer getMaxPerRoute() {
+            return maxPerRoute;
+        }
+        
+        public void setMaxPerRoute(Integer maxPerRoute) {
+            this.maxPerRoute = maxPerRoute;
+        }
+        
+        public Duration getConnectTimeout() {
+            return connectTimeout;
+        }
+        
+        public void setConnectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+        
+        public Duration getReadTimeout() {
+            return readTimeout;
+        }
+        
+        public void setReadTimeout(Duration readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+        
+        public Duration getLeaseTimeout() {
+            return leaseTimeout;
+        }
+        
+        public void setLeaseTimeout(Duration leaseTimeout) {
+            this.leaseTimeout = leaseTimeout;
+        }
+        
+        public Duration getKeepAlive() {
+            return keepAlive;
+        }
+        
+        public void setKeepAlive(Duration keepAlive) {
+            this.keepAlive = keepAlive;
+        }
+        
+        public Duration getIdleEviction() {
+            return idleEviction;
+        }
+        
+        public void setIdleEviction(Duration idleEviction) {
+            this.idleEviction = idleEviction;
+        }
+        
+        public Duration getValidateAfterInactivity() {
+            return validateAfterInactivity;
+        }
+        
+        public void setValidateAfterInactivity(Duration validateAfterInactivity) {
+            this.validateAfterInactivity = validateAfterInactivity;
+        }
+    }
+    
+    public static class CircuitBreaker {
+        /**
+         * When disabled every call goes to the upstream API whatever its recent failures
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Number of most recent calls the failure and slow-call rates are computed over
+         */
+        private Integer slidingWindowSize = 20;
+        
+        /**
+         * Calls needed in the window before the rates are evaluated
+         */
+        private Integer minimumCalls = 10;
+        
+        /**
+         * Failure percentage at or above which the circuit opens
+         */
+        private Integer failureRateThreshold = 50;
+        
+        /**
+         * Slow-call percentage at or above which the circuit opens
+         */
+        private Integer slowCallRateThreshold = 80;
+        
+        /**
+         * Calls taking longer than this count as slow, even when they succeed
+         */
+        private Duration slowCallDuration = Duration.ofSeconds(3);
+        
+        /**
+         * How long the circuit stays open before letting trial calls through
+         */
+        private Duration waitInOpen = Duration.ofSeconds(30);
+        
+        /**
+         * Trial calls let through while half-open; they decide between closing and reopening
+         */
+        private Integer halfOpenCalls = 3;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public Integer getSlidingWindowSize() {
+            return slidingWindowSize;
+        }
+        
+        public void setSlidingWindowSize(Integer slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+        }
+        
+        public Integer getMinimumCalls() {
+            return minimumCalls;
+        }
+        
+        public void setMinimumCalls(Integer minimumCalls) {
+            this.minimumCalls = minimumCalls;
+        }
+        
+        public Integer getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+        
+        public void setFailureRateThreshold(Integer failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+        
+        public Integer getSlowCallRateThreshold() {
+            return slowCallRateThreshold;
+        }
+        
+        public void setSlowCallRateThreshold(Integer slowCallRateThreshold) {
+            this.slowCallRateThreshold = slowCallRateThreshold;
+        }
+        
+        public Duration getSlowCallDuration() {
+            return slowCallDuration;
+        }
+        
+        public void setSlowCallDuration(Duration slowCallDuration) {
+            this.slowCallDuration = slowCallDuration;
+        }
+        
+        public Duration getWaitInOpen() {
+            return waitInOpen;
+        }
+        
+        public void setWaitInOpen(Duration waitInOpen) {
+            this.waitInOpen = waitInOpen;
+        }
+        
+        public Integer getHalfOpenCalls() {
+            return halfOpenCalls;
+        }
+        
+        public void setHalfOpenCalls(Integer halfOpenCalls) {
+            this.halfOpenCalls = halfOpenCalls;
+        }
+    }
+    
+    public static class Quota {
+        /**
+         * When disabled calls are only limited by the circuit breaker and the connection pool
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Calls per minute allowed by the OpenWeatherMap plan, for the whole process
+         */
+        private Integer perMinute = 60;
+        
+        /**
+         * Calls per day allowed by the OpenWeatherMap plan, for the whole process
+         */
+        private Integer perDay = 30000;
+        
+        /**
+         * Callers allowed to wait for the budget at once; further ones are refused right away
+         */
+        private Integer maxQueue = 200;
+        
+        /**
+         * Longest a request that missed the cache waits for the budget before it is refused
+         */
+        private Duration userMaxWait = Duration.ofSeconds(2);
+        
+        /**
+         * Longest a background refresh waits for the budget before it is dropped
+         */
+        private Duration backgroundMaxWait = Duration.ofSeconds(10);
+        
+        /**
+         * Percentage of each budget that background refreshes leave to requests that missed the cache
+         */
+        private Integer backgroundReserve = 20;
+        
+        /**
+         * How long no call is made after a 429 from OpenWeatherMap that has no Retry-After header
+         */
+        private Duration throttledRetryAfter = Duration.ofSeconds(60);
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public Integer getPerMinute() {
+            return perMinute;
+        }
+        
+        public void setPerMinute(Integer perMinute) {
+            this.perMinute = perMinute;
+        }
+        
+        public Integer getPerDay() {
+            return perDay;
+        }
+        
+        public void setPerDay(Integer perDay) {
+            this.perDay = perDay;
+        }
+        
+        public Integer getMaxQueue() {
+            return maxQueue;
+        }
+        
+        public void setMaxQueue(Integer maxQueue) {
+            this.maxQueue = maxQueue;
+        }
+        
+        public Duration getUserMaxWait() {
+            return userMaxWait;
+        }
+        
+        public void setUserMaxWait(Duration userMaxWait) {
+            this.userMaxWait = userMaxWait;
+        }
+        
+        public Duration getBackgroundMaxWait() {
+            return backgroundMaxWait;
+        }
+        
+        public void setBackgroundMaxWait(Duration backgroundMaxWait) {
+            this.backgroundMaxWait = backgroundMaxWait;
+        }
+        
+        public Integer getBackgroundReserve() {
+            return backgroundReserve;
+        }
+        
+        public void setBackgroundReserve(Integer backgroundReserve) {
+            this.backgroundReserve = backgroundReserve;
+        }
+        
+        public Duration getThrottledRetryAfter() {
+            return throttledRetryAfter;
+        }
+        
+        public void setThrottledRetryAfter(Duration throttledRetryAfter) {
+            this.throttledRetryAfter = throttledRetryAfter;
+        }
+    }
     
     public String getKey() {
         return key;
@@ -39,4 +356,28 @@ public class OpenWeatherMapConfig {
     public void setUnits(String units) {
         this.units = units;
     }
-} 
\ No newline at end of file
+    
+    public Pool getPool() {
+        return pool;
+    }
+    
+    public void setPool(Pool pool) {
+        this.pool = pool;
+    }
+    
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+    
+    public Quota getQuota() {
+        return quota;
+    }
+    
+    public void setQuota(Quota quota) {
+        this.quota = quota;
+    }
+}
@@ -0,0 +1,35 @@
+package com.kg2s.config;
+
+import com.kg2s.ratelimit.ClusterRateLimiter;
+import com.kg2s.ratelimit.HourlyWindowRateLimiter;
+import com.kg2s.ratelimit.RateLimiter;
+import com.kg2s.ratelimit.TokenBucketRateLimiter;
+import com.kg2s.repository.RateLimitWindowRepository;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Clock;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Rate Limiter Configuration
+ */
+@Configuration
+@EnableScheduling
+public class RateLimitConfig {
+    
+    @Bean
+    public RateLimiter rateLimiter(WeatherApiConfig weatherApiConfig, RateLimitWindowRepository rateLimitWindowRepository) {
+        WeatherApiConfig.RateLimit rateLimit = weatherApiConfig.getRateLimit();
+        int requestsPerHour = rateLimit.getRequestsPerHour();
+        
+        return switch (rateLimit.getEngine()) {
+            case TOKEN_BUCKET -> new TokenBucketRateLimiter(Clock.systemDefaultZone(), requestsPerHour);
+            case HOURLY_WINDOW -> new HourlyWindowRateLimiter(Clock.systemDefaultZone(), requestsPerHour);
+            case CLUSTER -> new ClusterRateLimiter(Clock.systemDefaultZone(), rateLimitWindowRepository,
+                requestsPerHour, rateLimit.getLeaseSize());
+        };
+    }
+}
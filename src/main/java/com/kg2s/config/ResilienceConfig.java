@@ -0,0 +1,42 @@
+package com.kg2s.config;
+
+import com.kg2s.resilience.CircuitBreaker;
+import com.kg2s.resilience.UpstreamQuotaGovernor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Clock;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Resilience Configuration for calls to OpenWeatherMap
+ */
+@Configuration
+public class ResilienceConfig {
+    
+    /**
+     * Client errors such as an unknown city say nothing about the health of OpenWeatherMap,
+     * except 429 which means we are being throttled
+     */
+    @Bean
+    public CircuitBreaker upstreamCircuitBreaker(OpenWeatherMapConfig openWeatherMapConfig) {
+        OpenWeatherMapConfig.CircuitBreaker config = openWeatherMapConfig.getCircuitBreaker();
+        return new CircuitBreaker("openweathermap", Clock.systemUTC(),
+            e -> !(e instanceof HttpClientErrorException clientError)
+                || clientError.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS,
+            config.getSlidingWindowSize(), config.getMinimumCalls(),
+            config.getFailureRateThreshold(), config.getSlowCallRateThreshold(),
+            config.getSlowCallDuration(), config.getWaitInOpen(), config.getHalfOpenCalls());
+    }
+    
+    @Bean
+    public UpstreamQuotaGovernor upstreamQuotaGovernor(OpenWeatherMapConfig openWeatherMapConfig) {
+        OpenWeatherMapConfig.Quota config = openWeatherMapConfig.getQuota();
+        return new UpstreamQuotaGovernor("openweathermap", config.getPerMinute(), config.getPerDay(),
+            config.getMaxQueue(), config.getUserMaxWait(), config.getBackgroundMaxWait(),
+            config.getBackgroundReserve());
+    }
+}
@@ -1,9 +1,20 @@
 package com.kg2s.config;
 
+import com.kg2s.http.InstrumentedConnectionManager;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+
 import java.time.Duration;
 
 /**
@@ -15,10 +26,52 @@ import java.time.Duration;
 public class RestTemplateConfig {
     
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
+    public InstrumentedConnectionManager upstreamConnectionManager(OpenWeatherMapConfig openWeatherMapConfig) {
+        OpenWeatherMapConfig.Pool pool = openWeatherMapConfig.getPool();
+        
+        InstrumentedConnectionManager connectionManager = new InstrumentedConnectionManager();
+        connectionManager.setMaxTotal(pool.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+            .setSoTimeout(toTimeout(pool.getReadTimeout()))
+            .setSoKeepAlive(true)
+            .setTcpNoDelay(true)
+            .build());
+        connectionManager.setDefaultConnectionConfig(ConnectionConfig.custom()
+            .setConnectTimeout(toTimeout(pool.getConnectTimeout()))
+            .setSocketTimeout(toTimeout(pool.getReadTimeout()))
+            .setValidateAfterInactivity(TimeValue.ofMilliseconds(pool.getValidateAfterInactivity().toMillis()))
+            .build());
+        return connectionManager;
+    }
+    
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient upstreamHttpClient(InstrumentedConnectionManager upstreamConnectionManager,
+                                                 OpenWeatherMapConfig openWeatherMapConfig) {
+        OpenWeatherMapConfig.Pool pool = openWeatherMapConfig.getPool();
+        
+        return HttpClients.custom()
+            .setConnectionManager(upstreamConnectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setConnectionRequestTimeout(toTimeout(pool.getLeaseTimeout()))
+                .setResponseTimeout(toTimeout(pool.getReadTimeout()))
+                // Used when the server does not send a Keep-Alive header
+                .setConnectionKeepAlive(TimeValue.ofMilliseconds(pool.getKeepAlive().toMillis()))
+                .build())
+            .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+            .evictExpiredConnections()
+            .evictIdleConnections(TimeValue.ofMilliseconds(pool.getIdleEviction().toMillis()))
+            .build();
+    }
+    
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient upstreamHttpClient) {
         return builder
-            .setConnectTimeout(Duration.ofSeconds(10))
-            .setReadTimeout(Duration.ofSeconds(30))
+            .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(upstreamHttpClient))
             .build();
     }
-} 
\ No newline at end of file
+    
+    private static Timeout toTimeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+}
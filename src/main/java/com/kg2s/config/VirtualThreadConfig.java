@@ -0,0 +1,27 @@
+package com.kg2s.config;
+
+import com.kg2s.diagnostics.PinnedThreadMonitor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Virtual Thread Configuration, active with spring.threads.virtual.enabled=true.
+ * Spring Boot itself moves Tomcat request handling, the task executor and the task scheduler
+ * to virtual threads; this adds the pinning diagnostics.
+ */
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+    
+    @Bean
+    @ConditionalOnProperty(prefix = "api.virtual-threads", name = "pinning-diagnostics", matchIfMissing = true)
+    public PinnedThreadMonitor pinnedThreadMonitor(WeatherApiConfig weatherApiConfig) {
+        WeatherApiConfig.VirtualThreads virtualThreads = weatherApiConfig.getVirtualThreads();
+        return new PinnedThreadMonitor(virtualThreads.getPinnedThreshold(), virtualThreads.getPinnedStackDepth());
+    }
+}
@@ -3,7 +3,10 @@ package com.kg2s.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Yanfu Zhang
@@ -16,10 +19,50 @@ public class WeatherApiConfig {
     
     private List<String> keys;
     private RateLimit rateLimit;
+    private Cache cache = new Cache();
+    private WriteBehind writeBehind = new WriteBehind();
+    private VirtualThreads virtualThreads = new VirtualThreads();
+    private Batch batch = new Batch();
+    private History history = new History();
+    private Refresh refresh = new Refresh();
+    private PreWarm preWarm = new PreWarm();
+    private Retention retention = new Retention();
+    private KeyRegistry keyRegistry = new KeyRegistry();
+    private EntityCache entityCache = new EntityCache();
+    private Locations locations = new Locations();
     
     public static class RateLimit {
         private Integer requestsPerHour;
         
+        /**
+         * Rate limiter engine used to enforce requestsPerHour
+         */
+        private Engine engine = Engine.HOURLY_WINDOW;
+        
+        /**
+         * How often the in-memory usage is persisted to api_key_usage
+         */
+        private Duration snapshotInterval = Duration.ofSeconds(30);
+        
+        /**
+         * Whether a 304 Not Modified answer to a conditional request counts against requestsPerHour
+         */
+        private boolean countNotModified = true;
+        
+        /**
+         * Cluster engine only: most permits an instance takes from the shared table at once
+         */
+        private int leaseSize = 10;
+        
+        public enum Engine {
+            /** Fixed window, resets at the start of each clock hour */
+            HOURLY_WINDOW,
+            /** Bursts up to requestsPerHour, refilled continuously */
+            TOKEN_BUCKET,
+            /** Hourly window kept in the database, shared by all instances */
+            CLUSTER
+        }
+        
         public Integer getRequestsPerHour() {
             return requestsPerHour;
         }
@@ -27,6 +70,739 @@ public class WeatherApiConfig {
         public void setRequestsPerHour(Integer requestsPerHour) {
             this.requestsPerHour = requestsPerHour;
         }
+        
+        public Engine getEngine() {
+            return engine;
+        }
+        
+        public void setEngine(Engine engine) {
+            this.engine = engine;
+        }
+        
+        public Duration getSnapshotInterval() {
+            return snapshotInterval;
+        }
+        
+        public void setSnapshotInterval(Duration snapshotInterval) {
+            this.snapshotInterval = snapshotInterval;
+        }
+        
+        public boolean isCountNotModified() {
+            return countNotModified;
+        }
+        
+        public void setCountNotModified(boolean countNotModified) {
+            this.countNotModified = countNotModified;
+        }
+        
+        public int getLeaseSize() {
+            return leaseSize;
+        }
+        
+        public void setLeaseSize(int leaseSize) {
+            this.leaseSize = leaseSize;
+        }
+    }
+    
+    public static class Cache {
+        /**
+         * Maximum number of (city, country) entries kept in memory
+         */
+        private Integer maxSize = 1000;
+        
+        /**
+         * How long weather data is considered recent enough to be served without calling the upstream API
+         */
+        private Duration freshness = Duration.ofHours(1);
+        
+        /**
+         * How long past freshness data is still served right away while it is refreshed in the background,
+         * zero turns stale-while-revalidate off
+         */
+        private Duration staleGrace = Duration.ofMinutes(10);
+        
+        /**
+         * Keep the JSON body of each fresh entry and write it as is on cache hits, with the
+         * requesting API key in the apiKey field
+         */
+        private boolean serializedResponses = false;
+        
+        public Integer getMaxSize() {
+            return maxSize;
+        }
+        
+        public void setMaxSize(Integer maxSize) {
+            this.maxSize = maxSize;
+        }
+        
+        public Duration getFreshness() {
+            return freshness;
+        }
+        
+        public void setFreshness(Duration freshness) {
+            this.freshness = freshness;
+        }
+        
+        public Duration getStaleGrace() {
+            return staleGrace;
+        }
+        
+        public void setStaleGrace(Duration staleGrace) {
+            this.staleGrace = staleGrace;
+        }
+        
+        public boolean isSerializedResponses() {
+            return serializedResponses;
+        }
+        
+        public void setSerializedResponses(boolean serializedResponses) {
+            this.serializedResponses = serializedResponses;
+        }
+    }
+    
+    public static class WriteBehind {
+        /**
+         * When disabled every entity is written synchronously on the caller thread
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Maximum number of entities waiting to be flushed
+         */
+        private Integer queueCapacity = 10000;
+        
+        /**
+         * Maximum number of entities written in one flush, should match hibernate.jdbc.batch_size
+         */
+        private Integer batchSize = 50;
+        
+        /**
+         * Maximum time an entity waits in the queue before being flushed
+         */
+        private Duration flushInterval = Duration.ofSeconds(1);
+        
+        /**
+         * How long a caller waits for room in a full queue before writing synchronously
+         */
+        private Duration offerTimeout = Duration.ofMillis(100);
+        
+        /**
+         * How long shutdown waits for the queue to be drained
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+        
+        /**
+         * How many times a failed batch is written again before its entities are written one by one
+         */
+        private Integer maxRetries = 3;
+        
+        /**
+         * Pause before the first retry of a failed batch, doubled before each further retry
+         */
+        private Duration retryBackoff = Duration.ofMillis(200);
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public Integer getQueueCapacity() {
+            return queueCapacity;
+        }
+        
+        public void setQueueCapacity(Integer queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+        
+        public Integer getBatchSize() {
+            return batchSize;
+        }
+        
+        public void setBatchSize(Integer batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+        
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+        
+        public Duration getOfferTimeout() {
+            return offerTimeout;
+        }
+        
+        public void setOfferTimeout(Duration offerTimeout) {
+            this.offerTimeout = offerTimeout;
+        }
+        
+        public Duration getShutdownTimeout() {
+            return shutdownTimeout;
+        }
+        
+        public void setShutdownTimeout(Duration shutdownTimeout) {
+            this.shutdownTimeout = shutdownTimeout;
+        }
+        
+        public Integer getMaxRetries() {
+            return maxRetries;
+        }
+        
+        public void setMaxRetries(Integer maxRetries) {
+            this.maxRetries = maxRetries;
+        }
+        
+        public Duration getRetryBackoff() {
+            return retryBackoff;
+        }
+        
+        public void setRetryBackoff(Duration retryBackoff) {
+            this.retryBackoff = retryBackoff;
+        }
+    }
+    
+    public static class VirtualThreads {
+        /**
+         * Log virtual threads pinned to their carrier, only used with spring.threads.virtual.enabled
+         */
+        private boolean pinningDiagnostics = true;
+        
+        /**
+         * Pinning shorter than this is not reported
+         */
+        private Duration pinnedThreshold = Duration.ofMillis(20);
+        
+        /**
+         * Number of stack frames used to identify a pinning site
+         */
+        private Integer pinnedStackDepth = 12;
+        
+        public boolean isPinningDiagnostics() {
+            return pinningDiagnostics;
+        }
+        
+        public void setPinningDiagnostics(boolean pinningDiagnostics) {
+            this.pinningDiagnostics = pinningDiagnostics;
+        }
+        
+        public Duration getPinnedThreshold() {
+            return pinnedThreshold;
+        }
+        
+        public void setPinnedThreshold(Duration pinnedThreshold) {
+            this.pinnedThreshold = pinnedThreshold;
+        }
+        
+        public Integer getPinnedStackDepth() {
+            return pinnedStackDepth;
+        }
+        
+        public void setPinnedStackDepth(Integer pinnedStackDepth) {
+            this.pinnedStackDepth = pinnedStackDepth;
+        }
+    }
+    
+    public static class Batch {
+        /**
+         * Maximum number of locations in one batch request
+         */
+        private Integer maxSize = 100;
+        
+        /**
+         * Maximum number of concurrent upstream calls for the misses of one batch
+         */
+        private Integer parallelism = 8;
+        
+        /**
+         * Threads shared by the upstream calls of all batches (platform threads only)
+         */
+        private Integer fetchThreads = 32;
+        
+        /**
+         * Upstream calls of all batches waiting for a thread; further calls fail the batch with 503
+         */
+        private Integer fetchQueueCapacity = 256;
+        
+        public Integer getMaxSize() {
+            return maxSize;
+        }
+        
+        public void setMaxSize(Integer maxSize) {
+            this.maxSize = maxSize;
+        }
+        
+        public Integer getParallelism() {
+            return parallelism;
+        }
+        
+        public void setParallelism(Integer parallelism) {
+            this.parallelism = parallelism;
+        }
+        
+        public Integer getFetchThreads() {
+            return fetchThreads;
+        }
+        
+        public void setFetchThreads(Integer fetchThreads) {
+            this.fetchThreads = fetchThreads;
+        }
+        
+        public Integer getFetchQueueCapacity() {
+            return fetchQueueCapacity;
+        }
+        
+        public void setFetchQueueCapacity(Integer fetchQueueCapacity) {
+            this.fetchQueueCapacity = fetchQueueCapacity;
+        }
+    }
+    
+    public static class History {
+        /**
+         * Page size when the client does not ask for one
+         */
+        private Integer defaultLimit = 100;
+        
+        /**
+         * Largest page a client may ask for, use the NDJSON stream for more
+         */
+        private Integer maxLimit = 1000;
+        
+        public Integer getDefaultLimit() {
+            return defaultLimit;
+        }
+        
+        public void setDefaultLimit(Integer defaultLimit) {
+            this.defaultLimit = defaultLimit;
+        }
+        
+        public Integer getMaxLimit() {
+            return maxLimit;
+        }
+        
+        public void setMaxLimit(Integer maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+    }
+    
+    public static class Refresh {
+        /**
+         * Threads refreshing stale entries in the background
+         */
+        private Integer threads = 2;
+        
+        /**
+         * Refreshes waiting for a thread; beyond this, stale entries are refreshed by a later request
+         */
+        private Integer queueCapacity = 100;
+        
+        public Integer getThreads() {
+            return threads;
+        }
+        
+        public void setThreads(Integer threads) {
+            this.threads = threads;
+        }
+        
+        public Integer getQueueCapacity() {
+            return queueCapacity;
+        }
+        
+        public void setQueueCapacity(Integer queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+    }
+    
+    public static class PreWarm {
+        /**
+         * When disabled hot entries are only refreshed on a request
+         */
+        private boolean enabled = true;
+        
+        /**
+         * How often the cache is scanned for hot entries about to expire
+         */
+        private Duration interval = Duration.ofSeconds(10);
+        
+        /**
+         * Hot entries are refreshed when their freshness ends within this time
+         */
+        private Duration lead = Duration.ofMinutes(5);
+        
+        /**
+         * Most frequently requested locations considered hot
+         */
+        private Integer hotSetSize = 300;
+        
+        /**
+         * Estimated recent requests below which a location is not worth refreshing ahead
+         */
+        private Integer minFrequency = 3;
+        
+        /**
+         * Upstream budget for pre-warming, spread evenly over the scans
+         */
+        private Integer maxRefreshesPerMinute = 30;
+        
+        /**
+         * Counters per row of the request frequency sketch, a few times hotSetSize
+         */
+        private Integer sketchWidth = 4096;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public Duration getInterval() {
+            return interval;
+        }
+        
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+        
+        public Duration getLead() {
+            return lead;
+        }
+        
+        public void setLead(Duration lead) {
+            this.lead = lead;
+        }
+        
+        public Integer getHotSetSize() {
+            return hotSetSize;
+        }
+        
+        public void setHotSetSize(Integer hotSetSize) {
+            this.hotSetSize = hotSetSize;
+        }
+        
+        public Integer getMinFrequency() {
+            return minFrequency;
+        }
+        
+        public void setMinFrequency(Integer minFrequency) {
+            this.minFrequency = minFrequency;
+        }
+        
+        public Integer getMaxRefreshesPerMinute() {
+            return maxRefreshesPerMinute;
+        }
+        
+        public void setMaxRefreshesPerMinute(Integer maxRefreshesPerMinute) {
+            this.maxRefreshesPerMinute = maxRefreshesPerMinute;
+        }
+        
+        public Integer getSketchWidth() {
+            return sketchWidth;
+        }
+        
+        public void setSketchWidth(Integer sketchWidth) {
+            this.sketchWidth = sketchWidth;
+        }
+    }
+    
+    public static class Retention {
+        /**
+         * When disabled weather history is kept raw forever
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Pause between two compaction runs
+         */
+        private Duration interval = Duration.ofMinutes(1);
+        
+        /**
+         * How long raw observations are kept before being compacted into hourly rollups
+         */
+        private Duration rawRetention = Duration.ofDays(7);
+        
+        /**
+         * How long hourly rollups are kept before being compacted into daily rollups
+         */
+        private Duration hourlyRetention = Duration.ofDays(90);
+        
+        /**
+         * How long daily rollups are kept, zero keeps them forever
+         */
+        private Duration dailyRetention = Duration.ZERO;
+        
+        /**
+         * Rows read, written and deleted per transaction
+         */
+        private Integer batchSize = 500;
+        
+        /**
+         * Transactions per tier and run, the rest is left to the next run
+         */
+        private Integer maxBatchesPerRun = 20;
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public Duration getInterval() {
+            return interval;
+        }
+        
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+        
+        public Duration getRawRetention() {
+            return rawRetention;
+        }
+        
+        public void setRawRetention(Duration rawRetention) {
+            this.rawRetention = rawRetention;
+        }
+        
+        public Duration getHourlyRetention() {
+            return hourlyRetention;
+        }
+        
+        public void setHourlyRetention(Duration hourlyRetention) {
+            this.hourlyRetention = hourlyRetention;
+        }
+        
+        public Duration getDailyRetention() {
+            return dailyRetention;
+        }
+        
+        public void setDailyRetention(Duration dailyRetention) {
+            this.dailyRetention = dailyRetention;
+        }
+        
+        public Integer getBatchSize() {
+            return batchSize;
+        }
+        
+        public void setBatchSize(Integer batchSize) {
+            this.batchSize = batchSize;
+        }
+        
+        public Integer getMaxBatchesPerRun() {
+            return maxBatchesPerRun;
+        }
+        
+        public void setMaxBatchesPerRun(Integer maxBatchesPerRun) {
+            this.maxBatchesPerRun = maxBatchesPerRun;
+        }
+    }
+    
+    public static class KeyRegistry {
+        /**
+         * How often the api_key table is read again, picking up keys changed by other instances
+         */
+        private Duration reloadInterval = Duration.ofSeconds(30);
+        
+        /**
+         * Tier of the keys listed under api.keys, and of keys added without one
+         */
+        private String defaultTier = "standard";
+        
+        /**
+         * Value of the X-Admin-Token header required by /api/v1/admin; empty disables the admin endpoint
+         */
+        private String adminToken = "";
+        
+        private Map<String, Tier> tiers = new LinkedHashMap<>();
+        
+        public static class Tier {
+            /**
+             * Defaults to api.rate-limit.requests-per-hour
+             */
+            private Integer requestsPerHour;
+            
+            /**
+             * Requests that may be made at once (token-bucket engine), defaults to requestsPerHour
+             */
+            private Integer burst;
+            
+            /**
+             * Endpoints the keys of this tier may call (weather, batch, history); empty allows all
+             */
+            private List<String> endpoints = List.of();
+            
+            public Integer getRequestsPerHour() {
+                return requestsPerHour;
+            }
+            
+            public void setRequestsPerHour(Integer requestsPerHour) {
+                this.requestsPerHour = requestsPerHour;
+            }
+            
+            public Integer getBurst() {
+                return burst;
+            }
+            
+            public void setBurst(Integer burst) {
+                this.burst = burst;
+            }
+            
+            public List<String> getEndpoints() {
+                return endpoints;
+            }
+            
+            public void setEndpoints(List<String> endpoints) {
+                this.endpoints = endpoints;
+            }
+        }
+        
+        public Duration getReloadInterval() {
+            return reloadInterval;
+        }
+        
+        public void setReloadInterval(Duration reloadInterval) {
+            this.reloadInterval = reloadInterval;
+        }
+        
+        public String getDefaultTier() {
+            return defaultTier;
+        }
+        
+        public void setDefaultTier(String defaultTier) {
+            this.defaultTier = defaultTier;
+        }
+        
+        public String getAdminToken() {
+            return adminToken;
+        }
+        
+        public void setAdminToken(String adminToken) {
+            this.adminToken = adminToken;
+        }
+        
+        public Map<String, Tier> getTiers() {
+            return tiers;
+        }
+        
+        public void setTiers(Map<String, Tier> tiers) {
+            this.tiers = tiers;
+        }
+    }
+    
+    public static class EntityCache {
+        /**
+         * Whether Hibernate keeps entities and cacheable query results in memory between sessions
+         */
+        private boolean enabled = true;
+        
+        /**
+         * Whether Hibernate collects the statistics behind the per-region hit and miss metrics
+         */
+        private boolean statistics = true;
+        
+        /**
+         * Time to live and size of each cache region; regions not listed get the defaults of Region
+         */
+        private Map<String, Region> regions = new LinkedHashMap<>();
+        
+        public static class Region {
+            /**
+             * How long an entry is kept after it was written
+             */
+            private Duration ttl = Duration.ofMinutes(10);
+            
+            /**
+             * Most entries kept in the region
+             */
+            private long maxSize = 10_000;
+            
+            public Duration getTtl() {
+                return ttl;
+            }
+            
+            public void setTtl(Duration ttl) {
+                this.ttl = ttl;
+            }
+            
+            public long getMaxSize() {
+                return maxSize;
+            }
+            
+            public void setMaxSize(long maxSize) {
+                this.maxSize = maxSize;
+            }
+        }
+        
+        public boolean isEnabled() {
+            return enabled;
+        }
+        
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        public boolean isStatistics() {
+            return statistics;
+        }
+        
+        public void setStatistics(boolean statistics) {
+            this.statistics = statistics;
+        }
+        
+        public Map<String, Region> getRegions() {
+            return regions;
+        }
+        
+        public void setRegions(Map<String, Region> regions) {
+            this.regions = regions;
+        }
+    }
+    
+    public static class Locations {
+        /**
+         * Resource with the cities locations resolve to, as lines of id,name,country and other names separated by |
+         */
+        private String cityList = "classpath:locations/cities.csv";
+        
+        /**
+         * Country codes clients may use for another code, resolved before the city is looked up
+         */
+        private Map<String, String> countryAliases = new LinkedHashMap<>(Map.of("UK", "GB"));
+        
+        /**
+         * Query OpenWeatherMap by city id for listed cities, by name for the others
+         */
+        private boolean queryById = true;
+        
+        public String getCityList() {
+            return cityList;
+        }
+        
+        public void setCityList(String cityList) {
+            this.cityList = cityList;
+        }
+        
+        public Map<String, String> getCountryAliases() {
+            return countryAliases;
+        }
+        
+        public void setCountryAliases(Map<String, String> countryAliases) {
+            this.countryAliases = countryAliases;
+        }
+        
+        public boolean isQueryById() {
+            return queryById;
+        }
+        
+        public void setQueryById(boolean queryById) {
+            this.queryById = queryById;
+        }
     }
     
     public List<String> getKeys() {
@@ -44,4 +820,92 @@ public class WeatherApiConfig {
     public void setRateLimit(RateLimit rateLimit) {
         this.rateLimit = rateLimit;
     }
-} 
\ No newline at end of file
+    
+    public Cache getCache() {
+        return cache;
+    }
+    
+    public void setCache(Cache cache) {
+        this.cache = cache;
+    }
+    
+    public WriteBehind getWriteBehind() {
+        return writeBehind;
+    }
+    
+    public void setWriteBehind(WriteBehind writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+    
+    public VirtualThreads getVirtualThreads() {
+        return virtualThreads;
+    }
+    
+    public void setVirtualThreads(VirtualThreads virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+    
+    public Batch getBatch() {
+        return batch;
+    }
+    
+    public void setBatch(Batch batch) {
+        this.batch = batch;
+    }
+    
+    public History getHistory() {
+        return history;
+    }
+    
+    public void setHistory(History history) {
+        this.history = history;
+    }
+    
+    public Refresh getRefresh() {
+        return refresh;
+    }
+    
+    public void setRefresh(Refresh refresh) {
+        this.refresh = refresh;
+    }
+    
+    public PreWarm getPreWarm() {
+        return preWarm;
+    }
+    
+    public void setPreWarm(PreWarm preWarm) {
+        this.preWarm = preWarm;
+    }
+    
+    public Retention getRetention() {
+        return retention;
+    }
+    
+    public void setRetention(Retention retention) {
+        this.retention = retention;
+    }
+    
+    public KeyRegistry getKeyRegistry() {
+        return keyRegistry;
+    }
+    
+    public void setKeyRegistry(KeyRegistry keyRegistry) {
+        this.keyRegistry = keyRegistry;
+    }
+    
+    public EntityCache getEntityCache() {
+        return entityCache;
+    }
+    
+    public void setEntityCache(EntityCache entityCache) {
+        this.entityCache = entityCache;
+    }
+    
+    public Locations getLocations() {
+        return locations;
+    }
+    
+    public void setLocations(Locations locations) {
+        this.locations = locations;
+    }
+}
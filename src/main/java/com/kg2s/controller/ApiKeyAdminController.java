@@ -0,0 +1,104 @@
+package com.kg2s.controller;
+
+import com.kg2s.apikey.ApiKeyRegistry;
+import com.kg2s.apikey.ApiKeyTier;
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.ApiKey;
+import com.kg2s.domain.ApiKeyReq;
+import com.kg2s.exception.ForbiddenException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Adds, changes and revokes API keys while running. Every call needs the
+ * X-Admin-Token header set to api.key-registry.admin-token.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/api-keys")
+public class ApiKeyAdminController {
+
+    private static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+
+    @Autowired
+    private ApiKeyRegistry apiKeyRegistry;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    /**
+     * Register a key, or move an existing key to another tier and reinstate it
+     * 
+     * @param request Key (generated when absent) and tier (default tier when absent)
+     * @return The registered key
+     */
+    @PostMapping
+    public ResponseEntity<ApiKey> register(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token,
+                                           @RequestBody ApiKeyReq request) {
+        checkToken(token);
+        String apiKey = request.getApiKey() == null || request.getApiKey().isBlank() ? null : request.getApiKey();
+        return ResponseEntity.status(HttpStatus.CREATED).body(apiKeyRegistry.register(apiKey, request.getTier()));
+    }
+
+    /**
+     * Revoke a key, effective for the next request on this instance and after the next reload on others
+     * 
+     * @return The revoked key, 404 if unknown
+     */
+    @DeleteMapping("/{apiKey}")
+    public ResponseEntity<ApiKey> revoke(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token,
+                                         @PathVariable String apiKey) {
+        checkToken(token);
+        return ResponseEntity.of(apiKeyRegistry.revoke(apiKey));
+    }
+
+    @GetMapping("/{apiKey}")
+    public ResponseEntity<ApiKey> get(@RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token,
+                                      @PathVariable String apiKey) {
+        checkToken(token);
+        return ResponseEntity.of(apiKeyRegistry.find(apiKey));
+    }
+
+    /**
+     * Configured tiers with their rate limit and allowed endpoints
+     */
+    @GetMapping("/tiers")
+    public ResponseEntity<Collection<ApiKeyTier>> tiers(
+            @RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        checkToken(token);
+        return ResponseEntity.ok(apiKeyRegistry.getTiers().values());
+    }
+
+    /**
+     * Read the api_key table again now instead of at the next reload interval
+     * 
+     * @return Number of active keys
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<Map<String, Integer>> reload(
+            @RequestHeader(value = ADMIN_TOKEN_HEADER, required = false) String token) {
+        checkToken(token);
+        apiKeyRegistry.reload();
+        return ResponseEntity.ok(Map.of("activeKeys", apiKeyRegistry.size()));
+    }
+
+    private void checkToken(String token) {
+        String expected = weatherApiConfig.getKeyRegistry().getAdminToken();
+        if (expected == null || expected.isEmpty()) {
+            throw new ForbiddenException("Admin endpoint is disabled, set api.key-registry.admin-token");
+        }
+        // Constant time, so the token cannot be guessed from response times
+        if (token == null || !MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8),
+                token.getBytes(StandardCharsets.UTF_8))) {
+            throw new ForbiddenException("Invalid admin token");
+        }
+    }
+}
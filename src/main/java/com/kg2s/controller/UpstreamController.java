@@ -0,0 +1,48 @@
+package com.kg2s.controller;
+
+import com.kg2s.resilience.CircuitBreaker;
+import com.kg2s.resilience.CircuitBreakerStatus;
+import com.kg2s.resilience.UpstreamQuotaGovernor;
+import com.kg2s.resilience.UpstreamQuotaStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Operational view of the OpenWeatherMap integration
+ */
+@RestController
+@RequestMapping("/api/v1/upstream")
+public class UpstreamController {
+
+    @Autowired
+    private CircuitBreaker upstreamCircuitBreaker;
+
+    @Autowired
+    private UpstreamQuotaGovernor upstreamQuotaGovernor;
+
+    /**
+     * Current circuit breaker state, recent failure and slow-call rates and lifetime call counts
+     * 
+     * @return Circuit breaker status
+     */
+    @GetMapping("/circuit-breaker")
+    public ResponseEntity<CircuitBreakerStatus> circuitBreaker() {
+        return ResponseEntity.ok(upstreamCircuitBreaker.status());
+    }
+
+    /**
+     * Calls left in the per-minute and per-day budgets, callers waiting for them and lifetime
+     * granted and refused calls per priority
+     * 
+     * @return Quota status
+     */
+    @GetMapping("/quota")
+    public ResponseEntity<UpstreamQuotaStatus> quota() {
+        return ResponseEntity.ok(upstreamQuotaGovernor.status());
+    }
+}
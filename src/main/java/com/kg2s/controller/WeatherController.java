@@ -1,15 +1,36 @@
 package com.kg2s.controller;
 
+import com.kg2s.apikey.Endpoint;
+import com.kg2s.domain.WeatherBatchItemResp;
+import com.kg2s.domain.WeatherHistoryPage;
 import com.kg2s.domain.WeatherInfoResp;
+import com.kg2s.domain.WeatherLocationReq;
+import com.kg2s.domain.WeatherVersion;
+import com.kg2s.http.SerializedWeatherInfo;
 import com.kg2s.service.WeatherService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.NotBlank;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.function.Predicate;
 
 /**
  * @author Yanfu Zhang
@@ -21,73 +42,247 @@ import java.util.HashMap;
 @CrossOrigin(origins = "*")
 public class WeatherController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Representations of a weather response, in order of preference when the client has none
+     */
+    private enum Format {
+        JSON(MediaType.APPLICATION_JSON),
+        CBOR(MediaType.APPLICATION_CBOR),
+        SMILE(new MediaType("application", "x-jackson-smile"));
+
+        private final MediaType mediaType;
+
+        Format(MediaType mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        String suffix() {
+            return name().toLowerCase();
+        }
+    }
+
     @Autowired
     private WeatherService weatherService;
 
     /**
-     * Get weather information by city and country using path variables
+     * Get weather information by city and country using path variables.
+     * Supports conditional requests with If-None-Match and If-Modified-Since.
      * 
      * @param city City name
      * @param country Country code
      * @param apiKey API key for authentication and rate limiting
-     * @return Weather information response
+     * @return Weather information response, or 304 Not Modified
      */
     @GetMapping("/{city}/{country}")
-    public ResponseEntity<WeatherInfoResp> getWeatherByPath(
+    public ResponseEntity<?> getWeatherByPath(
             @PathVariable @NotBlank String city,
             @PathVariable @NotBlank String country,
-            @RequestParam @NotBlank String apiKey) {
+            @RequestParam @NotBlank String apiKey,
+            HttpServletRequest request) {
         
-        WeatherInfoResp response = weatherService.getWeatherInfo(city, country, apiKey);
-        return ResponseEntity.ok(response);
+        return conditionalResponse(city, country, apiKey, request);
     }
 
     /**
-     * Get weather information by city and country using query parameters
+     * Get weather information by city and country using query parameters.
+     * Supports conditional requests with If-None-Match and If-Modified-Since.
      * 
      * @param city City name
      * @param country Country code
      * @param apiKey API key for authentication and rate limiting
-     * @return Weather information response
+     * @return Weather information response, or 304 Not Modified
      */
     @GetMapping("/query")
-    public ResponseEntity<WeatherInfoResp> getWeatherByQuery(
+    public ResponseEntity<?> getWeatherByQuery(
             @RequestParam @NotBlank String city,
             @RequestParam @NotBlank String country,
+            @RequestParam @NotBlank String apiKey,
+            HttpServletRequest request) {
+        
+        return conditionalResponse(city, country, apiKey, request);
+    }
+
+    /**
+     * Get weather information for several locations at once. Each location counts
+     * against the rate limit; a location that fails is reported in its own item.
+     * 
+     * @param locations Cities and countries to look up
+     * @param apiKey API key for authentication and rate limiting
+     * @return One result per requested location, in request order
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<List<WeatherBatchItemResp>> getWeatherBatch(
+            @RequestBody List<WeatherLocationReq> locations,
             @RequestParam @NotBlank String apiKey) {
         
-        WeatherInfoResp response = weatherService.getWeatherInfo(city, country, apiKey);
+        List<WeatherBatchItemResp> response = weatherService.getWeatherInfoBatch(locations, apiKey);
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Get weather history by city and country
+     * Get weather history by city and country, newest first, one page at a time.
+     * When more history is available the next page is given by the X-Next-Cursor and Link headers.
      * 
      * @param city City name
      * @param country Country code
+     * @param from Oldest timestamp included (ISO date-time), optional
+     * @param to Newest timestamp excluded (ISO date-time), optional
+     * @param cursor Cursor of the page to read, from the previous page
+     * @param limit Page size
      * @return List of weather information responses
      */
     @GetMapping("/history/{city}/{country}")
     public ResponseEntity<List<WeatherInfoResp>> getWeatherHistory(
             @PathVariable @NotBlank String city,
-            @PathVariable @NotBlank String country) {
+            @PathVariable @NotBlank String country,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         
-        List<WeatherInfoResp> response = weatherService.getWeatherHistory(city, country);
-        return ResponseEntity.ok(response);
+        WeatherHistoryPage page = weatherService.getWeatherHistory(city, country, from, to, cursor, limit);
+        return toResponse(page);
+    }
+
+    /**
+     * Stream the whole weather history by city and country as newline-delimited JSON
+     * (Accept: application/x-ndjson), without holding it in memory
+     */
+    @GetMapping(value = "/history/{city}/{country}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamWeatherHistory(
+            @PathVariable @NotBlank String city,
+            @PathVariable @NotBlank String country,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        
+        StreamingResponseBody body = out -> weatherService.streamWeatherHistory(city, country, from, to, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
     }
 
     /**
-     * Get weather history by API key
+     * Get weather history by API key, newest first, one page at a time
      * 
      * @param apiKey API key
+     * @param from Oldest timestamp included (ISO date-time), optional
+     * @param to Newest timestamp excluded (ISO date-time), optional
+     * @param cursor Cursor of the page to read, from the previous page
+     * @param limit Page size
      * @return List of weather information responses
      */
     @GetMapping("/history")
     public ResponseEntity<List<WeatherInfoResp>> getWeatherHistoryByApiKey(
-            @RequestParam @NotBlank String apiKey) {
+            @RequestParam @NotBlank String apiKey,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
         
-        List<WeatherInfoResp> response = weatherService.getWeatherHistoryByApiKey(apiKey);
-        return ResponseEntity.ok(response);
+        WeatherHistoryPage page = weatherService.getWeatherHistoryByApiKey(apiKey, from, to, cursor, limit);
+        return toResponse(page);
+    }
+
+    /**
+     * Stream the whole weather history by API key as newline-delimited JSON
+     */
+    @GetMapping(value = "/history", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamWeatherHistoryByApiKey(
+            @RequestParam @NotBlank String apiKey,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        
+        weatherService.checkApiKey(apiKey, Endpoint.HISTORY);
+        StreamingResponseBody body = out -> weatherService.streamWeatherHistoryByApiKey(apiKey, from, to, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Weather information with its validators and Cache-Control set to the remaining freshness.
+     * When the request's validators match, Spring answers 304 from these headers without
+     * serializing the body. A fresh location requested as JSON may be answered with bytes kept
+     * from an earlier response instead (api.cache.serialized-responses).
+     */
+    private ResponseEntity<?> conditionalResponse(String city, String country, String apiKey,
+                                                  HttpServletRequest request) {
+        // The format is chosen here rather than by Spring, since the validators depend on it
+        Format format = negotiate(request);
+        if (format == null) {
+            // Refused before the key is charged or OpenWeatherMap is called for a body nobody can read
+            return ResponseEntity.status(HttpStatus.NOT_ACCEPTABLE).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        
+        // Evaluated without a response, so only the answer is computed and no header is written yet
+        ServletWebRequest validators = new ServletWebRequest(request);
+        Predicate<WeatherVersion> notModified = version ->
+            validators.checkNotModified(version.forFormat(format.suffix()).etag(), epochMillis(version));
+        
+        if (format == Format.JSON) {
+            SerializedWeatherInfo serialized = weatherService.getSerializedWeatherInfo(city, country, apiKey, notModified);
+            if (serialized != null) {
+                return withValidators(serialized.getVersion(), format).body(serialized.withApiKey(apiKey));
+            }
+        }
+        WeatherInfoResp response = weatherService.getWeatherInfo(city, country, apiKey, notModified);
+        return withValidators(response.getVersion(), format).body(response);
+    }
+
+    /**
+     * Validators of the chosen representation
+     */
+    private static ResponseEntity.BodyBuilder withValidators(WeatherVersion version, Format format) {
+        return ResponseEntity.ok()
+                .varyBy(HttpHeaders.ACCEPT)
+                .contentType(format.mediaType)
+                .eTag(version.forFormat(format.suffix()).etag())
+                .lastModified(epochMillis(version))
+                .cacheControl(CacheControl.maxAge(version.maxAge(LocalDateTime.now())));
+    }
+
+    /**
+     * The format the Accept header prefers, by quality and then in the order given; JSON when the
+     * header is missing or accepts anything, null when it accepts none of them or cannot be parsed
+     */
+    private static Format negotiate(HttpServletRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return Format.JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() == 0) {
+                break;
+            }
+            for (Format format : Format.values()) {
+                if (mediaType.isCompatibleWith(format.mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static long epochMillis(WeatherVersion version) {
+        return version.lastModified().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private ResponseEntity<List<WeatherInfoResp>> toResponse(WeatherHistoryPage page) {
+        if (!page.hasNext()) {
+            return ResponseEntity.ok(page.getItems());
+        }
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("cursor", page.getNextCursor())
+            .toUriString();
+        return ResponseEntity.ok()
+            .header(NEXT_CURSOR_HEADER, page.getNextCursor())
+            .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+            .body(page.getItems());
     }
 
     /**
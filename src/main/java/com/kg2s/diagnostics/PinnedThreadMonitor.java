@@ -0,0 +1,116 @@
+package com.kg2s.diagnostics;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Reports virtual threads pinned to their carrier thread (blocking inside a
+ * synchronized block or a native frame, typically JDBC drivers) by listening to the JFR
+ * jdk.VirtualThreadPinned event. Each pinning site is logged once at WARN level with its
+ * stack, repeated occurrences are counted.
+ */
+public class PinnedThreadMonitor implements SmartLifecycle {
+    
+    private static final Logger logger = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+    
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    
+    private final Duration threshold;
+    private final int stackDepth;
+    
+    private final Map<String, LongAdder> pinnedBySite = new ConcurrentHashMap<>();
+    private final LongAdder pinnedEvents = new LongAdder();
+    private final LongAdder pinnedNanos = new LongAdder();
+    
+    private volatile RecordingStream stream;
+    
+    public PinnedThreadMonitor(Duration threshold, int stackDepth) {
+        this.threshold = threshold;
+        this.stackDepth = stackDepth;
+    }
+    
+    @Override
+    public void start() {
+        RecordingStream recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        stream = recordingStream;
+        logger.info("Monitoring virtual thread pinning longer than {}", threshold);
+    }
+    
+    private void onPinned(RecordedEvent event) {
+        pinnedEvents.increment();
+        pinnedNanos.add(event.getDuration().toNanos());
+        
+        String site = describe(event.getStackTrace());
+        LongAdder count = pinnedBySite.computeIfAbsent(site, key -> new LongAdder());
+        count.increment();
+        if (count.sum() == 1) {
+            logger.warn("Virtual thread pinned for {} ms at:\n{}", event.getDuration().toMillis(), site);
+        } else {
+            logger.debug("Virtual thread pinned for {} ms ({} times at this site)",
+                event.getDuration().toMillis(), count.sum());
+        }
+    }
+    
+    private String describe(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "\t<no stack trace>";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        return frames.stream()
+            .limit(stackDepth)
+            .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                + "(line " + frame.getLineNumber() + ")")
+            .collect(Collectors.joining("\n"));
+    }
+    
+    @Override
+    public void stop() {
+        RecordingStream recordingStream = stream;
+        stream = null;
+        if (recordingStream != null) {
+            recordingStream.close();
+        }
+        if (pinnedEvents.sum() > 0) {
+            logger.info("Virtual threads were pinned {} times at {} sites, {} ms in total",
+                pinnedEvents.sum(), pinnedBySite.size(), pinnedNanos.sum() / 1_000_000);
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+    
+    public long getPinnedEventCount() {
+        return pinnedEvents.sum();
+    }
+    
+    public double getPinnedMillis() {
+        return pinnedNanos.sum() / 1_000_000.0;
+    }
+    
+    /**
+     * Number of pinning occurrences per distinct stack
+     */
+    public Map<String, Long> getPinnedSites() {
+        return pinnedBySite.entrySet().stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().sum()));
+    }
+}
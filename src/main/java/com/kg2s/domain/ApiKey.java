@@ -0,0 +1,79 @@
+package com.kg2s.domain;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description API Key Entity, with the tier that sets its rate limit and endpoints
+ */
+@Entity
+@Table(name = "api_key")
+public class ApiKey {
+    
+    @Id
+    private String apiKey;
+    
+    @Column(nullable = false)
+    private String tier;
+    
+    @Column(nullable = false)
+    private boolean revoked;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
+
+    public ApiKey() {}
+
+    public ApiKey(String apiKey, String tier) {
+        this.apiKey = apiKey;
+        this.tier = tier;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = this.createdAt;
+    }
+
+    // Getters and Setters
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public void setApiKey(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    public String getTier() {
+        return tier;
+    }
+
+    public void setTier(String tier) {
+        this.tier = tier;
+    }
+
+    public boolean isRevoked() {
+        return revoked;
+    }
+
+    public void setRevoked(boolean revoked) {
+        this.revoked = revoked;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,37 @@
+package com.kg2s.domain;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description API key to register through the admin endpoint
+ */
+public class ApiKeyReq {
+    // Generated when absent
+    private String apiKey;
+    // Default tier when absent
+    private String tier;
+
+    public ApiKeyReq() {}
+
+    public ApiKeyReq(String apiKey, String tier) {
+        this.apiKey = apiKey;
+        this.tier = tier;
+    }
+
+    // Getters and Setters
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public void setApiKey(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    public String getTier() {
+        return tier;
+    }
+
+    public void setTier(String tier) {
+        this.tier = tier;
+    }
+}
@@ -1,6 +1,8 @@
 package com.kg2s.domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 /**
@@ -10,10 +12,18 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "api_key_usage")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ApiKeyUsage.CACHE_REGION)
 public class ApiKeyUsage {
     
+    /**
+     * Second-level cache region of the entity
+     */
+    public static final String CACHE_REGION = "api-key-usage";
+    
+    // Sequence ids (allocated in blocks) keep Hibernate JDBC insert batching enabled
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "api_key_usage_id")
+    @SequenceGenerator(name = "api_key_usage_id", sequenceName = "api_key_usage_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, unique = true)
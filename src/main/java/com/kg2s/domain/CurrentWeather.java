@@ -0,0 +1,20 @@
+package com.kg2s.domain;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description The part of an OpenWeatherMap /weather response that is stored: the first entry of
+ * its weather array. The fields are null when the response had no weather entry.
+ */
+public record CurrentWeather(int weatherId,
+                             String main,
+                             String description,
+                             String icon) {
+
+    /**
+     * Whether the response carried a weather condition at all
+     */
+    public boolean hasCondition() {
+        return main != null;
+    }
+}
@@ -0,0 +1,42 @@
+package com.kg2s.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Keyset position in weather history ordered by (timestamp, id) descending,
+ * within the storage tier the position belongs to. Clients only see it as an opaque token.
+ */
+public record HistoryCursor(LocalDateTime timestamp, Long id, HistoryTier tier) {
+    
+    private static final String SEPARATOR = "|";
+    
+    public static HistoryCursor after(WeatherDataView row) {
+        return new HistoryCursor(row.timestamp(), row.id(), HistoryTier.RAW);
+    }
+    
+    public static HistoryCursor after(WeatherRollupView row, HistoryTier tier) {
+        return new HistoryCursor(row.periodStart(), row.id(), tier);
+    }
+    
+    public String encode() {
+        String raw = timestamp + SEPARATOR + id + SEPARATOR + tier;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static HistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR);
+            // Cursors issued before the rollup tiers existed have no tier and point into the raw history
+            HistoryTier tier = parts.length > 2 ? HistoryTier.valueOf(parts[2]) : HistoryTier.RAW;
+            return new HistoryCursor(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]), tier);
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid history cursor");
+        }
+    }
+}
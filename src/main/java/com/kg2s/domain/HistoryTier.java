@@ -0,0 +1,15 @@
+package com.kg2s.domain;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Storage tiers of weather history, from the newest and finest to the oldest and coarsest
+ */
+public enum HistoryTier {
+    /** One row per observation, in weather_data */
+    RAW,
+    /** One row per location and hour, in weather_rollup_hourly */
+    HOURLY,
+    /** One row per location and day, in weather_rollup_daily */
+    DAILY
+}
@@ -0,0 +1,34 @@
+package com.kg2s.domain;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Hourly rollup of weather history for one location
+ */
+@Entity
+@Table(name = "weather_rollup_hourly")
+public class HourlyWeatherRollup extends WeatherRollup {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "weather_rollup_hourly_id")
+    @SequenceGenerator(name = "weather_rollup_hourly_id", sequenceName = "weather_rollup_hourly_seq", allocationSize = 50)
+    private Long id;
+
+    public HourlyWeatherRollup() {}
+
+    public HourlyWeatherRollup(String city, String country, LocalDateTime periodStart) {
+        super(city, country, periodStart);
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
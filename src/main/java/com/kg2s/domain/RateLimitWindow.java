@@ -0,0 +1,50 @@
+package com.kg2s.domain;
+
+import jakarta.persistence.*;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Permits of an API key used so far in one clock hour, shared by all instances
+ */
+@Entity
+@Table(name = "rate_limit_window")
+public class RateLimitWindow {
+    
+    @Id
+    private String apiKey;
+    
+    // Hours since the epoch
+    @Column(nullable = false)
+    private Long windowHour;
+    
+    @Column(nullable = false)
+    private Integer used;
+
+    public RateLimitWindow() {}
+
+    // Getters and Setters
+    public String getApiKey() {
+        return apiKey;
+    }
+
+    public void setApiKey(String apiKey) {
+        this.apiKey = apiKey;
+    }
+
+    public Long getWindowHour() {
+        return windowHour;
+    }
+
+    public void setWindowHour(Long windowHour) {
+        this.windowHour = windowHour;
+    }
+
+    public Integer getUsed() {
+        return used;
+    }
+
+    public void setUsed(Integer used) {
+        this.used = used;
+    }
+}
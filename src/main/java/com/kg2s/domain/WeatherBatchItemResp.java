@@ -0,0 +1,81 @@
+package com.kg2s.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Outcome of one location in a batch weather response, either the weather or an error
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class WeatherBatchItemResp {
+    public static final String STATUS_OK = "OK";
+    public static final String STATUS_ERROR = "ERROR";
+
+    private String city;
+    private String country;
+    private String status;
+    private WeatherInfoResp weather;
+    private String error;
+
+    public WeatherBatchItemResp() {}
+
+    public static WeatherBatchItemResp ok(String city, String country, WeatherInfoResp weather) {
+        WeatherBatchItemResp item = new WeatherBatchItemResp();
+        item.city = city;
+        item.country = country;
+        item.status = STATUS_OK;
+        item.weather = weather;
+        return item;
+    }
+
+    public static WeatherBatchItemResp error(String city, String country, String error) {
+        WeatherBatchItemResp item = new WeatherBatchItemResp();
+        item.city = city;
+        item.country = country;
+        item.status = STATUS_ERROR;
+        item.error = error;
+        return item;
+    }
+
+    // Getters and Setters
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public WeatherInfoResp getWeather() {
+        return weather;
+    }
+
+    public void setWeather(WeatherInfoResp weather) {
+        this.weather = weather;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+}
@@ -1,6 +1,8 @@
 package com.kg2s.domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDateTime;
 
 /**
@@ -10,10 +12,24 @@ import java.time.LocalDateTime;
  */
 @Entity
 @Table(name = "weather_data")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = WeatherData.CACHE_REGION)
 public class WeatherData {
     
+    /**
+     * Second-level cache region of the entity
+     */
+    public static final String CACHE_REGION = "weather-data";
+    
+    /**
+     * Key of observations the service fetched on its own, stale and pre-warming refreshes, which
+     * belong to no client's history
+     */
+    public static final String SYSTEM_API_KEY = "system";
+    
+    // Sequence ids (allocated in blocks) keep Hibernate JDBC insert batching enabled
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "weather_data_id")
+    @SequenceGenerator(name = "weather_data_id", sequenceName = "weather_data_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false)
@@ -22,6 +38,9 @@ public class WeatherData {
     @Column(nullable = false)
     private String country;
     
+    // OpenWeatherMap city id, null for locations not in the city list
+    private Long cityId;
+    
     @Column(nullable = false)
     private String apiKey;
     
@@ -85,6 +104,14 @@ public class WeatherData {
         this.country = country;
     }
 
+    public Long getCityId() {
+        return cityId;
+    }
+
+    public void setCityId(Long cityId) {
+        this.cityId = cityId;
+    }
+
     public String getApiKey() {
         return apiKey;
     }
@@ -0,0 +1,20 @@
+package com.kg2s.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Read-only projection of a weather_data row with just the columns a response needs.
+ * Selected with a JPQL constructor expression, so no managed entity is created.
+ */
+public record WeatherDataView(Long id,
+                              String weatherId,
+                              String main,
+                              String description,
+                              String icon,
+                              String city,
+                              String country,
+                              String apiKey,
+                              LocalDateTime timestamp) {
+}
@@ -0,0 +1,30 @@
+package com.kg2s.domain;
+
+import java.util.List;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description One page of weather history, with the cursor of the next page if there is one
+ */
+public class WeatherHistoryPage {
+    private final List<WeatherInfoResp> items;
+    private final String nextCursor;
+
+    public WeatherHistoryPage(List<WeatherInfoResp> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<WeatherInfoResp> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -1,5 +1,7 @@
 package com.kg2s.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -16,6 +18,22 @@ public class WeatherInfoResp {
     private String country;
     private String apiKey;
     private String timestamp;
+    
+    // Only present when the data is past its freshness window and being refreshed
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean stale;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long ageSeconds;
+    
+    // Only present on history compacted into rollups: "hourly" or "daily", and how many observations it covers
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String resolution;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer observations;
+    
+    // Validators of the weather data behind the response, sent as headers rather than in the body
+    @JsonIgnore
+    private WeatherVersion version;
 
     public WeatherInfoResp() {}
 
@@ -95,4 +113,44 @@ public class WeatherInfoResp {
     public void setTimestamp(String timestamp) {
         this.timestamp = timestamp;
     }
+
+    public Boolean getStale() {
+        return stale;
+    }
+
+    public void setStale(Boolean stale) {
+        this.stale = stale;
+    }
+
+    public Long getAgeSeconds() {
+        return ageSeconds;
+    }
+
+    public void setAgeSeconds(Long ageSeconds) {
+        this.ageSeconds = ageSeconds;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public void setResolution(String resolution) {
+        this.resolution = resolution;
+    }
+
+    public Integer getObservations() {
+        return observations;
+    }
+
+    public void setObservations(Integer observations) {
+        this.observations = observations;
+    }
+
+    public WeatherVersion getVersion() {
+        return version;
+    }
+
+    public void setVersion(WeatherVersion version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,39 @@
+package com.kg2s.domain;
+
+import jakarta.validation.constraints.NotBlank;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Location (city and country) requested in a batch weather request
+ */
+public class WeatherLocationReq {
+    @NotBlank
+    private String city;
+    @NotBlank
+    private String country;
+
+    public WeatherLocationReq() {}
+
+    public WeatherLocationReq(String city, String country) {
+        this.city = city;
+        this.country = country;
+    }
+
+    // Getters and Setters
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+}
@@ -0,0 +1,146 @@
+package com.kg2s.domain;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.MappedSuperclass;
+import java.time.LocalDateTime;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Weather of one location over one period, compacted from finer history.
+ * Keeps the dominant condition (the one observed most often), how many observations had it
+ * and how many observations the period had in total.
+ */
+@MappedSuperclass
+public abstract class WeatherRollup {
+
+    @Column(nullable = false)
+    private String city;
+
+    @Column(nullable = false)
+    private String country;
+
+    @Column(nullable = false)
+    private LocalDateTime periodStart;
+
+    @Column(nullable = false)
+    private String weatherId;
+
+    @Column(nullable = false)
+    private String main;
+
+    @Column(nullable = false)
+    private String description;
+
+    @Column(nullable = false)
+    private String icon;
+
+    @Column(nullable = false)
+    private Integer dominantCount = 0;
+
+    @Column(nullable = false)
+    private Integer observationCount = 0;
+
+    protected WeatherRollup() {}
+
+    protected WeatherRollup(String city, String country, LocalDateTime periodStart) {
+        this.city = city;
+        this.country = country;
+        this.periodStart = periodStart;
+    }
+
+    public abstract Long getId();
+
+    /**
+     * Count more observations of a condition; it becomes the dominant condition once it has been
+     * seen more often than the current one
+     */
+    public void mergeCondition(String weatherId, String main, String description, String icon, int count) {
+        if (weatherId.equals(this.weatherId)) {
+            dominantCount += count;
+        } else if (count > dominantCount) {
+            this.weatherId = weatherId;
+            this.main = main;
+            this.description = description;
+            this.icon = icon;
+            dominantCount = count;
+        }
+    }
+
+    public void addObservations(int observations) {
+        observationCount += observations;
+    }
+
+    // Getters and Setters
+    public String getCity() {
+        return city;
+    }
+
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    public String getCountry() {
+        return country;
+    }
+
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    public LocalDateTime getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDateTime periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public String getWeatherId() {
+        return weatherId;
+    }
+
+    public void setWeatherId(String weatherId) {
+        this.weatherId = weatherId;
+    }
+
+    public String getMain() {
+        return main;
+    }
+
+    public void setMain(String main) {
+        this.main = main;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getIcon() {
+        return icon;
+    }
+
+    public void setIcon(String icon) {
+        this.icon = icon;
+    }
+
+    public Integer getDominantCount() {
+        return dominantCount;
+    }
+
+    public void setDominantCount(Integer dominantCount) {
+        this.dominantCount = dominantCount;
+    }
+
+    public Integer getObservationCount() {
+        return observationCount;
+    }
+
+    public void setObservationCount(Integer observationCount) {
+        this.observationCount = observationCount;
+    }
+}
@@ -0,0 +1,19 @@
+package com.kg2s.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Read-only projection of a rollup row for history responses
+ */
+public record WeatherRollupView(Long id,
+                                String weatherId,
+                                String main,
+                                String description,
+                                String icon,
+                                String city,
+                                String country,
+                                LocalDateTime periodStart,
+                                Integer observationCount) {
+}
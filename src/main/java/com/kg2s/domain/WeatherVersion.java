@@ -0,0 +1,42 @@
+package com.kg2s.domain;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description HTTP validators of the weather data behind a response. The entity tag is derived
+ * from the observation timestamp, which identifies one upstream fetch of a location; the id is not
+ * used because write-behind only assigns it once the row is flushed, and the tag must not change then.
+ */
+public record WeatherVersion(String etag, LocalDateTime lastModified, LocalDateTime freshUntil) {
+
+    public static WeatherVersion of(WeatherData data, Duration freshness, LocalDateTime now) {
+        // The database keeps microseconds, so cached and reloaded data get the same tag
+        LocalDateTime observed = data.getTimestamp().truncatedTo(ChronoUnit.MICROS);
+        long micros = observed.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + observed.getNano() / 1_000;
+        String tag = "\"" + Long.toString(micros, 36) + "\"";
+        LocalDateTime freshUntil = observed.plus(freshness);
+        // Past freshness the body also carries its age, so it is only weakly equivalent to earlier ones
+        return new WeatherVersion(now.isBefore(freshUntil) ? tag : "W/" + tag, observed, freshUntil);
+    }
+
+    /**
+     * The version of one representation of the data: the format is appended to the tag, so a tag
+     * sent with one format never matches a request for another
+     */
+    public WeatherVersion forFormat(String format) {
+        return new WeatherVersion(etag.substring(0, etag.length() - 1) + "-" + format + "\"", lastModified, freshUntil);
+    }
+
+    /**
+     * How long a client may reuse the response without asking again
+     */
+    public Duration maxAge(LocalDateTime now) {
+        return now.isBefore(freshUntil) ? Duration.between(now, freshUntil).truncatedTo(ChronoUnit.SECONDS)
+            : Duration.ZERO;
+    }
+}
@@ -0,0 +1,15 @@
+package com.kg2s.exception;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Thrown when a known caller is not allowed to do what it asked for
+ */
+public class ForbiddenException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public ForbiddenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,18 @@
+package com.kg2s.exception;
+
+import java.time.Duration;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Thrown without calling OpenWeatherMap when the budget of calls for the account key
+ * is used up, or OpenWeatherMap itself is throttling it
+ */
+public class UpstreamQuotaExceededException extends UpstreamUnavailableException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public UpstreamQuotaExceededException(String message, Duration retryAfter) {
+        super(message, retryAfter);
+    }
+}
@@ -0,0 +1,25 @@
+package com.kg2s.exception;
+
+import java.time.Duration;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Thrown without calling OpenWeatherMap when it is known to be unavailable,
+ * with how long the caller should wait before trying again
+ */
+public class UpstreamUnavailableException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final Duration retryAfter;
+    
+    public UpstreamUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+    
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
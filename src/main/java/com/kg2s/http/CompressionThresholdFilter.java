@@ -0,0 +1,205 @@
+package com.kg2s.http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Makes server.compression.min-response-size apply to the JSON, CBOR and Smile
+ * responses. Tomcat only checks the threshold against a known Content-Length and gzips every
+ * chunked response, while the message converters stream without one. Bodies are held back
+ * until they reach the threshold: a response that ends below it is sent with its
+ * Content-Length and stays uncompressed, larger ones are streamed and compressed as before.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(prefix = "server.compression", name = "enabled", havingValue = "true")
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private ServerProperties serverProperties;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        int threshold = (int) serverProperties.getCompression().getMinResponseSize().toBytes();
+        ThresholdResponse wrapped = new ThresholdResponse(response, threshold);
+        try {
+            chain.doFilter(request, wrapped);
+        } finally {
+            // An async response (NDJSON streaming) keeps writing after this returns, let it through
+            if (request.isAsyncStarted()) {
+                wrapped.release();
+            } else {
+                wrapped.finish();
+            }
+        }
+    }
+
+    private static final class ThresholdResponse extends HttpServletResponseWrapper {
+
+        private final int threshold;
+        private final ByteArrayOutputStream held;
+        private final ThresholdOutputStream outputStream = new ThresholdOutputStream();
+        private PrintWriter writer;
+        // Once released, writes go straight to the real response
+        private boolean released;
+
+        ThresholdResponse(HttpServletResponse response, int threshold) {
+            super(response);
+            this.threshold = threshold;
+            this.held = new ByteArrayOutputStream(Math.min(threshold, 8192));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            if (writer == null) {
+                String encoding = getCharacterEncoding();
+                Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1;
+                writer = new PrintWriter(new OutputStreamWriter(outputStream, charset));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (released) {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            held.reset();
+            super.resetBuffer();
+        }
+
+        @Override
+        public void reset() {
+            held.reset();
+            super.reset();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            held.reset();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            held.reset();
+            super.sendError(sc);
+        }
+
+        /**
+         * Stop holding back: write what is held and pass everything else through
+         */
+        void release() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (!released) {
+                released = true;
+                if (held.size() > 0) {
+                    held.writeTo(getResponse().getOutputStream());
+                    held.reset();
+                }
+            }
+        }
+
+        /**
+         * The body is complete; if it never reached the threshold it goes out with its length
+         */
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (!released && held.size() > 0 && !isCommitted()) {
+                setContentLength(held.size());
+            }
+            release();
+        }
+
+        private final class ThresholdOutputStream extends ServletOutputStream {
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                if (!released && held.size() + len < threshold) {
+                    held.write(b, off, len);
+                    return;
+                }
+                release();
+                getResponse().getOutputStream().write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                // Flushing while held back would commit the response without a length
+                if (released) {
+                    getResponse().getOutputStream().flush();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                if (!released) {
+                    return true;
+                }
+                try {
+                    return getResponse().getOutputStream().isReady();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            /**
+             * Non-blocking writes cannot be held back, what is held is written out first and the
+             * listener is left to the real response
+             */
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                try {
+                    release();
+                    getResponse().getOutputStream().setWriteListener(listener);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+}
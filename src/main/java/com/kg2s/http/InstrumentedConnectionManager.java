@@ -0,0 +1,116 @@
+package com.kg2s.http;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Pooling connection manager that records how long callers wait to lease a
+ * connection (pool saturation) and how long each connection stays leased
+ */
+public class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+    
+    private final Map<ConnectionEndpoint, Long> leasedAt = new ConcurrentHashMap<>();
+    
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+    private final LongAdder totalLeaseWaitNanos = new LongAdder();
+    private final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+    private final LongAdder totalLeaseTimeNanos = new LongAdder();
+    private final AtomicLong maxLeaseTimeNanos = new AtomicLong();
+    
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        long requestedAt = System.nanoTime();
+        LeaseRequest request = super.lease(id, route, requestTimeout, state);
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout)
+                    throws InterruptedException, ExecutionException, TimeoutException {
+                ConnectionEndpoint endpoint = request.get(timeout);
+                long now = System.nanoTime();
+                long waited = now - requestedAt;
+                leases.increment();
+                totalLeaseWaitNanos.add(waited);
+                maxLeaseWaitNanos.accumulateAndGet(waited, Math::max);
+                leasedAt.put(endpoint, now);
+                return endpoint;
+            }
+            
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+    
+    @Override
+    public void release(ConnectionEndpoint endpoint, Object state, TimeValue keepAlive) {
+        Long start = leasedAt.remove(endpoint);
+        if (start != null) {
+            long held = System.nanoTime() - start;
+            releases.increment();
+            totalLeaseTimeNanos.add(held);
+            maxLeaseTimeNanos.accumulateAndGet(held, Math::max);
+        }
+        super.release(endpoint, state, keepAlive);
+    }
+    
+    /**
+     * Leased connections over the pool maximum, 1.0 means every request must wait for a connection
+     */
+    public double getSaturation() {
+        PoolStats stats = getTotalStats();
+        return stats.getMax() == 0 ? 0 : (double) stats.getLeased() / stats.getMax();
+    }
+    
+    public int getLeasedConnections() {
+        return getTotalStats().getLeased();
+    }
+    
+    public int getAvailableConnections() {
+        return getTotalStats().getAvailable();
+    }
+    
+    /**
+     * Callers currently waiting for a connection to be released
+     */
+    public int getPendingLeases() {
+        return getTotalStats().getPending();
+    }
+    
+    public long getLeaseCount() {
+        return leases.sum();
+    }
+    
+    public double getAverageLeaseWaitMillis() {
+        long count = leases.sum();
+        return count == 0 ? 0 : totalLeaseWaitNanos.sum() / 1_000_000.0 / count;
+    }
+    
+    public double getMaxLeaseWaitMillis() {
+        return maxLeaseWaitNanos.get() / 1_000_000.0;
+    }
+    
+    public double getAverageLeaseTimeMillis() {
+        long count = releases.sum();
+        return count == 0 ? 0 : totalLeaseTimeNanos.sum() / 1_000_000.0 / count;
+    }
+    
+    public double getMaxLeaseTimeMillis() {
+        return maxLeaseTimeNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,125 @@
+package com.kg2s.http;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.domain.WeatherInfoResp;
+import com.kg2s.domain.WeatherVersion;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description JSON body of the weather response for one cached WeatherData, serialized once and
+ * then written as is. The apiKey field names the requesting key, so the body is kept as the bytes
+ * before and after its value and each response writes its own key in between.
+ */
+public final class SerializedWeatherInfo {
+
+    // Serialized in place of the key and looked for afterwards; quoted, it cannot occur inside another value
+    private static final String API_KEY_MARKER = "api-key-" + UUID.randomUUID();
+
+    private final WeatherData source;
+    private final WeatherVersion version;
+    private final byte[] prefix;
+    private final byte[] suffix;
+
+    private SerializedWeatherInfo(WeatherData source, WeatherVersion version, byte[] prefix, byte[] suffix) {
+        this.source = source;
+        this.version = version;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    /**
+     * @param response Response for the data, its apiKey is overwritten
+     * @param writer Writer of the JSON message converter's ObjectMapper, so the bytes match what it would write
+     */
+    public static SerializedWeatherInfo of(WeatherData source, WeatherInfoResp response, ObjectWriter writer)
+            throws JsonProcessingException {
+        response.setApiKey(API_KEY_MARKER);
+        byte[] json = writer.writeValueAsBytes(response);
+        byte[] marker = ("\"" + API_KEY_MARKER + "\"").getBytes(StandardCharsets.US_ASCII);
+        int at = indexOf(json, marker);
+        if (at < 0) {
+            throw new IllegalStateException("apiKey not found in serialized weather response");
+        }
+        // Keep the quotes around the value on either side
+        return new SerializedWeatherInfo(source, response.getVersion(),
+            Arrays.copyOfRange(json, 0, at + 1),
+            Arrays.copyOfRange(json, at + marker.length - 1, json.length));
+    }
+
+    /**
+     * The body for one request, with its API key
+     */
+    public Body withApiKey(String apiKey) {
+        return new Body(this, apiKey);
+    }
+
+    /**
+     * The cached data these bytes were written from
+     */
+    public WeatherData getSource() {
+        return source;
+    }
+
+    public WeatherVersion getVersion() {
+        return version;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] target) {
+        outer:
+        for (int i = 0; i <= bytes.length - target.length; i++) {
+            for (int j = 0; j < target.length; j++) {
+                if (bytes[i + j] != target[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Response body written by {@link SerializedWeatherInfoConverter}
+     */
+    public static final class Body {
+        private final SerializedWeatherInfo template;
+        // The key as it goes between the quotes
+        private final byte[] apiKey;
+
+        private Body(SerializedWeatherInfo template, String apiKey) {
+            this.template = template;
+            // A plain key is copied out of the string as is, anything else is escaped
+            this.apiKey = isPlainAscii(apiKey) ? apiKey.getBytes(StandardCharsets.US_ASCII)
+                : JsonStringEncoder.getInstance().quoteAsUTF8(apiKey);
+        }
+
+        public long contentLength() {
+            return template.prefix.length + apiKey.length + template.suffix.length;
+        }
+
+        public void writeTo(OutputStream out) throws IOException {
+            out.write(template.prefix);
+            out.write(apiKey);
+            out.write(template.suffix);
+        }
+
+        private static boolean isPlainAscii(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x20 || c > 0x7e || c == '"' || c == '\\') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
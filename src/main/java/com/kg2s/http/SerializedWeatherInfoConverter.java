@@ -0,0 +1,48 @@
+package com.kg2s.http;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Writes a pre-serialized weather response as application/json, with its
+ * Content-Length, straight from the kept bytes. Write-only.
+ */
+public class SerializedWeatherInfoConverter extends AbstractHttpMessageConverter<SerializedWeatherInfo.Body> {
+
+    public SerializedWeatherInfoConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SerializedWeatherInfo.Body.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected SerializedWeatherInfo.Body readInternal(Class<? extends SerializedWeatherInfo.Body> clazz,
+                                                      HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Serialized weather responses are write-only", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(SerializedWeatherInfo.Body body, MediaType contentType) {
+        return body.contentLength();
+    }
+
+    @Override
+    protected void writeInternal(SerializedWeatherInfo.Body body, HttpOutputMessage outputMessage) throws IOException {
+        body.writeTo(outputMessage.getBody());
+    }
+}
@@ -0,0 +1,219 @@
+package com.kg2s.location;
+
+import com.kg2s.config.WeatherApiConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description City list held in memory, resolving a (city, country) as typed by a client to one
+ * canonical location, so that every spelling of a city shares its cache entry, its rows and its
+ * upstream calls. Names are compared folded: case, diacritics, punctuation and runs of whitespace
+ * do not matter, and a city may list the other names it is known by. The names are kept as one
+ * sorted array searched by bisection next to flat arrays of the cities, so even the full
+ * OpenWeatherMap list costs no map entry per name.
+ */
+@Component
+public class LocationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationIndex.class);
+
+    private static final char KEY_SEPARATOR = '|';
+
+    private final Map<String, String> countryAliases = new HashMap<>();
+
+    // Cities in list order
+    private final long[] ids;
+    private final String[] names;
+    private final String[] countries;
+
+    // Folded "name|COUNTRY" of every name and other name, sorted, and the city it belongs to
+    private final String[] keys;
+    private final int[] cities;
+
+    @Autowired
+    public LocationIndex(WeatherApiConfig weatherApiConfig, ResourceLoader resourceLoader) throws IOException {
+        this(new InputStreamReader(resourceLoader.getResource(weatherApiConfig.getLocations().getCityList())
+                .getInputStream(), StandardCharsets.UTF_8),
+            weatherApiConfig.getLocations().getCountryAliases());
+    }
+
+    /**
+     * @param cityList Lines of id,name,country and optionally other names separated by |; blank
+     *                 lines and lines starting with # are skipped. The reader is closed.
+     * @param countryAliases Country codes clients may use for another, e.g. UK for GB
+     */
+    public LocationIndex(Reader cityList, Map<String, String> countryAliases) throws IOException {
+        countryAliases.forEach((alias, code) -> this.countryAliases.put(foldCountry(alias), foldCountry(code)));
+
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(cityList)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] row = line.split(",", 4);
+                if (row.length < 3) {
+                    throw new IOException("Malformed city list line: " + line);
+                }
+                rows.add(row);
+            }
+        }
+
+        ids = new long[rows.size()];
+        names = new String[rows.size()];
+        countries = new String[rows.size()];
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            String[] row = rows.get(i);
+            ids[i] = Long.parseLong(row[0].trim());
+            names[i] = row[1].trim();
+            countries[i] = foldCountry(row[2]);
+            entries.add(new Entry(key(fold(names[i]), countries[i]), i));
+            if (row.length > 3) {
+                for (String otherName : row[3].split("\\|")) {
+                    if (!otherName.isBlank()) {
+                        entries.add(new Entry(key(fold(otherName), countries[i]), i));
+                    }
+                }
+            }
+        }
+
+        // Sorted by key, then list order, so the first of several cities with the same key is kept
+        entries.sort(Comparator.comparing(Entry::key).thenComparingInt(Entry::city));
+        List<Entry> distinct = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            if (distinct.isEmpty() || !distinct.get(distinct.size() - 1).key().equals(entry.key())) {
+                distinct.add(entry);
+            }
+        }
+        keys = new String[distinct.size()];
+        cities = new int[distinct.size()];
+        for (int i = 0; i < distinct.size(); i++) {
+            keys[i] = distinct.get(i).key();
+            cities[i] = distinct.get(i).city();
+        }
+        logger.info("Location index loaded: {} cities under {} names", ids.length, keys.length);
+    }
+
+    /**
+     * Resolve a location to the listed city it names, or to its folded form when no listed city
+     * matches. Resolving the city and country of a result gives the same result again.
+     */
+    public ResolvedLocation resolve(String city, String country) {
+        if (city == null || city.isBlank() || country == null || country.isBlank()) {
+            throw new IllegalArgumentException("City and country are required");
+        }
+        String countryCode = foldCountry(country);
+        countryCode = countryAliases.getOrDefault(countryCode, countryCode);
+        String name = fold(city);
+
+        int found = Arrays.binarySearch(keys, key(name, countryCode));
+        if (found >= 0) {
+            int at = cities[found];
+            return new ResolvedLocation(ids[at], names[at], countries[at]);
+        }
+        // Nothing left of a name made of punctuation alone, leave it for the upstream to refuse
+        return new ResolvedLocation(0, name.isEmpty() ? city.trim() : capitalize(name), countryCode);
+    }
+
+    /**
+     * OpenWeatherMap city id of a location already resolved, 0 when it is not listed
+     */
+    public long cityId(String city, String country) {
+        int found = Arrays.binarySearch(keys, key(fold(city), foldCountry(country)));
+        return found >= 0 ? ids[cities[found]] : 0;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * Lower case letters and digits without diacritics, words separated by single spaces
+     */
+    static String fold(String value) {
+        String decomposed = isAscii(value) ? value : Normalizer.normalize(value, Normalizer.Form.NFKD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean separated = false;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (separated && !folded.isEmpty()) {
+                    folded.append(' ');
+                }
+                separated = false;
+                appendLowerCase(folded, c);
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                separated = true;
+            }
+        }
+        return folded.toString();
+    }
+
+    private static String foldCountry(String country) {
+        return fold(country).replace(" ", "").toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Letters NFKD does not take apart into a base letter and a mark
+     */
+    private static void appendLowerCase(StringBuilder folded, char c) {
+        switch (c) {
+            case 'ß' -> folded.append("ss");
+            case 'Æ', 'æ' -> folded.append("ae");
+            case 'Œ', 'œ' -> folded.append("oe");
+            case 'Ø', 'ø' -> folded.append('o');
+            case 'Ł', 'ł' -> folded.append('l');
+            case 'Đ', 'đ' -> folded.append('d');
+            case 'Þ', 'þ' -> folded.append("th");
+            case 'ı' -> folded.append('i');
+            default -> folded.append(Character.toLowerCase(c));
+        }
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String capitalize(String folded) {
+        StringBuilder name = new StringBuilder(folded);
+        for (int i = 0; i < name.length(); i++) {
+            if (i == 0 || name.charAt(i - 1) == ' ') {
+                name.setCharAt(i, Character.toTitleCase(name.charAt(i)));
+            }
+        }
+        return name.toString();
+    }
+
+    private static String key(String name, String country) {
+        return name + KEY_SEPARATOR + country;
+    }
+
+    private record Entry(String key, int city) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.kg2s.location;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Canonical form of a (city, country) given by a client: the city's name and country
+ * code as listed, with its OpenWeatherMap city id, or the folded name for cities not in the list
+ */
+public record ResolvedLocation(long cityId, String city, String country) {
+
+    /**
+     * Whether the location was found in the city list and has an OpenWeatherMap city id
+     */
+    public boolean isKnown() {
+        return cityId > 0;
+    }
+}
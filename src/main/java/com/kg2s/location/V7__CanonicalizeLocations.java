@@ -0,0 +1,202 @@
+package com.kg2s.location;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Moves rows stored before V6 under the (city, country) a client typed to the canonical
+ * location LocationIndex resolves it to, so that the history of a city is found under one name and
+ * rows of listed cities get their city id. Rollups of two spellings for the same period are merged
+ * the way HistoryCompactor merges them. Spring Boot hands this bean to Flyway, so it resolves with
+ * the configured city list and country aliases.
+ */
+@Component
+public class V7__CanonicalizeLocations extends BaseJavaMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(V7__CanonicalizeLocations.class);
+
+    private static final String[] ROLLUP_TABLES = {"weather_rollup_hourly", "weather_rollup_daily"};
+
+    private final LocationIndex locationIndex;
+
+    @Autowired
+    public V7__CanonicalizeLocations(LocationIndex locationIndex) {
+        this.locationIndex = locationIndex;
+    }
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        int moved = canonicalizeWeatherData(connection);
+        for (String table : ROLLUP_TABLES) {
+            moved += canonicalizeRollups(connection, table);
+        }
+        logger.info("Moved {} rows to their canonical location", moved);
+    }
+
+    private int canonicalizeWeatherData(Connection connection) throws SQLException {
+        int moved = 0;
+        try (PreparedStatement update = connection.prepareStatement(
+                "UPDATE weather_data SET city = ?, country = ?, city_id = ? WHERE city = ? AND country = ?")) {
+            for (Location location : locations(connection, "weather_data")) {
+                ResolvedLocation resolved = resolve(location);
+                if (resolved == null) {
+                    continue;
+                }
+                update.setString(1, resolved.city());
+                update.setString(2, resolved.country());
+                if (resolved.isKnown()) {
+                    update.setLong(3, resolved.cityId());
+                } else {
+                    update.setNull(3, Types.BIGINT);
+                }
+                update.setString(4, location.city());
+                update.setString(5, location.country());
+                moved += update.executeUpdate();
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Rename the rollups of each spelling; where the canonical location already has a rollup for
+     * the period, the spelling's rollup is merged into it and deleted
+     */
+    private int canonicalizeRollups(Connection connection, String table) throws SQLException {
+        int moved = 0;
+        for (Location location : locations(connection, table)) {
+            ResolvedLocation resolved = resolve(location);
+            if (resolved == null || (resolved.city().equals(location.city())
+                    && resolved.country().equals(location.country()))) {
+                continue;
+            }
+            for (Rollup rollup : rollups(connection, table, location)) {
+                Rollup target = rollup(connection, table, resolved, rollup.periodStart());
+                if (target == null) {
+                    try (PreparedStatement update = connection.prepareStatement(
+                            "UPDATE " + table + " SET city = ?, country = ? WHERE id = ?")) {
+                        update.setString(1, resolved.city());
+                        update.setString(2, resolved.country());
+                        update.setLong(3, rollup.id());
+                        update.executeUpdate();
+                    }
+                } else {
+                    merge(connection, table, target, rollup);
+                }
+                moved++;
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Same rule as WeatherRollup.mergeCondition: the other rollup's condition adds to the dominant
+     * one, or replaces it when it was seen more often
+     */
+    private void merge(Connection connection, String table, Rollup target, Rollup other) throws SQLException {
+        Rollup dominant = target;
+        int dominantCount = target.dominantCount();
+        if (other.weatherId().equals(target.weatherId())) {
+            dominantCount += other.dominantCount();
+        } else if (other.dominantCount() > target.dominantCount()) {
+            dominant = other;
+            dominantCount = other.dominantCount();
+        }
+        try (PreparedStatement update = connection.prepareStatement("UPDATE " + table
+                + " SET weather_id = ?, main = ?, description = ?, icon = ?, dominant_count = ?,"
+                + " observation_count = ? WHERE id = ?");
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE id = ?")) {
+            update.setString(1, dominant.weatherId());
+            update.setString(2, dominant.main());
+            update.setString(3, dominant.description());
+            update.setString(4, dominant.icon());
+            update.setInt(5, dominantCount);
+            update.setInt(6, target.observationCount() + other.observationCount());
+            update.setLong(7, target.id());
+            update.executeUpdate();
+            delete.setLong(1, other.id());
+            delete.executeUpdate();
+        }
+    }
+
+    /**
+     * The canonical location, or null for a location that cannot be resolved and is left as stored
+     */
+    private ResolvedLocation resolve(Location location) {
+        try {
+            return locationIndex.resolve(location.city(), location.country());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Left rows of {}/{} as stored: {}", location.city(), location.country(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<Location> locations(Connection connection, String table) throws SQLException {
+        List<Location> locations = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT DISTINCT city, country FROM " + table)) {
+            while (rows.next()) {
+                locations.add(new Location(rows.getString(1), rows.getString(2)));
+            }
+        }
+        return locations;
+    }
+
+    private static List<Rollup> rollups(Connection connection, String table, Location location) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT " + Rollup.COLUMNS + " FROM " + table
+                + " WHERE city = ? AND country = ?")) {
+            select.setString(1, location.city());
+            select.setString(2, location.country());
+            return readRollups(select);
+        }
+    }
+
+    private static Rollup rollup(Connection connection, String table, ResolvedLocation location,
+                                 Timestamp periodStart) throws SQLException {
+        try (PreparedStatement select = connection.prepareStatement("SELECT " + Rollup.COLUMNS + " FROM " + table
+                + " WHERE city = ? AND country = ? AND period_start = ?")) {
+            select.setString(1, location.city());
+            select.setString(2, location.country());
+            select.setTimestamp(3, periodStart);
+            List<Rollup> found = readRollups(select);
+            return found.isEmpty() ? null : found.get(0);
+        }
+    }
+
+    private static List<Rollup> readRollups(PreparedStatement select) throws SQLException {
+        List<Rollup> rollups = new ArrayList<>();
+        try (ResultSet rows = select.executeQuery()) {
+            while (rows.next()) {
+                rollups.add(new Rollup(rows.getLong(1), rows.getTimestamp(2), rows.getString(3), rows.getString(4),
+                    rows.getString(5), rows.getString(6), rows.getInt(7), rows.getInt(8)));
+            }
+        }
+        return rollups;
+    }
+
+    private record Location(String city, String country) {
+    }
+
+    private record Rollup(long id, Timestamp periodStart, String weatherId, String main, String description,
+                          String icon, int dominantCount, int observationCount) {
+
+        static final String COLUMNS =
+            "id, period_start, weather_id, main, description, icon, dominant_count, observation_count";
+    }
+}
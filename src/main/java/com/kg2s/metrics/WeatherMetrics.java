@@ -0,0 +1,81 @@
+package com.kg2s.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Timers for the stages of a weather request, tagged with stage and outcome.
+ * Every (stage, outcome) timer is registered up front and looked up by ordinal, so recording
+ * is a clock read and a histogram bucket increment, without allocating on the request path.
+ * Buckets span 10us to 30s; they can be tuned with the management.metrics.distribution
+ * properties of weather.request.stage.
+ */
+public class WeatherMetrics {
+
+    public static final String STAGE_TIMER = "weather.request.stage";
+
+    public enum Outcome {
+        SUCCESS, REJECTED, ERROR, HIT, STALE, MISS
+    }
+
+    public enum Stage {
+        KEY_VALIDATION(Outcome.SUCCESS, Outcome.REJECTED),
+        // Check and consume the hourly allowance: the usage update is part of the same atomic step
+        RATE_LIMIT(Outcome.SUCCESS, Outcome.REJECTED),
+        CACHE(Outcome.HIT, Outcome.STALE, Outcome.MISS),
+        DATABASE(Outcome.HIT, Outcome.STALE, Outcome.MISS),
+        // REJECTED is a call refused by the open circuit
+        UPSTREAM(Outcome.SUCCESS, Outcome.ERROR, Outcome.REJECTED),
+        // Cache update and hand-off to the write-behind queue
+        SAVE(Outcome.SUCCESS, Outcome.ERROR);
+
+        private final Set<Outcome> outcomes;
+
+        Stage(Outcome first, Outcome... rest) {
+            this.outcomes = EnumSet.of(first, rest);
+        }
+    }
+
+    private final Timer[][] timers = new Timer[Stage.values().length][Outcome.values().length];
+    private final Counter rateLimitRejections;
+
+    public WeatherMetrics(MeterRegistry registry) {
+        for (Stage stage : Stage.values()) {
+            for (Outcome outcome : stage.outcomes) {
+                timers[stage.ordinal()][outcome.ordinal()] = Timer.builder(STAGE_TIMER)
+                    .description("Time spent in one stage of a weather request")
+                    .tag("stage", stage.name().toLowerCase())
+                    .tag("outcome", outcome.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(10_000))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(registry);
+            }
+        }
+        rateLimitRejections = Counter.builder("weather.ratelimit.rejections")
+            .description("Requests refused because the API key used up its hourly allowance")
+            .register(registry);
+    }
+
+    /**
+     * Record a stage that started at startNanos (System.nanoTime()) and ended now
+     */
+    public void record(Stage stage, Outcome outcome, long startNanos) {
+        Timer timer = timers[stage.ordinal()][outcome.ordinal()];
+        if (timer == null) {
+            throw new IllegalArgumentException(stage + " has no outcome " + outcome);
+        }
+        timer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        if (stage == Stage.RATE_LIMIT && outcome == Outcome.REJECTED) {
+            rateLimitRejections.increment();
+        }
+    }
+}
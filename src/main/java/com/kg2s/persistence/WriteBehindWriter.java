@@ -0,0 +1,349 @@
+package com.kg2s.persistence;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.ApiKeyUsage;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.repository.ApiKeyUsageRepository;
+import com.kg2s.repository.WeatherDataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Write-behind pipeline for WeatherData observations and ApiKeyUsage snapshots.
+ * Entities are queued by the caller and flushed by a background thread in batched inserts,
+ * either when a batch is full or when the flush interval elapses. A full queue pushes back
+ * on the caller, which then writes synchronously; the queue is drained on shutdown.
+ * A failed batch is retried with backoff, then written one entity at a time so that only
+ * the entities that cannot be written are dropped.
+ */
+@Component
+public class WriteBehindWriter implements SmartLifecycle {
+    
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindWriter.class);
+    
+    private final WeatherDataRepository weatherDataRepository;
+    private final ApiKeyUsageRepository apiKeyUsageRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final WeatherApiConfig.WriteBehind config;
+    private final BlockingQueue<Object> queue;
+    private final boolean virtualThreads;
+    
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedEntities = new LongAdder();
+    private final LongAdder failedEntities = new LongAdder();
+    private final LongAdder mergedEntities = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder synchronousWrites = new LongAdder();
+    private final LongAdder totalFlushNanos = new LongAdder();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    
+    private volatile boolean running;
+    private Thread flusher;
+    
+    @Autowired
+    public WriteBehindWriter(WeatherDataRepository weatherDataRepository,
+                             ApiKeyUsageRepository apiKeyUsageRepository,
+                             PlatformTransactionManager transactionManager,
+                             WeatherApiConfig weatherApiConfig,
+                             Environment environment) {
+        this.weatherDataRepository = weatherDataRepository;
+        this.apiKeyUsageRepository = apiKeyUsageRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.config = weatherApiConfig.getWriteBehind();
+        this.queue = new ArrayBlockingQueue<>(config.getQueueCapacity());
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+    }
+    
+    public void enqueue(WeatherData weatherData) {
+        offer(weatherData);
+    }
+    
+    public void enqueue(List<ApiKeyUsage> usages) {
+        usages.forEach(this::offer);
+    }
+    
+    private void offer(Object entity) {
+        if (running && config.isEnabled()) {
+            try {
+                if (queue.offer(entity, config.getOfferTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Queue is full, disabled or shut down: the caller pays for its own write
+        synchronousWrites.increment();
+        flush(List.of(entity));
+    }
+    
+    private void run() {
+        List<Object> batch = new ArrayList<>(config.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * Wait for the first entity, then keep collecting until the batch is full or the flush interval elapsed
+     */
+    private void collect(List<Object> batch) throws InterruptedException {
+        long intervalNanos = config.getFlushInterval().toNanos();
+        Object first = queue.poll(intervalNanos, TimeUnit.NANOSECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + intervalNanos;
+        while (batch.size() < config.getBatchSize()) {
+            queue.drainTo(batch, config.getBatchSize() - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= config.getBatchSize() || remaining <= 0) {
+                return;
+            }
+            Object next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+    
+    private void flush(List<Object> batch) {
+        List<WeatherData> weatherData = new ArrayList<>();
+        Map<String, ApiKeyUsage> usages = new LinkedHashMap<>();
+        for (Object entity : batch) {
+            if (entity instanceof WeatherData data) {
+                weatherData.add(data);
+            } else if (entity instanceof ApiKeyUsage usage) {
+                // Only the latest snapshot of each key is worth writing
+                usages.merge(usage.getApiKey(), usage, (current, candidate) ->
+                    candidate.getLastRequestTime().isBefore(current.getLastRequestTime()) ? current : candidate);
+            }
+        }
+        
+        mergedEntities.add(batch.size() - weatherData.size() - usages.size());
+        
+        long start = System.nanoTime();
+        if (writeWithRetries(weatherData, usages)) {
+            flushedEntities.add(weatherData.size() + usages.size());
+        } else {
+            writeOneByOne(weatherData, usages);
+        }
+        
+        long elapsed = System.nanoTime() - start;
+        flushes.increment();
+        totalFlushNanos.add(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+        maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+    }
+    
+    /**
+     * Write the batch in one transaction, retried with backoff while it fails
+     *
+     * @return Whether the batch was written
+     */
+    private boolean writeWithRetries(List<WeatherData> weatherData, Map<String, ApiKeyUsage> usages) {
+        long backoffMillis = config.getRetryBackoff().toMillis();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                write(weatherData, usages);
+                return true;
+            } catch (RuntimeException e) {
+                if (attempt >= config.getMaxRetries()) {
+                    logger.warn("Failed to flush {} queued entities after {} retries, writing them one by one: {}",
+                        weatherData.size() + usages.size(), attempt, e.getMessage());
+                    return false;
+                }
+                logger.warn("Failed to flush {} queued entities, retrying in {}ms: {}",
+                    weatherData.size() + usages.size(), backoffMillis, e.getMessage());
+            }
+            retries.increment();
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            backoffMillis *= 2;
+        }
+    }
+    
+    /**
+     * Last resort after the batch kept failing: each entity in its own transaction, so one
+     * that cannot be written does not take the others down with it
+     */
+    private void writeOneByOne(List<WeatherData> weatherData, Map<String, ApiKeyUsage> usages) {
+        for (WeatherData data : weatherData) {
+            try {
+                write(List.of(data), Map.of());
+                flushedEntities.increment();
+            } catch (RuntimeException e) {
+                failedEntities.increment();
+                logger.error("Dropped weather data for {}/{} observed at {}: {}", data.getCity(), data.getCountry(),
+                    data.getTimestamp(), e.getMessage());
+            }
+        }
+        usages.forEach((apiKey, usage) -> {
+            try {
+                write(List.of(), Map.of(apiKey, usage));
+                flushedEntities.increment();
+            } catch (RuntimeException e) {
+                failedEntities.increment();
+                logger.error("Dropped usage snapshot of API key {}: {}", apiKey, e.getMessage());
+            }
+        });
+    }
+    
+    private void write(List<WeatherData> weatherData, Map<String, ApiKeyUsage> usages) {
+        // Ids assigned to new entities inside a transaction that rolled back name rows that do not exist
+        List<WeatherData> newWeatherData = weatherData.stream().filter(data -> data.getId() == null).toList();
+        List<ApiKeyUsage> newUsages = usages.values().stream().filter(usage -> usage.getId() == null).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!weatherData.isEmpty()) {
+                    weatherDataRepository.saveAll(weatherData);
+                }
+                if (!usages.isEmpty()) {
+                    apiKeyUsageRepository.saveAll(mergeWithExisting(usages));
+                }
+            });
+        } catch (RuntimeException e) {
+            newWeatherData.forEach(data -> data.setId(null));
+            newUsages.forEach(usage -> usage.setId(null));
+            throw e;
+        }
+    }
+    
+    /**
+     * Apply usage snapshots onto the existing rows so each API key keeps a single row
+     */
+    private List<ApiKeyUsage> mergeWithExisting(Map<String, ApiKeyUsage> usages) {
+        Map<String, ApiKeyUsage> existing = apiKeyUsageRepository.findByApiKeyIn(usages.keySet()).stream()
+            .collect(Collectors.toMap(ApiKeyUsage::getApiKey, Function.identity()));
+        
+        return usages.values().stream().map(usage -> {
+            ApiKeyUsage row = existing.get(usage.getApiKey());
+            if (row == null) {
+                return usage;
+            }
+            row.setRequestCount(usage.getRequestCount());
+            row.setHourStart(usage.getHourStart());
+            row.setLastRequestTime(usage.getLastRequestTime());
+            return row;
+        }).collect(Collectors.toList());
+    }
+    
+    @Override
+    public void start() {
+        running = true;
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon(true);
+        flusher = builder.name("weather-write-behind").start(this::run);
+    }
+    
+    @Override
+    public void stop() {
+        // The flusher notices within one flush interval and drains the queue before exiting;
+        // it is not interrupted so that an in-progress JDBC batch is never cut short
+        running = false;
+        try {
+            flusher.join(config.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!queue.isEmpty()) {
+            logger.warn("Write-behind queue still holds {} entities after shutdown timeout", queue.size());
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    public int getQueueDepth() {
+        return queue.size();
+    }
+    
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+    
+    public long getFlushedEntityCount() {
+        return flushedEntities.sum();
+    }
+    
+    public long getFailedEntityCount() {
+        return failedEntities.sum();
+    }
+    
+    /**
+     * Number of usage snapshots not written because a later snapshot of the same key was in the batch
+     */
+    public long getMergedEntityCount() {
+        return mergedEntities.sum();
+    }
+    
+    /**
+     * Number of times a failed batch was written again
+     */
+    public long getRetryCount() {
+        return retries.sum();
+    }
+    
+    /**
+     * Number of writes done on the caller thread because the queue was full or the writer stopped
+     */
+    public long getSynchronousWriteCount() {
+        return synchronousWrites.sum();
+    }
+    
+    public double getAverageBatchSize() {
+        long count = flushes.sum();
+        return count == 0 ? 0 : (double) (flushedEntities.sum() + failedEntities.sum() + mergedEntities.sum()) / count;
+    }
+    
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+    
+    public double getAverageFlushMillis() {
+        long count = flushes.sum();
+        return count == 0 ? 0 : totalFlushNanos.sum() / 1_000_000.0 / count;
+    }
+    
+    public double getMaxFlushMillis() {
+        return maxFlushNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.kg2s.ratelimit;
+
+import com.kg2s.domain.ApiKeyUsage;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Shared per-key state handling and usage snapshots for rate limiter engines
+ */
+public abstract class AbstractRateLimiter<S extends AbstractRateLimiter.KeyState> implements RateLimiter {
+    
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    
+    private final ConcurrentMap<String, S> states = new ConcurrentHashMap<>();
+    
+    protected final Clock clock;
+    protected final Quota defaultQuota;
+    
+    protected AbstractRateLimiter(Clock clock, int requestsPerHour) {
+        this.clock = clock;
+        this.defaultQuota = Quota.perHour(requestsPerHour);
+    }
+    
+    /**
+     * Per-key state; every engine keeps at least the usage of the current hour
+     */
+    protected static class KeyState {
+        final HourlyCounter usage = new HourlyCounter();
+    }
+    
+    protected abstract S newState(Quota quota);
+    
+    /**
+     * Engine specific decision; when granting, it must consume the permits atomically
+     * and record them in the hourly usage of the key
+     */
+    protected abstract boolean tryAcquire(S state, int permits, Quota quota, long nowMillis);
+    
+    @Override
+    public boolean tryAcquire(String apiKey, int permits, Quota quota) {
+        if (permits <= 0) {
+            return true;
+        }
+        // Plain get first: computeIfAbsent would allocate its lambda on every call
+        S state = states.get(apiKey);
+        if (state == null) {
+            state = states.computeIfAbsent(apiKey, key -> newState(quota));
+        }
+        return tryAcquire(state, permits, quota, clock.millis());
+    }
+    
+    @Override
+    public boolean tryAcquire(String apiKey, int permits) {
+        return tryAcquire(apiKey, permits, defaultQuota);
+    }
+    
+    @Override
+    public List<ApiKeyUsage> snapshot() {
+        long nowMillis = clock.millis();
+        long hour = currentHour(nowMillis);
+        List<ApiKeyUsage> usages = new ArrayList<>(states.size());
+        states.forEach((apiKey, state) -> {
+            ApiKeyUsage usage = new ApiKeyUsage(apiKey);
+            usage.setRequestCount(state.usage.count(hour));
+            usage.setHourStart(toLocalDateTime(hour * HOUR_MILLIS));
+            usage.setLastRequestTime(toLocalDateTime(state.usage.lastRequestMillis()));
+            usages.add(usage);
+        });
+        return usages;
+    }
+    
+    @Override
+    public void restore(ApiKeyUsage usage) {
+        long hourStart = usage.getHourStart().atZone(clock.getZone()).toInstant().toEpochMilli();
+        long lastRequest = usage.getLastRequestTime().atZone(clock.getZone()).toInstant().toEpochMilli();
+        S state = states.computeIfAbsent(usage.getApiKey(), key -> newState(defaultQuota));
+        state.usage.set(currentHour(hourStart), usage.getRequestCount(), lastRequest);
+        restore(state, usage.getRequestCount(), clock.millis());
+    }
+    
+    /**
+     * Engine specific part of {@link #restore(ApiKeyUsage)}
+     */
+    protected void restore(S state, int usedThisHour, long nowMillis) {
+    }
+    
+    protected static long currentHour(long epochMillis) {
+        return epochMillis / HOUR_MILLIS;
+    }
+    
+    private LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), clock.getZone());
+    }
+}
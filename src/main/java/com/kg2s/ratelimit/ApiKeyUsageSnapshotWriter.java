@@ -0,0 +1,86 @@
+package com.kg2s.ratelimit;
+
+import com.kg2s.domain.ApiKeyUsage;
+import com.kg2s.persistence.WriteBehindWriter;
+import com.kg2s.repository.ApiKeyUsageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Persists the in-memory rate limiter state as ApiKeyUsage snapshots, off the request path
+ */
+@Component
+public class ApiKeyUsageSnapshotWriter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(ApiKeyUsageSnapshotWriter.class);
+    
+    @Autowired
+    private RateLimiter rateLimiter;
+    
+    @Autowired
+    private ApiKeyUsageRepository apiKeyUsageRepository;
+    
+    @Autowired
+    private WriteBehindWriter writeBehindWriter;
+    
+    /**
+     * Last request time of every API key as of its latest persisted snapshot
+     */
+    private final Map<String, LocalDateTime> persistedLastRequestTimes = new ConcurrentHashMap<>();
+    
+    private final Lock snapshotLock = new ReentrantLock();
+    
+    @PostConstruct
+    public void restore() {
+        List<ApiKeyUsage> usages = apiKeyUsageRepository.findAll();
+        for (ApiKeyUsage usage : usages) {
+            rateLimiter.restore(usage);
+            persistedLastRequestTimes.put(usage.getApiKey(), usage.getLastRequestTime());
+        }
+        logger.info("Restored rate limiter state for {} API keys", usages.size());
+    }
+    
+    @Scheduled(fixedDelayString = "#{@weatherApiConfig.rateLimit.snapshotInterval.toMillis()}")
+    public void persistSnapshot() {
+        // The enqueue may write synchronously, so avoid synchronized to not pin a virtual thread
+        snapshotLock.lock();
+        try {
+            List<ApiKeyUsage> changed = rateLimiter.snapshot().stream()
+                .filter(usage -> !usage.getLastRequestTime().equals(persistedLastRequestTimes.get(usage.getApiKey())))
+                .collect(Collectors.toList());
+            if (changed.isEmpty()) {
+                return;
+            }
+            
+            writeBehindWriter.enqueue(changed);
+            changed.forEach(usage -> persistedLastRequestTimes.put(usage.getApiKey(), usage.getLastRequestTime()));
+            logger.debug("Queued rate limiter snapshot for {} API keys", changed.size());
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+    
+    @PreDestroy
+    public void flush() {
+        try {
+            persistSnapshot();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to persist rate limiter snapshot on shutdown: {}", e.getMessage());
+        }
+    }
+}
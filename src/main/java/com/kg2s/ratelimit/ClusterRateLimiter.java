@@ -0,0 +1,177 @@
+package com.kg2s.ratelimit;
+
+import com.kg2s.domain.ApiKeyUsage;
+import com.kg2s.repository.RateLimitWindowRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Hourly window rate limiter shared by all instances through the rate_limit_window
+ * table. Permits are taken from the table with one conditional UPDATE, in leased batches: what is
+ * not needed right away is kept by the instance and handed out locally until the hour ends.
+ * Instances never grant more than the limit between them; tokens leased by an instance that
+ * gets no more requests for the key are lost for the rest of the hour, so a key may get a few
+ * less. Leases are capped at 1/20 of the limit to keep that small.
+ */
+public class ClusterRateLimiter implements RateLimiter {
+
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long TOKENS_MASK = 0xFFFFFFFFL;
+    private static final int LEASE_DIVISOR = 20;
+
+    private final Clock clock;
+    private final RateLimitWindowRepository repository;
+    private final Quota defaultQuota;
+    private final int leaseSize;
+
+    private final ConcurrentMap<String, KeyLease> leases = new ConcurrentHashMap<>();
+
+    private final LongAdder localGrants = new LongAdder();
+    private final LongAdder databaseCalls = new LongAdder();
+
+    /**
+     * Tokens leased for one key, with the hour they belong to packed into the same long
+     */
+    private static class KeyLease {
+        final AtomicLong tokens = new AtomicLong();
+        // Hour in which the table refused the key, and the limit it was refused at
+        volatile long exhaustedHour = -1;
+        volatile int exhaustedLimit;
+        final Lock leaseLock = new ReentrantLock();
+    }
+
+    /**
+     * @param leaseSize Most permits taken from the table at once
+     */
+    public ClusterRateLimiter(Clock clock, RateLimitWindowRepository repository, int requestsPerHour,
+                              int leaseSize) {
+        this.clock = clock;
+        this.repository = repository;
+        this.defaultQuota = Quota.perHour(requestsPerHour);
+        this.leaseSize = Math.max(1, leaseSize);
+    }
+
+    @Override
+    public boolean tryAcquire(String apiKey, int permits, Quota quota) {
+        if (permits <= 0) {
+            return true;
+        }
+        long hour = clock.millis() / HOUR_MILLIS;
+        KeyLease lease = leases.get(apiKey);
+        if (lease == null) {
+            lease = leases.computeIfAbsent(apiKey, key -> new KeyLease());
+        }
+        if (takeLocal(lease, hour, permits)) {
+            return true;
+        }
+        if (isExhausted(lease, hour, quota)) {
+            return false;
+        }
+
+        // One lease per key and instance at a time, the others wait for its tokens
+        lease.leaseLock.lock();
+        try {
+            if (takeLocal(lease, hour, permits)) {
+                return true;
+            }
+            if (isExhausted(lease, hour, quota)) {
+                return false;
+            }
+            int limit = quota.requestsPerHour();
+            int batch = Math.min(leaseSize, limit / LEASE_DIVISOR);
+            if (batch > permits && consume(apiKey, hour, batch, limit)) {
+                lease.tokens.set(pack(hour, batch - permits));
+                return true;
+            }
+            if (consume(apiKey, hour, permits, limit)) {
+                return true;
+            }
+            // Nothing left this hour; not asked again unless the key's limit goes up
+            lease.exhaustedLimit = limit;
+            lease.exhaustedHour = hour;
+            return false;
+        } finally {
+            lease.leaseLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean tryAcquire(String apiKey, int permits) {
+        return tryAcquire(apiKey, permits, defaultQuota);
+    }
+
+    /**
+     * Usage lives in rate_limit_window, shared by all instances; there is nothing to snapshot
+     */
+    @Override
+    public List<ApiKeyUsage> snapshot() {
+        return List.of();
+    }
+
+    @Override
+    public void restore(ApiKeyUsage usage) {
+    }
+
+    private boolean takeLocal(KeyLease lease, long hour, int permits) {
+        while (true) {
+            long current = lease.tokens.get();
+            long tokens = current >>> 32 == hour ? current & TOKENS_MASK : 0;
+            if (tokens < permits) {
+                return false;
+            }
+            if (lease.tokens.compareAndSet(current, pack(hour, tokens - permits))) {
+                localGrants.increment();
+                return true;
+            }
+        }
+    }
+
+    private static boolean isExhausted(KeyLease lease, long hour, Quota quota) {
+        return lease.exhaustedHour == hour && quota.requestsPerHour() <= lease.exhaustedLimit;
+    }
+
+    private boolean consume(String apiKey, long hour, int permits, int limit) {
+        databaseCalls.increment();
+        if (repository.tryConsume(apiKey, hour, permits, limit) == 1) {
+            return true;
+        }
+        if (permits > limit || repository.existsById(apiKey)) {
+            return false;
+        }
+        try {
+            return repository.insert(apiKey, hour, permits) == 1;
+        } catch (DataIntegrityViolationException e) {
+            // Another instance created the row meanwhile
+            return repository.tryConsume(apiKey, hour, permits, limit) == 1;
+        }
+    }
+
+    private static long pack(long hour, long tokens) {
+        return hour << 32 | tokens;
+    }
+
+    /**
+     * Requests granted from tokens already leased by this instance
+     */
+    public long getLocalGrantCount() {
+        return localGrants.sum();
+    }
+
+    /**
+     * Conditional updates sent to the shared table
+     */
+    public long getDatabaseCallCount() {
+        return databaseCalls.sum();
+    }
+}
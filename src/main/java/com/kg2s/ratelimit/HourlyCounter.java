@@ -0,0 +1,61 @@
+package com.kg2s.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Lock-free request counter for a clock hour. The hour index and the count
+ * are packed into a single long so that the window rollover and the increment happen in
+ * the same compare-and-set.
+ */
+class HourlyCounter {
+    
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+    
+    private final AtomicLong state = new AtomicLong();
+    private final AtomicLong lastRequestMillis = new AtomicLong();
+    
+    /**
+     * Add permits to the count of the given hour if the result stays within the limit
+     */
+    boolean tryAdd(long hour, int permits, int limit, long nowMillis) {
+        while (true) {
+            long current = state.get();
+            long count = hourOf(current) == hour ? current & COUNT_MASK : 0;
+            if (count + permits > limit) {
+                return false;
+            }
+            if (state.compareAndSet(current, pack(hour, count + permits))) {
+                lastRequestMillis.accumulateAndGet(nowMillis, Math::max);
+                return true;
+            }
+        }
+    }
+    
+    void add(long hour, int permits, long nowMillis) {
+        tryAdd(hour, permits, Integer.MAX_VALUE, nowMillis);
+    }
+    
+    void set(long hour, int count, long lastRequest) {
+        state.set(pack(hour, count));
+        lastRequestMillis.set(lastRequest);
+    }
+    
+    int count(long hour) {
+        long current = state.get();
+        return hourOf(current) == hour ? (int) (current & COUNT_MASK) : 0;
+    }
+    
+    long lastRequestMillis() {
+        return lastRequestMillis.get();
+    }
+    
+    private static long hourOf(long packed) {
+        return packed >>> 32;
+    }
+    
+    private static long pack(long hour, long count) {
+        return (hour << 32) | count;
+    }
+}
@@ -0,0 +1,26 @@
+package com.kg2s.ratelimit;
+
+import java.time.Clock;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Fixed clock-hour window rate limiter: at most requestsPerHour permits per
+ * API key, resetting at the start of each hour. The burst of the quota does not apply.
+ */
+public class HourlyWindowRateLimiter extends AbstractRateLimiter<AbstractRateLimiter.KeyState> {
+    
+    public HourlyWindowRateLimiter(Clock clock, int requestsPerHour) {
+        super(clock, requestsPerHour);
+    }
+    
+    @Override
+    protected KeyState newState(Quota quota) {
+        return new KeyState();
+    }
+    
+    @Override
+    protected boolean tryAcquire(KeyState state, int permits, Quota quota, long nowMillis) {
+        return state.usage.tryAdd(currentHour(nowMillis), permits, quota.requestsPerHour(), nowMillis);
+    }
+}
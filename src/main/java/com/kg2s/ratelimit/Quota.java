@@ -0,0 +1,14 @@
+package com.kg2s.ratelimit;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Allowance of one API key: requestsPerHour sustained, and up to burst at once
+ * for the token bucket engine (the hourly window only enforces requestsPerHour)
+ */
+public record Quota(int requestsPerHour, int burst) {
+    
+    public static Quota perHour(int requestsPerHour) {
+        return new Quota(requestsPerHour, requestsPerHour);
+    }
+}
@@ -0,0 +1,42 @@
+package com.kg2s.ratelimit;
+
+import com.kg2s.domain.ApiKeyUsage;
+
+import java.util.List;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Rate Limiter Engine Interface
+ */
+public interface RateLimiter {
+    
+    /**
+     * Check the limit and consume the given number of permits in one atomic step
+     * 
+     * @param apiKey API key
+     * @param permits Number of requests to account for
+     * @param quota Allowance of the key, from its tier
+     * @return true if all permits were granted, false if none were
+     */
+    boolean tryAcquire(String apiKey, int permits, Quota quota);
+    
+    /**
+     * {@link #tryAcquire(String, int, Quota)} with the configured api.rate-limit.requests-per-hour
+     */
+    boolean tryAcquire(String apiKey, int permits);
+    
+    default boolean tryAcquire(String apiKey) {
+        return tryAcquire(apiKey, 1);
+    }
+    
+    /**
+     * Current usage of every API key seen so far, as detached entities ready to be persisted
+     */
+    List<ApiKeyUsage> snapshot();
+    
+    /**
+     * Seed the in-memory state of an API key from its persisted usage
+     */
+    void restore(ApiKeyUsage usage);
+}
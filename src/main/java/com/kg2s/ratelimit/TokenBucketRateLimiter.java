@@ -0,0 +1,66 @@
+package com.kg2s.ratelimit;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Token bucket rate limiter: each API key may burst up to the burst of its quota,
+ * tokens are refilled continuously at requestsPerHour per hour
+ */
+public class TokenBucketRateLimiter extends AbstractRateLimiter<TokenBucketRateLimiter.BucketState> {
+    
+    private static final double HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+    
+    public TokenBucketRateLimiter(Clock clock, int requestsPerHour) {
+        super(clock, requestsPerHour);
+    }
+    
+    /**
+     * Immutable bucket content, replaced as a whole by compare-and-set
+     */
+    private record Bucket(double tokens, long refilledAtMillis) {
+    }
+    
+    protected static class BucketState extends KeyState {
+        final AtomicReference<Bucket> bucket = new AtomicReference<>();
+    }
+    
+    @Override
+    protected BucketState newState(Quota quota) {
+        BucketState state = new BucketState();
+        state.bucket.set(new Bucket(quota.burst(), clock.millis()));
+        return state;
+    }
+    
+    @Override
+    protected boolean tryAcquire(BucketState state, int permits, Quota quota, long nowMillis) {
+        while (true) {
+            Bucket current = state.bucket.get();
+            double tokens = refill(current, quota, nowMillis);
+            if (tokens < permits) {
+                return false;
+            }
+            Bucket next = new Bucket(tokens - permits, Math.max(nowMillis, current.refilledAtMillis()));
+            if (state.bucket.compareAndSet(current, next)) {
+                state.usage.add(currentHour(nowMillis), permits, nowMillis);
+                return true;
+            }
+        }
+    }
+    
+    @Override
+    protected void restore(BucketState state, int usedThisHour, long nowMillis) {
+        state.bucket.set(new Bucket(Math.max(0, defaultQuota.burst() - usedThisHour), nowMillis));
+    }
+    
+    /**
+     * Tokens now; a key moved to a tier with a smaller burst is capped at it on its next request
+     */
+    private double refill(Bucket bucket, Quota quota, long nowMillis) {
+        long elapsed = Math.max(0, nowMillis - bucket.refilledAtMillis());
+        return Math.min(quota.burst(), bucket.tokens() + elapsed * (quota.requestsPerHour() / HOUR_MILLIS));
+    }
+}
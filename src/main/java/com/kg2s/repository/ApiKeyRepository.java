@@ -0,0 +1,21 @@
+package com.kg2s.repository;
+
+import com.kg2s.domain.ApiKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description API Key Repository
+ */
+@Repository
+public interface ApiKeyRepository extends JpaRepository<ApiKey, String> {
+    
+    /**
+     * Keys that may be used, read in full on every registry reload
+     */
+    List<ApiKey> findByRevokedFalse();
+}
@@ -1,11 +1,18 @@
 package com.kg2s.repository;
 
 import com.kg2s.domain.ApiKeyUsage;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+
 /**
  * @author Yanfu Zhang
  * @date 2025-08-08
@@ -15,7 +22,19 @@ import java.util.Optional;
 public interface ApiKeyUsageRepository extends JpaRepository<ApiKeyUsage, Long> {
     
     /**
-     * Find API key usage by API key
+     * Query cache region of findByApiKey
+     */
+    String BY_KEY_CACHE_REGION = "api-key-usage-by-key";
+    
+    /**
+     * Find API key usage by API key. The result is cached until api_key_usage is next written.
      */
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HINT_CACHE_REGION, value = BY_KEY_CACHE_REGION)})
     Optional<ApiKeyUsage> findByApiKey(String apiKey);
+    
+    /**
+     * Find API key usage for several API keys at once
+     */
+    List<ApiKeyUsage> findByApiKeyIn(Collection<String> apiKeys);
 } 
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.kg2s.repository;
+
+import com.kg2s.domain.DailyWeatherRollup;
+import org.springframework.stereotype.Repository;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Daily Weather Rollup Repository
+ */
+@Repository
+public interface DailyWeatherRollupRepository extends WeatherRollupRepository<DailyWeatherRollup> {
+}
@@ -0,0 +1,47 @@
+package com.kg2s.repository;
+
+import com.kg2s.domain.RateLimitWindow;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Rate Limit Window Repository. Both statements are atomic on their own, so
+ * instances sharing the database never grant more than the limit between them.
+ */
+@Repository
+public interface RateLimitWindowRepository extends JpaRepository<RateLimitWindow, String> {
+    
+    /**
+     * Add permits to the key's usage of the hour if it stays within the limit, starting over
+     * when the row still holds an earlier hour. The row is never moved back to an earlier hour.
+     * 
+     * @return 1 if the permits were granted, 0 if not or if the key has no row yet
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE RateLimitWindow w SET " +
+           "w.used = CASE WHEN w.windowHour = :hour THEN w.used + :permits ELSE :permits END, " +
+           "w.windowHour = :hour " +
+           "WHERE w.apiKey = :apiKey AND :permits <= :limit " +
+           "AND (w.windowHour < :hour OR (w.windowHour = :hour AND w.used + :permits <= :limit))")
+    int tryConsume(@Param("apiKey") String apiKey,
+                   @Param("hour") long hour,
+                   @Param("permits") int permits,
+                   @Param("limit") int limit);
+    
+    /**
+     * Create the key's row with its first permits; fails with a key violation when another
+     * instance created it first
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO rate_limit_window (api_key, window_hour, used) VALUES (:apiKey, :hour, :permits)",
+           nativeQuery = true)
+    int insert(@Param("apiKey") String apiKey, @Param("hour") long hour, @Param("permits") int permits);
+}
@@ -1,13 +1,24 @@
 package com.kg2s.repository;
 
 import com.kg2s.domain.WeatherData;
+import com.kg2s.domain.WeatherDataView;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 /**
  * @author Yanfu Zhang
@@ -17,28 +28,108 @@ import java.util.Optional;
 @Repository
 public interface WeatherDataRepository extends JpaRepository<WeatherData, Long> {
     
+    /**
+     * Query cache region of findLatestByCityAndCountry
+     */
+    String LATEST_CACHE_REGION = "weather-data-latest";
+    
     /**
      * Find weather data by city and country
      */
-    List<WeatherData> findByCityAndCountryOrderByTimestampDesc(String city, String country);
+    List<WeatherDataView> findByCityAndCountryOrderByTimestampDesc(String city, String country);
     
     /**
      * Find weather data by API key
      */
-    List<WeatherData> findByApiKeyOrderByTimestampDesc(String apiKey);
+    List<WeatherDataView> findByApiKeyOrderByTimestampDesc(String apiKey);
     
     /**
-     * Find latest weather data by city and country
+     * Find latest weather data by city and country. The result is cached until weather_data is
+     * next written.
      */
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+                 @QueryHint(name = HINT_CACHE_REGION, value = LATEST_CACHE_REGION)})
     @Query("SELECT w FROM WeatherData w WHERE w.city = :city AND w.country = :country " +
            "ORDER BY w.timestamp DESC LIMIT 1")
     Optional<WeatherData> findLatestByCityAndCountry(@Param("city") String city, 
                                                     @Param("country") String country);
     
+    /**
+     * Find weather data recorded after the given time for any of the given cities
+     */
+    @Query("SELECT w FROM WeatherData w WHERE w.city IN :cities AND w.timestamp > :since")
+    List<WeatherData> findRecentByCities(@Param("cities") Collection<String> cities,
+                                         @Param("since") LocalDateTime since);
+    
     /**
      * Find weather data by city, country and API key
      */
     List<WeatherData> findByCityAndCountryAndApiKeyOrderByTimestampDesc(String city, 
                                                                        String country, 
                                                                        String apiKey);
-} 
\ No newline at end of file
+    
+    /**
+     * Find one page of weather history by city and country, newest first, starting strictly
+     * before the (beforeTimestamp, beforeId) keyset position and not older than from
+     */
+    @Query("SELECT new com.kg2s.domain.WeatherDataView(w.id, w.weatherId, w.main, w.description, w.icon, " +
+           "w.city, w.country, w.apiKey, w.timestamp) FROM WeatherData w " +
+           "WHERE w.city = :city AND w.country = :country AND w.timestamp >= :from " +
+           "AND (w.timestamp < :beforeTimestamp OR (w.timestamp = :beforeTimestamp AND w.id < :beforeId)) " +
+           "ORDER BY w.timestamp DESC, w.id DESC")
+    List<WeatherDataView> findPageByCityAndCountry(@Param("city") String city,
+                                               @Param("country") String country,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                               @Param("beforeId") Long beforeId,
+                                               Pageable pageable);
+    
+    /**
+     * Find one page of weather history by API key, same ordering and keyset as findPageByCityAndCountry
+     */
+    @Query("SELECT new com.kg2s.domain.WeatherDataView(w.id, w.weatherId, w.main, w.description, w.icon, " +
+           "w.city, w.country, w.apiKey, w.timestamp) FROM WeatherData w " +
+           "WHERE w.apiKey = :apiKey AND w.timestamp >= :from " +
+           "AND (w.timestamp < :beforeTimestamp OR (w.timestamp = :beforeTimestamp AND w.id < :beforeId)) " +
+           "ORDER BY w.timestamp DESC, w.id DESC")
+    List<WeatherDataView> findPageByApiKey(@Param("apiKey") String apiKey,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                       @Param("beforeId") Long beforeId,
+                                       Pageable pageable);
+    
+    /**
+     * Stream weather history by city and country in [from, to), newest first.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.kg2s.domain.WeatherDataView(w.id, w.weatherId, w.main, w.description, w.icon, " +
+           "w.city, w.country, w.apiKey, w.timestamp) FROM WeatherData w " +
+           "WHERE w.city = :city AND w.country = :country AND w.timestamp >= :from AND w.timestamp < :to " +
+           "ORDER BY w.timestamp DESC, w.id DESC")
+    Stream<WeatherDataView> streamByCityAndCountry(@Param("city") String city,
+                                               @Param("country") String country,
+                                               @Param("from") LocalDateTime from,
+                                               @Param("to") LocalDateTime to);
+    
+    /**
+     * Stream weather history by API key in [from, to), newest first.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.kg2s.domain.WeatherDataView(w.id, w.weatherId, w.main, w.description, w.icon, " +
+           "w.city, w.country, w.apiKey, w.timestamp) FROM WeatherData w " +
+           "WHERE w.apiKey = :apiKey AND w.timestamp >= :from AND w.timestamp < :to " +
+           "ORDER BY w.timestamp DESC, w.id DESC")
+    Stream<WeatherDataView> streamByApiKey(@Param("apiKey") String apiKey,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to);
+    
+    /**
+     * Find the oldest observations recorded before the cutoff, for compaction into rollups
+     */
+    @Query("SELECT new com.kg2s.domain.WeatherDataView(w.id, w.weatherId, w.main, w.description, w.icon, " +
+           "w.city, w.country, w.apiKey, w.timestamp) FROM WeatherData w " +
+           "WHERE w.timestamp < :cutoff ORDER BY w.timestamp, w.id")
+    List<WeatherDataView> findOldest(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+}
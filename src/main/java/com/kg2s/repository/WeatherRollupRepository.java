@@ -0,0 +1,69 @@
+package com.kg2s.repository;
+
+import com.kg2s.domain.WeatherRollup;
+import com.kg2s.domain.WeatherRollupView;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Queries shared by the hourly and daily rollup repositories
+ */
+@NoRepositoryBean
+public interface WeatherRollupRepository<T extends WeatherRollup> extends JpaRepository<T, Long> {
+    
+    /**
+     * Find one page of rollups by city and country, newest first, with the same keyset as the raw history
+     */
+    @Query("SELECT new com.kg2s.domain.WeatherRollupView(r.id, r.weatherId, r.main, r.description, r.icon, " +
+           "r.city, r.country, r.periodStart, r.observationCount) FROM #{#entityName} r " +
+           "WHERE r.city = :city AND r.country = :country AND r.periodStart >= :from " +
+           "AND (r.periodStart < :beforeTimestamp OR (r.periodStart = :beforeTimestamp AND r.id < :beforeId)) " +
+           "ORDER BY r.periodStart DESC, r.id DESC")
+    List<WeatherRollupView> findPageByCityAndCountry(@Param("city") String city,
+                                                     @Param("country") String country,
+                                                     @Param("from") LocalDateTime from,
+                                                     @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                                     @Param("beforeId") Long beforeId,
+                                                     Pageable pageable);
+    
+    /**
+     * Stream rollups by city and country in [from, to), newest first.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.kg2s.domain.WeatherRollupView(r.id, r.weatherId, r.main, r.description, r.icon, " +
+           "r.city, r.country, r.periodStart, r.observationCount) FROM #{#entityName} r " +
+           "WHERE r.city = :city AND r.country = :country AND r.periodStart >= :from AND r.periodStart < :to " +
+           "ORDER BY r.periodStart DESC, r.id DESC")
+    Stream<WeatherRollupView> streamByCityAndCountry(@Param("city") String city,
+                                                     @Param("country") String country,
+                                                     @Param("from") LocalDateTime from,
+                                                     @Param("to") LocalDateTime to);
+    
+    /**
+     * Find the oldest rollups of periods starting before the cutoff, for compaction or purge
+     */
+    @Query("SELECT r FROM #{#entityName} r WHERE r.periodStart < :cutoff ORDER BY r.periodStart, r.id")
+    List<T> findOldest(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    /**
+     * Find the rollups of the given periods for any of the given cities, to merge new data into
+     */
+    @Query("SELECT r FROM #{#entityName} r WHERE r.city IN :cities AND r.periodStart IN :periods")
+    List<T> findByCitiesAndPeriods(@Param("cities") Collection<String> cities,
+                                   @Param("periods") Collection<LocalDateTime> periods);
+}
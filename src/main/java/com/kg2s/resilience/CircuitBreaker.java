@@ -0,0 +1,214 @@
+package com.kg2s.resilience;
+
+import com.kg2s.exception.UpstreamUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Circuit breaker over a count-based sliding window of the most recent calls.
+ * CLOSED lets every call through and opens once the failure rate or the slow-call rate reaches
+ * its threshold. OPEN rejects calls without running them until the wait time has passed, then
+ * HALF_OPEN lets a few trial calls through, whose outcome closes or reopens the circuit.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final Clock clock;
+    private final Predicate<RuntimeException> isFailure;
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final int slowCallRateThreshold;
+    private final long slowCallNanos;
+    private final Duration waitInOpen;
+    private final int halfOpenCalls;
+
+    // Ring buffer of outcomes, guarded by this
+    private final boolean[] failedAt;
+    private final boolean[] slowAt;
+    private int next;
+    private int buffered;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private Instant openedAt;
+    private int trialsStarted;
+    // Outcomes of calls started before the last transition are not recorded
+    private long generation;
+
+    private final LongAdder successfulCalls = new LongAdder();
+    private final LongAdder failedCalls = new LongAdder();
+    private final LongAdder slowCallsTotal = new LongAdder();
+    private final LongAdder notPermittedCalls = new LongAdder();
+    private final LongAdder transitions = new LongAdder();
+
+    public CircuitBreaker(String name, Clock clock, Predicate<RuntimeException> isFailure, int windowSize,
+                          int minimumCalls, int failureRateThreshold, int slowCallRateThreshold,
+                          Duration slowCallDuration, Duration waitInOpen, int halfOpenCalls) {
+        this.name = name;
+        this.clock = clock;
+        this.isFailure = isFailure;
+        this.windowSize = windowSize;
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.waitInOpen = waitInOpen;
+        this.halfOpenCalls = halfOpenCalls;
+        this.failedAt = new boolean[windowSize];
+        this.slowAt = new boolean[windowSize];
+    }
+
+    /**
+     * Run the call if the circuit lets it through and record its outcome
+     *
+     * @throws UpstreamUnavailableException without running the call while the circuit is open
+     */
+    public <T> T execute(Supplier<T> call) {
+        long permit = acquirePermission();
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            onResult(permit, false, System.nanoTime() - start);
+            return result;
+        } catch (RuntimeException e) {
+            onResult(permit, isFailure.test(e), System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private synchronized long acquirePermission() {
+        if (state == State.OPEN) {
+            Duration remaining = remainingOpen();
+            if (!remaining.isZero()) {
+                notPermittedCalls.increment();
+                throw new UpstreamUnavailableException(name + " circuit is open", remaining);
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                notPermittedCalls.increment();
+                throw new UpstreamUnavailableException(name + " circuit is half-open, trial calls in progress",
+                    Duration.ofSeconds(1));
+            }
+            trialsStarted++;
+        }
+        return generation;
+    }
+
+    private synchronized void onResult(long permit, boolean failed, long elapsedNanos) {
+        boolean slow = elapsedNanos > slowCallNanos;
+        if (failed) {
+            failedCalls.increment();
+        } else {
+            successfulCalls.increment();
+        }
+        if (slow) {
+            slowCallsTotal.increment();
+        }
+        if (permit != generation) {
+            return;
+        }
+        record(failed, slow);
+
+        if (state == State.CLOSED) {
+            if (buffered >= minimumCalls && isOverThreshold()) {
+                transitionTo(State.OPEN);
+            }
+        } else if (state == State.HALF_OPEN && buffered >= halfOpenCalls) {
+            transitionTo(isOverThreshold() ? State.OPEN : State.CLOSED);
+        }
+    }
+
+    private void record(boolean failed, boolean slow) {
+        if (buffered == windowSize) {
+            // Drop the oldest outcome
+            if (failedAt[next]) {
+                failures--;
+            }
+            if (slowAt[next]) {
+                slowCalls--;
+            }
+        } else {
+            buffered++;
+        }
+        failedAt[next] = failed;
+        slowAt[next] = slow;
+        if (failed) {
+            failures++;
+        }
+        if (slow) {
+            slowCalls++;
+        }
+        next = (next + 1) % windowSize;
+    }
+
+    private boolean isOverThreshold() {
+        return failures * 100 >= failureRateThreshold * buffered
+            || slowCalls * 100 >= slowCallRateThreshold * buffered;
+    }
+
+    private void transitionTo(State target) {
+        logger.warn("Circuit {} {} -> {} (failure rate {}%, slow-call rate {}%)",
+            name, state, target, rate(failures), rate(slowCalls));
+        state = target;
+        generation++;
+        transitions.increment();
+        // Each state judges only its own calls
+        buffered = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+        trialsStarted = 0;
+        openedAt = target == State.OPEN ? clock.instant() : null;
+    }
+
+    private Duration remainingOpen() {
+        Duration elapsed = Duration.between(openedAt, clock.instant());
+        return elapsed.compareTo(waitInOpen) >= 0 ? Duration.ZERO : waitInOpen.minus(elapsed);
+    }
+
+    private int rate(int count) {
+        return buffered == 0 ? 0 : count * 100 / buffered;
+    }
+
+    /**
+     * Whether a call made now would be let through, without taking a trial slot
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> remainingOpen().isZero();
+            case HALF_OPEN -> trialsStarted < halfOpenCalls;
+        };
+    }
+
+    public synchronized CircuitBreakerStatus status() {
+        return new CircuitBreakerStatus(name, state, rate(failures), rate(slowCalls), buffered,
+            state == State.OPEN ? remainingOpen().toMillis() : 0,
+            successfulCalls.sum(), failedCalls.sum(), slowCallsTotal.sum(), notPermittedCalls.sum(),
+            transitions.sum());
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
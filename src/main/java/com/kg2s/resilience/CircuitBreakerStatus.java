@@ -0,0 +1,20 @@
+package com.kg2s.resilience;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Point-in-time view of a circuit breaker. The rates cover the calls recorded since
+ * the last state transition; the totals cover the whole lifetime of the breaker.
+ */
+public record CircuitBreakerStatus(String name,
+                                   CircuitBreaker.State state,
+                                   int failureRate,
+                                   int slowCallRate,
+                                   int bufferedCalls,
+                                   long retryAfterMillis,
+                                   long successfulCalls,
+                                   long failedCalls,
+                                   long slowCalls,
+                                   long notPermittedCalls,
+                                   long stateTransitions) {
+}
@@ -0,0 +1,263 @@
+package com.kg2s.resilience;
+
+import com.kg2s.exception.UpstreamQuotaExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Budget of calls made with one upstream account key, shared by every caller in the
+ * process. A call takes a token from a per-minute and a per-day bucket, both refilled continuously.
+ * When none is left callers queue, user requests ahead of background refreshes, and wait up to
+ * the limit of their priority; a caller that would wait longer is refused right away, with the
+ * time until the budget is expected to let it through.
+ */
+public class UpstreamQuotaGovernor {
+
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamQuotaGovernor.class);
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+    private static final long NANOS_PER_DAY = TimeUnit.DAYS.toNanos(1);
+
+    public enum Priority {
+        /**
+         * A client waiting for the answer
+         */
+        USER,
+        /**
+         * Stale-while-revalidate and pre-warming refreshes, which only ever wait behind user calls
+         */
+        BACKGROUND
+    }
+
+    private final String name;
+    private final int maxQueue;
+    private final long userMaxWaitNanos;
+    private final long backgroundMaxWaitNanos;
+
+    // Everything below is guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queueChanged = lock.newCondition();
+    private final Bucket minute;
+    private final Bucket day;
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(
+        Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::arrival));
+    private long arrivals;
+    // System.nanoTime() before which OpenWeatherMap asked not to be called again
+    private long throttledUntil;
+    private boolean throttled;
+
+    private final LongAdder grantedUser = new LongAdder();
+    private final LongAdder grantedBackground = new LongAdder();
+    private final LongAdder shedUser = new LongAdder();
+    private final LongAdder shedBackground = new LongAdder();
+
+    /**
+     * @param backgroundReservePercent Share of each bucket background calls leave to user calls
+     */
+    public UpstreamQuotaGovernor(String name, int perMinute, int perDay, int maxQueue, Duration userMaxWait,
+                                 Duration backgroundMaxWait, int backgroundReservePercent) {
+        this.name = name;
+        this.maxQueue = maxQueue;
+        this.userMaxWaitNanos = userMaxWait.toNanos();
+        this.backgroundMaxWaitNanos = backgroundMaxWait.toNanos();
+        long now = System.nanoTime();
+        this.minute = new Bucket(perMinute, NANOS_PER_MINUTE, backgroundReservePercent, now);
+        this.day = new Bucket(perDay, NANOS_PER_DAY, backgroundReservePercent, now);
+    }
+
+    /**
+     * Take one call from the budget, waiting for it if other calls are queued or none is left
+     *
+     * @throws UpstreamQuotaExceededException when the call cannot be made within the wait limit of its priority
+     */
+    public void acquire(Priority priority) {
+        long now = System.nanoTime();
+        long deadline = now + (priority == Priority.USER ? userMaxWaitNanos : backgroundMaxWaitNanos);
+        lock.lock();
+        try {
+            refill(now);
+            if (queue.isEmpty() && isAvailable(priority, now)) {
+                grant(priority);
+                return;
+            }
+            long expectedWait = nanosUntilAvailable(priority, queuedAhead(priority) + 1, now);
+            if (queue.size() >= maxQueue || now + expectedWait > deadline) {
+                throw shed(priority, expectedWait);
+            }
+
+            Waiter waiter = new Waiter(priority, arrivals++);
+            queue.add(waiter);
+            try {
+                while (true) {
+                    now = System.nanoTime();
+                    refill(now);
+                    boolean first = queue.peek() == waiter;
+                    if (first && isAvailable(priority, now)) {
+                        queue.poll();
+                        grant(priority);
+                        return;
+                    }
+                    if (now >= deadline) {
+                        throw shed(priority, nanosUntilAvailable(priority, queuedAhead(waiter) + 1, now));
+                    }
+                    // The first waiter sleeps until the next token; the others until the queue moves
+                    long sleep = first ? Math.min(nanosUntilAvailable(priority, 1, now), deadline - now) : deadline - now;
+                    queueChanged.awaitNanos(Math.max(sleep, 1));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw shed(priority, 0);
+            } finally {
+                if (queue.remove(waiter) || queue.peek() != null) {
+                    queueChanged.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * OpenWeatherMap answered 429: make no call before the given time has passed and start again
+     * from an empty minute bucket
+     */
+    public void throttled(Duration retryAfter) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            refill(now);
+            minute.tokens = 0;
+            long until = now + retryAfter.toNanos();
+            if (!throttled || until - throttledUntil > 0) {
+                throttledUntil = until;
+                throttled = true;
+            }
+            queueChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        logger.warn("{} throttled by upstream, no calls for {}", name, retryAfter);
+    }
+
+    public UpstreamQuotaStatus status() {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            refill(now);
+            return new UpstreamQuotaStatus(name, minute.capacity, day.capacity,
+                (int) minute.tokens, (int) day.tokens, queue.size(),
+                TimeUnit.NANOSECONDS.toMillis(throttledFor(now)),
+                grantedUser.sum(), grantedBackground.sum(), shedUser.sum(), shedBackground.sum());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grant(Priority priority) {
+        minute.tokens -= 1;
+        day.tokens -= 1;
+        (priority == Priority.USER ? grantedUser : grantedBackground).increment();
+    }
+
+    private UpstreamQuotaExceededException shed(Priority priority, long expectedWaitNanos) {
+        (priority == Priority.USER ? shedUser : shedBackground).increment();
+        return new UpstreamQuotaExceededException(name + " call budget exhausted",
+            Duration.ofNanos(Math.max(expectedWaitNanos, 0)));
+    }
+
+    private void refill(long now) {
+        minute.refill(now);
+        day.refill(now);
+    }
+
+    private boolean isAvailable(Priority priority, long now) {
+        return throttledFor(now) == 0 && minute.has(1, priority) && day.has(1, priority);
+    }
+
+    /**
+     * Time until the budget holds the given number of calls for the priority, if nothing else takes any
+     */
+    private long nanosUntilAvailable(Priority priority, int calls, long now) {
+        return Math.max(throttledFor(now), Math.max(minute.nanosUntil(calls, priority), day.nanosUntil(calls, priority)));
+    }
+
+    private long throttledFor(long now) {
+        return throttled && throttledUntil - now > 0 ? throttledUntil - now : 0;
+    }
+
+    /**
+     * Queued callers that go before a new caller of the given priority
+     */
+    private int queuedAhead(Priority priority) {
+        if (priority == Priority.BACKGROUND) {
+            return queue.size();
+        }
+        int ahead = 0;
+        for (Waiter waiter : queue) {
+            if (waiter.priority() == Priority.USER) {
+                ahead++;
+            }
+        }
+        return ahead;
+    }
+
+    private int queuedAhead(Waiter waiter) {
+        int ahead = 0;
+        for (Waiter other : queue) {
+            if (queue.comparator().compare(other, waiter) < 0) {
+                ahead++;
+            }
+        }
+        return ahead;
+    }
+
+    private record Waiter(Priority priority, long arrival) {
+    }
+
+    /**
+     * Token bucket refilled at capacity per period, holding at most capacity
+     */
+    private static final class Bucket {
+        private final int capacity;
+        private final double tokensPerNano;
+        private final double backgroundReserve;
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(int capacity, long periodNanos, int backgroundReservePercent, long now) {
+            this.capacity = capacity;
+            this.tokensPerNano = (double) capacity / periodNanos;
+            this.backgroundReserve = capacity * backgroundReservePercent / 100.0;
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        void refill(long now) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+        }
+
+        boolean has(int calls, Priority priority) {
+            return tokens >= calls + reserve(priority);
+        }
+
+        long nanosUntil(int calls, Priority priority) {
+            double missing = calls + reserve(priority) - tokens;
+            return missing <= 0 ? 0 : (long) Math.ceil(missing / tokensPerNano);
+        }
+
+        private double reserve(Priority priority) {
+            return priority == Priority.BACKGROUND ? backgroundReserve : 0;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.kg2s.resilience;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Point-in-time view of an upstream quota governor. Available calls are rounded down;
+ * the totals cover the whole lifetime of the governor.
+ */
+public record UpstreamQuotaStatus(String name,
+                                  int perMinute,
+                                  int perDay,
+                                  int availableThisMinute,
+                                  int availableToday,
+                                  int waiting,
+                                  long throttledMillis,
+                                  long grantedUserCalls,
+                                  long grantedBackgroundCalls,
+                                  long shedUserCalls,
+                                  long shedBackgroundCalls) {
+}
@@ -0,0 +1,265 @@
+package com.kg2s.retention;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.DailyWeatherRollup;
+import com.kg2s.domain.HourlyWeatherRollup;
+import com.kg2s.domain.WeatherDataView;
+import com.kg2s.domain.WeatherRollup;
+import com.kg2s.repository.DailyWeatherRollupRepository;
+import com.kg2s.repository.HourlyWeatherRollupRepository;
+import com.kg2s.repository.WeatherDataRepository;
+import com.kg2s.repository.WeatherRollupRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Retention engine for weather history. Raw observations past their retention are
+ * compacted into hourly rollups, hourly rollups past theirs into daily rollups, and daily rollups
+ * past theirs are purged. Every tier is walked oldest first in small batches, each in its own
+ * transaction, so the hot weather_data table is never locked for long.
+ */
+@Component
+@ConditionalOnProperty(prefix = "api.retention", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class HistoryCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryCompactor.class);
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private HourlyWeatherRollupRepository hourlyRollupRepository;
+
+    @Autowired
+    private DailyWeatherRollupRepository dailyRollupRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    private final LongAdder rawCompacted = new LongAdder();
+    private final LongAdder hourlyCompacted = new LongAdder();
+    private final LongAdder dailyPurged = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "#{@weatherApiConfig.retention.interval.toMillis()}",
+               initialDelayString = "#{@weatherApiConfig.retention.interval.toMillis()}")
+    public void compact() {
+        compact(LocalDateTime.now());
+    }
+
+    /**
+     * Run one round of compaction and purge as of the given time
+     */
+    public void compact(LocalDateTime now) {
+        WeatherApiConfig.Retention retention = weatherApiConfig.getRetention();
+        // Cutoffs on period boundaries, so a period is always compacted as a whole
+        LocalDateTime rawCutoff = now.minus(retention.getRawRetention()).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime hourlyCutoff = now.minus(retention.getHourlyRetention()).truncatedTo(ChronoUnit.DAYS);
+
+        int raw = inBatches(() -> compactRaw(rawCutoff));
+        int hourly = inBatches(() -> compactHourly(hourlyCutoff));
+        int daily = retention.getDailyRetention().isZero() ? 0
+            : inBatches(() -> purgeDaily(now.minus(retention.getDailyRetention())));
+
+        rawCompacted.add(raw);
+        hourlyCompacted.add(hourly);
+        dailyPurged.add(daily);
+        if (raw + hourly + daily > 0) {
+            logger.info("Compacted {} raw observations and {} hourly rollups, purged {} daily rollups",
+                raw, hourly, daily);
+        }
+    }
+
+    private int inBatches(IntSupplier batch) {
+        int total = 0;
+        for (int i = 0; i < weatherApiConfig.getRetention().getMaxBatchesPerRun(); i++) {
+            Integer rows = transactionTemplate.execute(status -> batch.getAsInt());
+            if (rows == null || rows == 0) {
+                break;
+            }
+            total += rows;
+        }
+        return total;
+    }
+
+    private int compactRaw(LocalDateTime cutoff) {
+        int batchSize = weatherApiConfig.getRetention().getBatchSize();
+        List<WeatherDataView> rows = wholePeriods(
+            weatherDataRepository.findOldest(cutoff, PageRequest.of(0, batchSize)), batchSize,
+            row -> row.timestamp().truncatedTo(ChronoUnit.HOURS));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<PeriodKey, Tally> tallies = new LinkedHashMap<>();
+        for (WeatherDataView row : rows) {
+            PeriodKey key = new PeriodKey(row.city(), row.country(), row.timestamp().truncatedTo(ChronoUnit.HOURS));
+            tallies.computeIfAbsent(key, k -> new Tally())
+                .add(row.weatherId(), row.main(), row.description(), row.icon(), 1, 1);
+        }
+        mergeInto(hourlyRollupRepository, tallies,
+            key -> new HourlyWeatherRollup(key.city(), key.country(), key.periodStart()));
+        weatherDataRepository.deleteAllByIdInBatch(rows.stream().map(WeatherDataView::id).toList());
+        return rows.size();
+    }
+
+    private int compactHourly(LocalDateTime cutoff) {
+        int batchSize = weatherApiConfig.getRetention().getBatchSize();
+        List<HourlyWeatherRollup> rows = wholePeriods(
+            hourlyRollupRepository.findOldest(cutoff, PageRequest.of(0, batchSize)), batchSize,
+            row -> row.getPeriodStart().truncatedTo(ChronoUnit.DAYS));
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<PeriodKey, Tally> tallies = new LinkedHashMap<>();
+        for (HourlyWeatherRollup row : rows) {
+            PeriodKey key = new PeriodKey(row.getCity(), row.getCountry(),
+                row.getPeriodStart().truncatedTo(ChronoUnit.DAYS));
+            tallies.computeIfAbsent(key, k -> new Tally()).add(row.getWeatherId(), row.getMain(),
+                row.getDescription(), row.getIcon(), row.getDominantCount(), row.getObservationCount());
+        }
+        mergeInto(dailyRollupRepository, tallies,
+            key -> new DailyWeatherRollup(key.city(), key.country(), key.periodStart()));
+        hourlyRollupRepository.deleteAllInBatch(rows);
+        return rows.size();
+    }
+
+    private int purgeDaily(LocalDateTime cutoff) {
+        List<DailyWeatherRollup> rows = dailyRollupRepository.findOldest(cutoff,
+            PageRequest.of(0, weatherApiConfig.getRetention().getBatchSize()));
+        dailyRollupRepository.deleteAllInBatch(rows);
+        return rows.size();
+    }
+
+    /**
+     * Drop the rows of the last period of a full batch, they may continue in the next batch.
+     * A period larger than a whole batch is compacted in several parts.
+     */
+    private static <T> List<T> wholePeriods(List<T> rows, int batchSize, Function<T, LocalDateTime> period) {
+        if (rows.size() < batchSize) {
+            return rows;
+        }
+        LocalDateTime last = period.apply(rows.get(rows.size() - 1));
+        int end = rows.size();
+        while (end > 0 && period.apply(rows.get(end - 1)).equals(last)) {
+            end--;
+        }
+        return end == 0 ? rows : rows.subList(0, end);
+    }
+
+    private <T extends WeatherRollup> void mergeInto(WeatherRollupRepository<T> repository,
+                                                     Map<PeriodKey, Tally> tallies,
+                                                     Function<PeriodKey, T> newRollup) {
+        Set<String> cities = tallies.keySet().stream().map(PeriodKey::city).collect(Collectors.toSet());
+        Set<LocalDateTime> periods = tallies.keySet().stream().map(PeriodKey::periodStart).collect(Collectors.toSet());
+        Map<PeriodKey, T> rollups = new HashMap<>();
+        for (T rollup : repository.findByCitiesAndPeriods(cities, periods)) {
+            rollups.put(new PeriodKey(rollup.getCity(), rollup.getCountry(), rollup.getPeriodStart()), rollup);
+        }
+
+        List<T> changed = new ArrayList<>(tallies.size());
+        tallies.forEach((key, tally) -> {
+            T rollup = rollups.computeIfAbsent(key, newRollup);
+            // Add to the current dominant condition first, then let the batch's own dominant compete
+            Condition current = rollup.getWeatherId() == null ? null : tally.conditions.get(rollup.getWeatherId());
+            if (current != null) {
+                rollup.mergeCondition(current.weatherId, current.main, current.description, current.icon,
+                    current.count);
+            }
+            Condition dominant = tally.dominant();
+            if (dominant != current) {
+                rollup.mergeCondition(dominant.weatherId, dominant.main, dominant.description, dominant.icon,
+                    dominant.count);
+            }
+            rollup.addObservations(tally.observations);
+            changed.add(rollup);
+        });
+        repository.saveAll(changed);
+    }
+
+    private record PeriodKey(String city, String country, LocalDateTime periodStart) {
+    }
+
+    /**
+     * Condition counts of one location and period within a batch
+     */
+    private static final class Tally {
+        private final Map<String, Condition> conditions = new LinkedHashMap<>();
+        private int observations;
+
+        void add(String weatherId, String main, String description, String icon, int count, int observations) {
+            conditions.computeIfAbsent(weatherId, id -> new Condition(id, main, description, icon)).count += count;
+            this.observations += observations;
+        }
+
+        Condition dominant() {
+            Condition dominant = null;
+            for (Condition condition : conditions.values()) {
+                if (dominant == null || condition.count > dominant.count) {
+                    dominant = condition;
+                }
+            }
+            return dominant;
+        }
+    }
+
+    private static final class Condition {
+        private final String weatherId;
+        private final String main;
+        private final String description;
+        private final String icon;
+        private int count;
+
+        Condition(String weatherId, String main, String description, String icon) {
+            this.weatherId = weatherId;
+            this.main = main;
+            this.description = description;
+            this.icon = icon;
+        }
+    }
+
+    public long getRawCompactedCount() {
+        return rawCompacted.sum();
+    }
+
+    public long getHourlyCompactedCount() {
+        return hourlyCompacted.sum();
+    }
+
+    public long getDailyPurgedCount() {
+        return dailyPurged.sum();
+    }
+}
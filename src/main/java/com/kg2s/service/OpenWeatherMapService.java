@@ -1,6 +1,7 @@
 package com.kg2s.service;
 
-import com.kg2s.domain.OpenWeatherMapResponse;
+import com.kg2s.domain.CurrentWeather;
+import com.kg2s.resilience.UpstreamQuotaGovernor.Priority;
 
 /**
  * @author Yanfu Zhang
@@ -14,7 +15,25 @@ public interface OpenWeatherMapService {
      * 
      * @param city City name
      * @param country Country code
-     * @return OpenWeatherMap API response
+     * @return The stored fields of the OpenWeatherMap API response
      */
-    OpenWeatherMapResponse getWeatherData(String city, String country);
+    default CurrentWeather getWeatherData(String city, String country) {
+        return getWeatherData(city, country, Priority.USER);
+    }
+    
+    /**
+     * Get weather data from OpenWeatherMap API, within the call budget of the account key
+     * 
+     * @param priority Whether a client is waiting for the call or it refreshes the cache in the background
+     * @throws com.kg2s.exception.UpstreamQuotaExceededException when the budget does not allow the call in time
+     */
+    CurrentWeather getWeatherData(String city, String country, Priority priority);
+    
+    /**
+     * Get weather data from OpenWeatherMap API by its city id, which unlike a name matches a single
+     * place, within the call budget of the account key
+     * 
+     * @param cityId City id from OpenWeatherMap's city list
+     */
+    CurrentWeather getWeatherDataById(long cityId, Priority priority);
 } 
\ No newline at end of file
@@ -1,7 +1,17 @@
 package com.kg2s.service;
 
+import com.kg2s.apikey.Endpoint;
+import com.kg2s.domain.WeatherBatchItemResp;
+import com.kg2s.domain.WeatherHistoryPage;
 import com.kg2s.domain.WeatherInfoResp;
+import com.kg2s.domain.WeatherLocationReq;
+import com.kg2s.domain.WeatherVersion;
+import com.kg2s.http.SerializedWeatherInfo;
+
+import java.io.OutputStream;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Predicate;
 
 /**
  * @author Yanfu Zhang
@@ -11,17 +21,81 @@ import java.util.List;
 public interface WeatherService {
     
     /**
-     * Get weather information by city and country
+     * Get weather information by city and country. Like every method taking a location from a
+     * client, the location is first resolved to its canonical city and country, so spellings of
+     * the same city share one cache entry, one history and one upstream call.
      */
     WeatherInfoResp getWeatherInfo(String city, String country, String apiKey);
     
     /**
-     * Get weather history by city and country
+     * Get weather information for a conditional request. When the client already holds the
+     * cached data it is confirmed from memory, without any lookup or upstream call, and only
+     * counts against the rate limit if api.rate-limit.count-not-modified is set.
+     * 
+     * @param notModified Whether the client's copy is still current given the cached version
+     */
+    WeatherInfoResp getWeatherInfo(String city, String country, String apiKey,
+                                   Predicate<WeatherVersion> notModified);
+    
+    /**
+     * Get weather information as JSON bytes kept from an earlier response, when
+     * api.cache.serialized-responses is on and the location is fresh in memory. The request is
+     * validated and counted as with {@link #getWeatherInfo(String, String, String, Predicate)}.
+     * 
+     * @return The serialized response, or null, with nothing validated or counted, when the caller
+     * should use getWeatherInfo instead
+     */
+    SerializedWeatherInfo getSerializedWeatherInfo(String city, String country, String apiKey,
+                                                   Predicate<WeatherVersion> notModified);
+    
+    /**
+     * Get weather information for several locations, one result per requested location
+     */
+    List<WeatherBatchItemResp> getWeatherInfoBatch(List<WeatherLocationReq> locations, String apiKey);
+    
+    /**
+     * Fetch current weather data from OpenWeatherMap into the cache even if the cached data is
+     * still fresh, used to refresh hot locations ahead of expiry. Not counted against any API key.
+     * The location is taken as cached, already resolved to its canonical city and country. The
+     * observation is stored under WeatherData.SYSTEM_API_KEY, outside every client's history.
+     */
+    void refreshWeatherInfo(String city, String country);
+    
+    /**
+     * Get one page of weather history by city and country, newest first
+     * 
+     * @param from Oldest timestamp included, null for no lower bound
+     * @param to Timestamp excluded from the page and everything newer, null for no upper bound
+     * @param cursor Next-page cursor returned with the previous page, null for the first page
+     * @param limit Page size, null for the configured default
+     */
+    WeatherHistoryPage getWeatherHistory(String city, String country, LocalDateTime from, LocalDateTime to,
+                                         String cursor, Integer limit);
+    
+    /**
+     * Get one page of weather history by API key, newest first
+     */
+    WeatherHistoryPage getWeatherHistoryByApiKey(String apiKey, LocalDateTime from, LocalDateTime to,
+                                                 String cursor, Integer limit);
+    
+    /**
+     * Write the whole weather history by city and country as newline-delimited JSON, newest first
+     */
+    void streamWeatherHistory(String city, String country, LocalDateTime from, LocalDateTime to,
+                              OutputStream out);
+    
+    /**
+     * Write the whole weather history by API key as newline-delimited JSON, newest first.
+     * The body is written after the response has started, so the caller checks the key first
+     * with {@link #checkApiKey(String, Endpoint)}.
      */
-    List<WeatherInfoResp> getWeatherHistory(String city, String country);
+    void streamWeatherHistoryByApiKey(String apiKey, LocalDateTime from, LocalDateTime to, OutputStream out);
     
     /**
-     * Get weather history by API key
+     * Check that the API key is active and its tier includes the endpoint
+     * 
+     * @throws IllegalArgumentException for an unknown or revoked key
+     * @throws com.kg2s.exception.ForbiddenException when the tier does not include the endpoint
      */
-    List<WeatherInfoResp> getWeatherHistoryByApiKey(String apiKey);
-} 
\ No newline at end of file
+    void checkApiKey(String apiKey, Endpoint endpoint);
+}
\ No newline at end of file
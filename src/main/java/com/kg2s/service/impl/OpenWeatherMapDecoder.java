@@ -0,0 +1,173 @@
+package com.kg2s.service.impl;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.kg2s.domain.CurrentWeather;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Reads the stored fields of an OpenWeatherMap /weather response token by token,
+ * straight from the response stream. Only the first entry of the weather array is looked at; every
+ * other value is skipped without being built. Condition names, descriptions and icons come from a
+ * small set, so they are taken from a table of recently seen strings instead of being allocated
+ * for each response.
+ */
+public class OpenWeatherMapDecoder {
+
+    private static final int STRING_TABLE_SIZE = 512;
+    private static final int MAX_TABLE_STRING_LENGTH = 64;
+
+    private final JsonFactory jsonFactory;
+
+    private final StringTable strings = new StringTable(STRING_TABLE_SIZE);
+
+    public OpenWeatherMapDecoder() {
+        this(JsonFactory.builder().build());
+    }
+
+    public OpenWeatherMapDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * @param body Response body, read up to the end of the top-level object and closed
+     */
+    public CurrentWeather decode(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return decode(parser);
+        }
+    }
+
+    public CurrentWeather decode(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return decode(parser);
+        }
+    }
+
+    private CurrentWeather decode(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonParseException(parser, "OpenWeatherMap response is not a JSON object");
+        }
+        CurrentWeather weather = null;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            if (weather == null && value == JsonToken.START_ARRAY && "weather".equals(field)) {
+                weather = readWeatherArray(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return weather != null ? weather : new CurrentWeather(-1, null, null, null);
+    }
+
+    /**
+     * Read the first entry and skip the others, leaving the parser at the end of the array
+     */
+    private CurrentWeather readWeatherArray(JsonParser parser) throws IOException {
+        CurrentWeather weather = null;
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            weather = readCondition(parser);
+            token = parser.nextToken();
+        }
+        while (token != null && token != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+            token = parser.nextToken();
+        }
+        return weather;
+    }
+
+    private CurrentWeather readCondition(JsonParser parser) throws IOException {
+        int id = -1;
+        String main = null;
+        String description = null;
+        String icon = null;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "id" -> id = readId(parser, value);
+                case "main" -> main = readText(parser, value);
+                case "description" -> description = readText(parser, value);
+                case "icon" -> icon = readText(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+        return new CurrentWeather(id, main, description, icon);
+    }
+
+    private static int readId(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.parseInt(parser.getText().trim());
+            } catch (NumberFormatException e) {
+                throw new JsonParseException(parser, "Weather condition id is not a number: " + parser.getText());
+            }
+        }
+        parser.skipChildren();
+        return -1;
+    }
+
+    private String readText(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return null;
+        }
+        int length = parser.getTextLength();
+        if (length > MAX_TABLE_STRING_LENGTH) {
+            return parser.getText();
+        }
+        return strings.get(parser.getTextCharacters(), parser.getTextOffset(), length);
+    }
+
+    /**
+     * Fixed-size table of strings by content. A slot holds the last string hashed to it; threads may
+     * overwrite each other's entries, which costs at most an extra allocation.
+     */
+    private static final class StringTable {
+        private final String[] slots;
+        private final int mask;
+
+        StringTable(int size) {
+            this.slots = new String[size];
+            this.mask = size - 1;
+        }
+
+        String get(char[] chars, int offset, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + chars[offset + i];
+            }
+            int index = (hash ^ hash >>> 16) & mask;
+            String cached = slots[index];
+            if (cached != null && matches(cached, chars, offset, length)) {
+                return cached;
+            }
+            String created = new String(chars, offset, length);
+            slots[index] = created;
+            return created;
+        }
+
+        private static boolean matches(String cached, char[] chars, int offset, int length) {
+            if (cached.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (cached.charAt(i) != chars[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
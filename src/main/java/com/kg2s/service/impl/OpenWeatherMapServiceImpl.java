@@ -1,16 +1,34 @@
 package com.kg2s.service.impl;
 
 import com.kg2s.config.OpenWeatherMapConfig;
-import com.kg2s.domain.OpenWeatherMapResponse;
+import com.kg2s.domain.CurrentWeather;
+import com.kg2s.exception.UpstreamQuotaExceededException;
+import com.kg2s.exception.UpstreamUnavailableException;
+import com.kg2s.resilience.CircuitBreaker;
+import com.kg2s.resilience.UpstreamQuotaGovernor;
+import com.kg2s.resilience.UpstreamQuotaGovernor.Priority;
 import com.kg2s.service.OpenWeatherMapService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.ResponseEntity;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
 
 /**
  * @author Yanfu Zhang
@@ -22,29 +40,78 @@ public class OpenWeatherMapServiceImpl implements OpenWeatherMapService {
     
     private static final Logger logger = LoggerFactory.getLogger(OpenWeatherMapServiceImpl.class);
     
+    private static final List<MediaType> ACCEPT_JSON = List.of(MediaType.APPLICATION_JSON);
+    
     @Autowired
     private OpenWeatherMapConfig openWeatherMapConfig;
     
     @Autowired
     private RestTemplate restTemplate;
     
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+    
+    @Autowired
+    private UpstreamQuotaGovernor quotaGovernor;
+    
+    /**
+     * Parsed and encoded once, only the variables are expanded per call
+     */
+    private UriComponents weatherUriTemplate;
+    
+    private UriComponents weatherByIdUriTemplate;
+    
+    private final OpenWeatherMapDecoder decoder = new OpenWeatherMapDecoder();
+    
+    @PostConstruct
+    public void init() {
+        weatherUriTemplate = UriComponentsBuilder.fromHttpUrl(openWeatherMapConfig.getBaseUrl())
+            .path("/weather")
+            .queryParam("q", "{city},{country}")
+            .queryParam("appid", "{appid}")
+            .queryParam("units", "{units}")
+            .encode()
+            .build();
+        weatherByIdUriTemplate = UriComponentsBuilder.fromHttpUrl(openWeatherMapConfig.getBaseUrl())
+            .path("/weather")
+            .queryParam("id", "{id}")
+            .queryParam("appid", "{appid}")
+            .queryParam("units", "{units}")
+            .encode()
+            .build();
+    }
+    
+    @Override
+    public CurrentWeather getWeatherData(String city, String country, Priority priority) {
+        return call(priority, buildApiUrl(city, country), city + "/" + country);
+    }
+    
     @Override
-    public OpenWeatherMapResponse getWeatherData(String city, String country) {
+    public CurrentWeather getWeatherDataById(long cityId, Priority priority) {
+        return call(priority, buildApiUrl(cityId), "city id " + cityId);
+    }
+    
+    private CurrentWeather call(Priority priority, URI url, String location) {
         try {
-            String url = buildApiUrl(city, country);
+            acquireQuota(priority);
             logger.info("Calling OpenWeatherMap API: {}", url);
             
-            ResponseEntity<OpenWeatherMapResponse> response = restTemplate.getForEntity(
-                url, OpenWeatherMapResponse.class);
+            CurrentWeather weather = openWeatherMapConfig.getCircuitBreaker().isEnabled()
+                ? circuitBreaker.execute(() -> fetch(url))
+                : fetch(url);
+            logger.info("Successfully retrieved weather data for {}", location);
+            return weather;
             
-            if (response.getStatusCode().is2xxSuccessful() && response.getBody() != null) {
-                logger.info("Successfully retrieved weather data for {}/{}", city, country);
-                return response.getBody();
-            } else {
-                logger.error("Failed to get weather data. Status: {}", response.getStatusCode());
-                throw new RuntimeException("Failed to get weather data from OpenWeatherMap API");
+        } catch (UpstreamUnavailableException e) {
+            // Failing fast on the open circuit or the spent call budget, without calling OpenWeatherMap
+            throw e;
+        } catch (HttpClientErrorException.TooManyRequests e) {
+            Duration retryAfter = retryAfter(e);
+            logger.warn("OpenWeatherMap API is throttling the account key, retry after {}", retryAfter);
+            if (openWeatherMapConfig.getQuota().isEnabled()) {
+                quotaGovernor.throttled(retryAfter);
             }
-            
+            throw new UpstreamQuotaExceededException("OpenWeatherMap API is throttling the account key", retryAfter);
         } catch (HttpClientErrorException e) {
             logger.error("HTTP error when calling OpenWeatherMap API: {}", e.getMessage());
             throw new RuntimeException("Error calling OpenWeatherMap API: " + e.getMessage());
@@ -57,13 +124,65 @@ public class OpenWeatherMapServiceImpl implements OpenWeatherMapService {
         }
     }
     
-    private String buildApiUrl(String city, String country) {
-        String baseUrl = openWeatherMapConfig.getBaseUrl();
-        String apiKey = openWeatherMapConfig.getKey();
-        String units = openWeatherMapConfig.getUnits();
-        
+    /**
+     * Take a call from the budget, unless the open circuit is going to refuse it anyway
+     */
+    private void acquireQuota(Priority priority) {
+        if (!openWeatherMapConfig.getQuota().isEnabled()) {
+            return;
+        }
+        if (openWeatherMapConfig.getCircuitBreaker().isEnabled() && !circuitBreaker.isCallPermitted()) {
+            return;
+        }
+        quotaGovernor.acquire(priority);
+    }
+    
+    private Duration retryAfter(HttpClientErrorException e) {
+        String header = e.getResponseHeaders() != null ? e.getResponseHeaders().getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (header != null) {
+            try {
+                return Duration.ofSeconds(Long.parseLong(header.trim()));
+            } catch (NumberFormatException ignored) {
+                // An HTTP date, not worth parsing for the few seconds it would save
+            }
+        }
+        return openWeatherMapConfig.getQuota().getThrottledRetryAfter();
+    }
+    
+    /**
+     * Decode the body as it arrives instead of binding the whole document; error statuses have
+     * already been turned into exceptions by the RestTemplate error handler
+     */
+    private CurrentWeather fetch(URI url) {
+        return restTemplate.execute(url, HttpMethod.GET,
+            request -> request.getHeaders().setAccept(ACCEPT_JSON),
+            this::decode);
+    }
+    
+    private CurrentWeather decode(ClientHttpResponse response) throws IOException {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            logger.error("Failed to get weather data. Status: {}", response.getStatusCode());
+            throw new RestClientException("Failed to get weather data from OpenWeatherMap API");
+        }
+        try {
+            return decoder.decode(response.getBody());
+        } catch (JsonProcessingException e) {
+            // Not an I/O failure, which RestTemplate would report as a network error
+            throw new RestClientException("Malformed OpenWeatherMap response: " + e.getOriginalMessage(), e);
+        }
+    }
+    
+    private URI buildApiUrl(String city, String country) {
         // Format: http://api.openweathermap.org/data/2.5/weather?q={city},{country}&appid={apiKey}&units={units}
-        return String.format("%s/weather?q=%s,%s&appid=%s&units=%s", 
-            baseUrl, city, country, apiKey, units);
+        return weatherUriTemplate
+            .expand(city, country, openWeatherMapConfig.getKey(), openWeatherMapConfig.getUnits())
+            .toUri();
+    }
+    
+    private URI buildApiUrl(long cityId) {
+        // Format: http://api.openweathermap.org/data/2.5/weather?id={cityId}&appid={apiKey}&units={units}
+        return weatherByIdUriTemplate
+            .expand(cityId, openWeatherMapConfig.getKey(), openWeatherMapConfig.getUnits())
+            .toUri();
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
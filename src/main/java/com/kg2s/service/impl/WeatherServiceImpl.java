@@ -1,19 +1,70 @@
 package com.kg2s.service.impl;
 
+import com.kg2s.apikey.ApiKeyRegistry;
+import com.kg2s.apikey.ApiKeyTier;
+import com.kg2s.apikey.Endpoint;
+import com.kg2s.cache.BackgroundRefresher;
+import com.kg2s.cache.FetchKey;
+import com.kg2s.cache.FrequencySketch;
+import com.kg2s.cache.LocationKey;
+import com.kg2s.cache.SerializedResponseCache;
+import com.kg2s.cache.SingleFlight;
+import com.kg2s.cache.WeatherDataCache;
 import com.kg2s.config.WeatherApiConfig;
 import com.kg2s.domain.*;
-import com.kg2s.repository.ApiKeyUsageRepository;
+import com.kg2s.exception.ForbiddenException;
+import com.kg2s.exception.UpstreamUnavailableException;
+import com.kg2s.http.SerializedWeatherInfo;
+import com.kg2s.location.LocationIndex;
+import com.kg2s.location.ResolvedLocation;
+import com.kg2s.metrics.WeatherMetrics;
+import com.kg2s.metrics.WeatherMetrics.Outcome;
+import com.kg2s.metrics.WeatherMetrics.Stage;
+import com.kg2s.persistence.WriteBehindWriter;
+import com.kg2s.ratelimit.RateLimiter;
+import com.kg2s.repository.DailyWeatherRollupRepository;
+import com.kg2s.repository.HourlyWeatherRollupRepository;
 import com.kg2s.repository.WeatherDataRepository;
+import com.kg2s.resilience.CircuitBreaker;
+import com.kg2s.resilience.UpstreamQuotaGovernor.Priority;
 import com.kg2s.service.WeatherService;
 import com.kg2s.service.OpenWeatherMapService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author Yanfu Zhang
@@ -27,7 +78,16 @@ public class WeatherServiceImpl implements WeatherService {
     private WeatherDataRepository weatherDataRepository;
     
     @Autowired
-    private ApiKeyUsageRepository apiKeyUsageRepository;
+    private HourlyWeatherRollupRepository hourlyRollupRepository;
+    
+    @Autowired
+    private DailyWeatherRollupRepository dailyRollupRepository;
+    
+    @Autowired
+    private RateLimiter rateLimiter;
+    
+    @Autowired
+    private ApiKeyRegistry apiKeyRegistry;
     
     @Autowired
     private WeatherApiConfig weatherApiConfig;
@@ -35,143 +95,641 @@ public class WeatherServiceImpl implements WeatherService {
     @Autowired
     private OpenWeatherMapService openWeatherMapService;
     
+    @Autowired
+    private LocationIndex locationIndex;
+    
+    @Autowired
+    private WeatherDataCache weatherDataCache;
+    
+    @Autowired
+    private SerializedResponseCache serializedResponses;
+    
+    @Autowired
+    private SingleFlight<FetchKey, WeatherData> upstreamFetches;
+    
+    @Autowired
+    private WriteBehindWriter writeBehindWriter;
+    
+    @Autowired
+    @Qualifier("upstreamFetchExecutor")
+    private ExecutorService upstreamFetchExecutor;
+    
+    @Autowired
+    private BackgroundRefresher backgroundRefresher;
+    
+    @Autowired
+    private CircuitBreaker circuitBreaker;
+    
+    @Autowired
+    private FrequencySketch<LocationKey> requestFrequency;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    @Autowired
+    private WeatherMetrics weatherMetrics;
+    
     private static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    // Batch calls queued behind other batches are expected to drain within seconds
+    private static final Duration FETCH_REJECTED_RETRY_AFTER = Duration.ofSeconds(1);
+    
+    // Open bounds of a history time range
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
 
     @Override
     public WeatherInfoResp getWeatherInfo(String city, String country, String apiKey) {
-        // Validate API key
-        if (!isValidApiKey(apiKey)) {
-            throw new IllegalArgumentException("Invalid API key");
+        return getWeatherInfo(locationIndex.resolve(city, country), apiKey);
+    }
+    
+    private WeatherInfoResp getWeatherInfo(ResolvedLocation location, String apiKey) {
+        String city = location.city();
+        String country = location.country();
+        ApiKeyTier tier = validateApiKey(apiKey, Endpoint.WEATHER);
+        acquireRateLimit(apiKey, tier, 1);
+        requestFrequency.increment(LocationKey.of(city, country));
+        
+        // Serve fresh data from memory without touching the database
+        long start = System.nanoTime();
+        Optional<WeatherData> cachedData = weatherDataCache.get(city, country);
+        if (cachedData.isPresent()) {
+            weatherMetrics.record(Stage.CACHE, Outcome.HIT, start);
+            return convertToResponse(cachedData.get(), apiKey);
         }
         
-        // Check rate limit
-        if (!checkRateLimit(apiKey)) {
-            throw new RuntimeException("Hourly rate limit exceeded for API key: " + apiKey);
+        // Within the grace window, answer right away and refresh behind the request
+        Optional<WeatherData> staleData = weatherDataCache.getStale(city, country);
+        weatherMetrics.record(Stage.CACHE, staleData.isPresent() ? Outcome.STALE : Outcome.MISS, start);
+        if (staleData.isPresent()) {
+            return serve(staleData.get(), apiKey);
         }
         
-        // Check if we have recent data in database (within last hour)
+        // Check if we have recent data in database (fresh, or stale within the grace window)
+        start = System.nanoTime();
         Optional<WeatherData> existingData = weatherDataRepository.findLatestByCityAndCountry(city, country);
-        if (existingData.isPresent() && isDataRecent(existingData.get())) {
+        if (existingData.isPresent() && weatherDataCache.isServable(existingData.get())) {
             WeatherData data = existingData.get();
-            return convertToResponse(data);
+            weatherMetrics.record(Stage.DATABASE, weatherDataCache.isFresh(data) ? Outcome.HIT : Outcome.STALE, start);
+            weatherDataCache.put(data);
+            return serve(data, apiKey);
         }
+        weatherMetrics.record(Stage.DATABASE, Outcome.MISS, start);
         
-        // Call OpenWeatherMap API to get real weather data
-        OpenWeatherMapResponse openWeatherResponse = openWeatherMapService.getWeatherData(city, country);
+        // Concurrent misses for the same location share one upstream call and one persisted row
+        WeatherData weatherData;
+        try {
+            weatherData = upstreamFetches.execute(FetchKey.of(LocationKey.of(city, country), Priority.USER),
+                () -> fetchAndStore(city, country, apiKey, Priority.USER));
+        } catch (UpstreamUnavailableException e) {
+            // OpenWeatherMap is failing fast, the last persisted data is better than nothing
+            WeatherData lastKnown = existingData.orElseThrow(() -> e);
+            return markStale(convertToResponse(lastKnown, apiKey), lastKnown);
+        }
+        
+        return convertToResponse(weatherData, apiKey);
+    }
+
+    @Override
+    public WeatherInfoResp getWeatherInfo(String city, String country, String apiKey,
+                                          Predicate<WeatherVersion> notModified) {
+        ResolvedLocation location = locationIndex.resolve(city, country);
+        ApiKeyTier tier = validateApiKey(apiKey, Endpoint.WEATHER);
         
-        // Convert OpenWeatherMap response to our WeatherData entity
-        WeatherData weatherData = convertOpenWeatherResponseToWeatherData(openWeatherResponse, city, country, apiKey);
+        Optional<WeatherData> current = weatherDataCache.peekServable(location.city(), location.country());
+        if (current.isEmpty() || !notModified.test(versionOf(current.get()))) {
+            return getWeatherInfo(location, apiKey);
+        }
+        
+        // The client's copy is current: the caller answers 304 from the version alone
+        if (weatherApiConfig.getRateLimit().isCountNotModified()) {
+            acquireRateLimit(apiKey, tier, 1);
+        }
+        requestFrequency.increment(LocationKey.of(location.city(), location.country()));
+        return serve(current.get(), apiKey);
+    }
+
+    @Override
+    public SerializedWeatherInfo getSerializedWeatherInfo(String city, String country, String apiKey,
+                                                          Predicate<WeatherVersion> notModified) {
+        if (!weatherApiConfig.getCache().isSerializedResponses()) {
+            return null;
+        }
+        ResolvedLocation location = locationIndex.resolve(city, country);
+        LocationKey key = LocationKey.of(location.city(), location.country());
+        long start = System.nanoTime();
+        Optional<WeatherData> fresh = weatherDataCache.peek(key.city(), key.country());
+        if (fresh.isEmpty()) {
+            return null;
+        }
+        long lookupNanos = System.nanoTime() - start;
+        
+        // From here on the request is answered from these bytes, counted as getWeatherInfo counts it
+        ApiKeyTier tier = validateApiKey(apiKey, Endpoint.WEATHER);
+        SerializedWeatherInfo serialized = serializedResponses.get(fresh.get(), this::serialize);
+        if (notModified.test(serialized.getVersion())) {
+            if (weatherApiConfig.getRateLimit().isCountNotModified()) {
+                acquireRateLimit(apiKey, tier, 1);
+            }
+            requestFrequency.increment(key);
+            return serialized;
+        }
+        acquireRateLimit(apiKey, tier, 1);
+        requestFrequency.increment(key);
+        weatherDataCache.recordHit();
+        // The cache stage is the lookup alone, as in getWeatherInfo
+        weatherMetrics.record(Stage.CACHE, Outcome.HIT, System.nanoTime() - lookupNanos);
+        return serialized;
+    }
+
+    @Override
+    public List<WeatherBatchItemResp> getWeatherInfoBatch(List<WeatherLocationReq> locations, String apiKey) {
+        ApiKeyTier tier = validateApiKey(apiKey, Endpoint.BATCH);
+        
+        if (locations == null || locations.isEmpty()) {
+            throw new IllegalArgumentException("At least one location is required");
+        }
+        int maxSize = weatherApiConfig.getBatch().getMaxSize();
+        if (locations.size() > maxSize) {
+            throw new IllegalArgumentException("At most " + maxSize + " locations are allowed per batch");
+        }
         
-        // Save to database
-        weatherDataRepository.save(weatherData);
+        // Every location counts as one request, granted or refused as a whole
+        acquireRateLimit(apiKey, tier, locations.size());
         
-        // Update API key usage
-        updateApiKeyUsage(apiKey);
+        // Serve what we can from memory; spellings of one location share its key, so it is looked up once
+        LocationKey[] keys = new LocationKey[locations.size()];
+        Map<LocationKey, WeatherData> resolved = new HashMap<>();
+        Set<LocationKey> missing = new LinkedHashSet<>();
+        for (int i = 0; i < locations.size(); i++) {
+            WeatherLocationReq location = locations.get(i);
+            if (isBlank(location.getCity()) || isBlank(location.getCountry())) {
+                continue;
+            }
+            ResolvedLocation resolvedLocation = locationIndex.resolve(location.getCity(), location.getCountry());
+            LocationKey key = LocationKey.of(resolvedLocation.city(), resolvedLocation.country());
+            keys[i] = key;
+            requestFrequency.increment(key);
+            if (!resolved.containsKey(key) && !missing.contains(key)) {
+                weatherDataCache.get(key.city(), key.country())
+                    .or(() -> weatherDataCache.getStale(key.city(), key.country()))
+                    .ifPresentOrElse(data -> resolved.put(key, data), () -> missing.add(key));
+            }
+        }
         
-        return convertToResponse(weatherData);
+        // Then from the database in a single query, then from OpenWeatherMap in parallel
+        if (!missing.isEmpty()) {
+            resolveFromDatabase(missing, resolved);
+        }
+        Map<LocationKey, CompletableFuture<WeatherData>> fetches = fetchInParallel(missing, apiKey);
+        
+        List<WeatherBatchItemResp> items = new ArrayList<>(locations.size());
+        for (int i = 0; i < locations.size(); i++) {
+            String city = locations.get(i).getCity();
+            String country = locations.get(i).getCountry();
+            LocationKey key = keys[i];
+            if (key == null) {
+                items.add(WeatherBatchItemResp.error(city, country, "City and country are required"));
+                continue;
+            }
+            WeatherData data = resolved.get(key);
+            if (data != null) {
+                items.add(WeatherBatchItemResp.ok(city, country, serve(data, apiKey)));
+                continue;
+            }
+            try {
+                items.add(WeatherBatchItemResp.ok(city, country, convertToResponse(fetches.get(key).join(), apiKey)));
+            } catch (CompletionException e) {
+                Optional<WeatherData> lastKnown = e.getCause() instanceof UpstreamUnavailableException
+                    ? weatherDataRepository.findLatestByCityAndCountry(key.city(), key.country())
+                    : Optional.empty();
+                // A failed location does not fail the rest of the batch
+                items.add(lastKnown
+                    .map(last -> WeatherBatchItemResp.ok(city, country, markStale(convertToResponse(last, apiKey), last)))
+                    .orElseGet(() -> WeatherBatchItemResp.error(city, country, e.getCause().getMessage())));
+            }
+        }
+        return items;
     }
 
     @Override
-    public List<WeatherInfoResp> getWeatherHistory(String city, String country) {
-        List<WeatherData> weatherDataList = weatherDataRepository.findByCityAndCountryOrderByTimestampDesc(city, country);
-        return weatherDataList.stream()
-                .map(this::convertToResponse)
-                .collect(Collectors.toList());
+    public WeatherHistoryPage getWeatherHistory(String city, String country, LocalDateTime from, LocalDateTime to,
+                                                String cursor, Integer limit) {
+        ResolvedLocation location = locationIndex.resolve(city, country);
+        Map<HistoryTier, HistoryPageQuery> tiers = new EnumMap<>(HistoryTier.class);
+        tiers.put(HistoryTier.RAW, (since, beforeTimestamp, beforeId, pageable) ->
+            rawRows(weatherDataRepository.findPageByCityAndCountry(location.city(), location.country(), since,
+                beforeTimestamp, beforeId, pageable)));
+        tiers.put(HistoryTier.HOURLY, (since, beforeTimestamp, beforeId, pageable) ->
+            rollupRows(hourlyRollupRepository.findPageByCityAndCountry(location.city(), location.country(), since,
+                beforeTimestamp, beforeId, pageable), HistoryTier.HOURLY));
+        tiers.put(HistoryTier.DAILY, (since, beforeTimestamp, beforeId, pageable) ->
+            rollupRows(dailyRollupRepository.findPageByCityAndCountry(location.city(), location.country(), since,
+                beforeTimestamp, beforeId, pageable), HistoryTier.DAILY));
+        return readHistoryPage(from, to, cursor, limit, tiers);
     }
 
     @Override
-    public List<WeatherInfoResp> getWeatherHistoryByApiKey(String apiKey) {
-        List<WeatherData> weatherDataList = weatherDataRepository.findByApiKeyOrderByTimestampDesc(apiKey);
-        return weatherDataList.stream()
-                .map(this::convertToResponse)
+    public WeatherHistoryPage getWeatherHistoryByApiKey(String apiKey, LocalDateTime from, LocalDateTime to,
+                                                        String cursor, Integer limit) {
+        validateApiKey(apiKey, Endpoint.HISTORY);
+        
+        // Rollups are per location, history by API key ends with the raw retention
+        Map<HistoryTier, HistoryPageQuery> tiers = new EnumMap<>(HistoryTier.class);
+        tiers.put(HistoryTier.RAW, (since, beforeTimestamp, beforeId, pageable) ->
+            rawRows(weatherDataRepository.findPageByApiKey(apiKey, since, beforeTimestamp, beforeId, pageable)));
+        return readHistoryPage(from, to, cursor, limit, tiers);
+    }
+
+    @Override
+    public void streamWeatherHistory(String city, String country, LocalDateTime from, LocalDateTime to,
+                                     OutputStream out) {
+        ResolvedLocation location = locationIndex.resolve(city, country);
+        LocalDateTime since = orEarliest(from);
+        LocalDateTime until = orLatest(to);
+        writeHistory(List.of(
+            () -> weatherDataRepository.streamByCityAndCountry(location.city(), location.country(), since, until)
+                .map(this::convertToResponse),
+            () -> hourlyRollupRepository.streamByCityAndCountry(location.city(), location.country(), since, until)
+                .map(row -> convertToResponse(row, HistoryTier.HOURLY)),
+            () -> dailyRollupRepository.streamByCityAndCountry(location.city(), location.country(), since, until)
+                .map(row -> convertToResponse(row, HistoryTier.DAILY))), out);
+    }
+
+    @Override
+    public void streamWeatherHistoryByApiKey(String apiKey, LocalDateTime from, LocalDateTime to, OutputStream out) {
+        writeHistory(List.of(() -> weatherDataRepository.streamByApiKey(apiKey, orEarliest(from), orLatest(to))
+            .map(this::convertToResponse)), out);
+    }
+    
+    /**
+     * Keyset page query on one tier: rows not older than since and strictly before (beforeTimestamp, beforeId)
+     */
+    private interface HistoryPageQuery {
+        List<HistoryRow> find(LocalDateTime since, LocalDateTime beforeTimestamp, Long beforeId, Pageable pageable);
+    }
+    
+    /**
+     * A history item and the cursor pointing right after it
+     */
+    private record HistoryRow(WeatherInfoResp response, HistoryCursor position) {
+    }
+    
+    private List<HistoryRow> rawRows(List<WeatherDataView> rows) {
+        return rows.stream()
+                .map(row -> new HistoryRow(convertToResponse(row), HistoryCursor.after(row)))
+                .collect(Collectors.toList());
+    }
+    
+    private List<HistoryRow> rollupRows(List<WeatherRollupView> rows, HistoryTier tier) {
+        return rows.stream()
+                .map(row -> new HistoryRow(convertToResponse(row, tier), HistoryCursor.after(row, tier)))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * Read a page from the tiers in order, newest first: the raw observations, then the rollups they
+     * were compacted into. Compaction goes oldest first, so every tier only holds older data than the
+     * previous one and a page simply continues into the next tier when the current one runs out.
+     */
+    private WeatherHistoryPage readHistoryPage(LocalDateTime from, LocalDateTime to, String cursor, Integer limit,
+                                               Map<HistoryTier, HistoryPageQuery> tiers) {
+        WeatherApiConfig.History history = weatherApiConfig.getHistory();
+        int pageSize = limit == null ? history.getDefaultLimit() : limit;
+        if (pageSize < 1 || pageSize > history.getMaxLimit()) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + history.getMaxLimit());
+        }
+        
+        // Start right below the upper bound, or below the cursor when continuing
+        LocalDateTime beforeTimestamp = orLatest(to);
+        long beforeId = Long.MIN_VALUE;
+        HistoryTier startTier = HistoryTier.RAW;
+        if (cursor != null) {
+            HistoryCursor position = HistoryCursor.decode(cursor);
+            if (!position.timestamp().isAfter(beforeTimestamp)) {
+                beforeTimestamp = position.timestamp();
+                beforeId = position.id();
+                startTier = position.tier();
+            }
+        }
+        
+        // One extra row tells whether there is a next page
+        List<HistoryRow> rows = new ArrayList<>();
+        for (Map.Entry<HistoryTier, HistoryPageQuery> tier : tiers.entrySet()) {
+            if (tier.getKey().compareTo(startTier) < 0) {
+                continue;
+            }
+            if (tier.getKey() != startTier && beforeId != Long.MIN_VALUE) {
+                // Ids of another table mean nothing here, everything at the cursor timestamp is still to come
+                beforeId = Long.MAX_VALUE;
+            }
+            rows.addAll(tier.getValue().find(orEarliest(from), beforeTimestamp, beforeId,
+                PageRequest.of(0, pageSize + 1 - rows.size())));
+            if (rows.size() > pageSize) {
+                break;
+            }
+        }
+        boolean hasNext = rows.size() > pageSize;
+        List<HistoryRow> page = hasNext ? rows.subList(0, pageSize) : rows;
+        
+        List<WeatherInfoResp> items = page.stream()
+                .map(HistoryRow::response)
                 .collect(Collectors.toList());
+        String nextCursor = hasNext ? page.get(page.size() - 1).position().encode() : null;
+        return new WeatherHistoryPage(items, nextCursor);
+    }
+    
+    /**
+     * Write rows one per line while they are read, tier after tier; projections are not managed,
+     * so memory stays flat
+     */
+    private void writeHistory(List<Supplier<Stream<WeatherInfoResp>>> tiers, OutputStream out) {
+        ObjectWriter writer = objectMapper.writerFor(WeatherInfoResp.class)
+            .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        
+        readOnly.executeWithoutResult(status -> {
+            try {
+                for (Supplier<Stream<WeatherInfoResp>> tier : tiers) {
+                    try (Stream<WeatherInfoResp> rows = tier.get()) {
+                        Iterator<WeatherInfoResp> iterator = rows.iterator();
+                        while (iterator.hasNext()) {
+                            writer.writeValue(out, iterator.next());
+                            out.write('\n');
+                        }
+                    }
+                }
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    private static LocalDateTime orEarliest(LocalDateTime from) {
+        return from != null ? from : EARLIEST;
+    }
+    
+    private static LocalDateTime orLatest(LocalDateTime to) {
+        return to != null ? to : LATEST;
+    }
+    
+    /**
+     * Move locations with fresh data in the database from missing to resolved
+     */
+    private void resolveFromDatabase(Set<LocationKey> missing, Map<LocationKey, WeatherData> resolved) {
+        Set<String> cities = missing.stream().map(LocationKey::city).collect(Collectors.toSet());
+        Map<LocationKey, WeatherData> latest = new HashMap<>();
+        for (WeatherData data : weatherDataRepository.findRecentByCities(cities, weatherDataCache.servableSince())) {
+            LocationKey key = LocationKey.of(data.getCity(), data.getCountry());
+            if (missing.contains(key)) {
+                latest.merge(key, data, (current, candidate) ->
+                    candidate.getTimestamp().isAfter(current.getTimestamp()) ? candidate : current);
+            }
+        }
+        latest.forEach((key, data) -> {
+            weatherDataCache.put(data);
+            resolved.put(key, data);
+            missing.remove(key);
+        });
+    }
+    
+    /**
+     * Fetch every location from OpenWeatherMap, with at most batch.parallelism calls of this batch
+     * queued or running. Permits are taken before submitting, so one batch cannot fill the pool
+     * shared by all batches. Once that pool's queue is full nothing more is submitted: the
+     * locations left fail on their own, the calls already submitted still count.
+     */
+    private Map<LocationKey, CompletableFuture<WeatherData>> fetchInParallel(Set<LocationKey> locations, String apiKey) {
+        Semaphore permits = new Semaphore(weatherApiConfig.getBatch().getParallelism());
+        Map<LocationKey, CompletableFuture<WeatherData>> fetches = new HashMap<>();
+        CompletableFuture<WeatherData> rejected = null;
+        for (LocationKey key : locations) {
+            if (rejected != null) {
+                fetches.put(key, rejected);
+                continue;
+            }
+            permits.acquireUninterruptibly();
+            CompletableFuture<WeatherData> fetch;
+            try {
+                fetch = CompletableFuture.supplyAsync(() -> upstreamFetches.execute(FetchKey.of(key, Priority.USER),
+                    () -> fetchAndStore(key.city(), key.country(), apiKey, Priority.USER)), upstreamFetchExecutor);
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                rejected = CompletableFuture.failedFuture(new UpstreamUnavailableException(
+                    "Too many OpenWeatherMap calls queued, try again shortly", FETCH_REJECTED_RETRY_AFTER));
+                fetches.put(key, rejected);
+                continue;
+            }
+            fetch.whenComplete((data, error) -> permits.release());
+            fetches.put(key, fetch);
+        }
+        return fetches;
+    }
+    
+    /**
+     * Convert cached or persisted data; data past freshness is marked with its age and refreshed
+     * in the background, so the caller does not wait for OpenWeatherMap
+     */
+    private WeatherInfoResp serve(WeatherData data, String apiKey) {
+        if (weatherDataCache.isFresh(data)) {
+            return convertToResponse(data, apiKey);
+        }
+        // No point queueing a refresh that would be refused by the open circuit
+        if (circuitBreaker.isCallPermitted()) {
+            String city = data.getCity();
+            String country = data.getCountry();
+            LocationKey key = LocationKey.of(city, country);
+            backgroundRefresher.schedule(key,
+                () -> upstreamFetches.execute(FetchKey.of(key, Priority.BACKGROUND),
+                    () -> fetchAndStore(city, country, WeatherData.SYSTEM_API_KEY, Priority.BACKGROUND)));
+        }
+        return markStale(convertToResponse(data, apiKey), data);
+    }
+    
+    private WeatherInfoResp markStale(WeatherInfoResp response, WeatherData data) {
+        response.setStale(true);
+        response.setAgeSeconds(Duration.between(data.getTimestamp(), LocalDateTime.now()).getSeconds());
+        return response;
+    }
+    
+    @Override
+    public void refreshWeatherInfo(String city, String country) {
+        upstreamFetches.execute(FetchKey.of(LocationKey.of(city, country), Priority.BACKGROUND),
+            () -> fetchAndStoreNow(city, country, WeatherData.SYSTEM_API_KEY, Priority.BACKGROUND));
+    }
+    
+    /**
+     * Call OpenWeatherMap API and persist the result, unless another caller refreshed the location meanwhile
+     */
+    private WeatherData fetchAndStore(String city, String country, String apiKey, Priority priority) {
+        Optional<WeatherData> refreshedData = weatherDataCache.peek(city, country);
+        if (refreshedData.isPresent()) {
+            return refreshedData.get();
+        }
+        return fetchAndStoreNow(city, country, apiKey, priority);
+    }
+    
+    private WeatherData fetchAndStoreNow(String city, String country, String apiKey, Priority priority) {
+        // Call OpenWeatherMap API to get real weather data
+        long start = System.nanoTime();
+        long cityId = locationIndex.cityId(city, country);
+        WeatherData weatherData;
+        try {
+            // A listed city is asked for by id, which cannot match another place of the same name
+            CurrentWeather openWeatherResponse = cityId > 0 && weatherApiConfig.getLocations().isQueryById()
+                ? openWeatherMapService.getWeatherDataById(cityId, priority)
+                : openWeatherMapService.getWeatherData(city, country, priority);
+            
+            // Convert OpenWeatherMap response to our WeatherData entity
+            weatherData = convertOpenWeatherResponseToWeatherData(openWeatherResponse, city, country, apiKey);
+            weatherData.setCityId(cityId > 0 ? cityId : null);
+        } catch (UpstreamUnavailableException e) {
+            weatherMetrics.record(Stage.UPSTREAM, Outcome.REJECTED, start);
+            throw e;
+        } catch (RuntimeException e) {
+            weatherMetrics.record(Stage.UPSTREAM, Outcome.ERROR, start);
+            throw e;
+        }
+        weatherMetrics.record(Stage.UPSTREAM, Outcome.SUCCESS, start);
+        
+        // Cache first so the data is served right away, the database insert is batched in the background
+        start = System.nanoTime();
+        try {
+            weatherDataCache.put(weatherData);
+            writeBehindWriter.enqueue(weatherData);
+        } catch (RuntimeException e) {
+            weatherMetrics.record(Stage.SAVE, Outcome.ERROR, start);
+            throw e;
+        }
+        weatherMetrics.record(Stage.SAVE, Outcome.SUCCESS, start);
+        return weatherData;
     }
     
     /**
      * Convert OpenWeatherMap API response to WeatherData entity
      */
-    private WeatherData convertOpenWeatherResponseToWeatherData(OpenWeatherMapResponse response, String city, String country, String apiKey) {
-        if (response.getWeather() == null || response.getWeather().isEmpty()) {
+    private WeatherData convertOpenWeatherResponseToWeatherData(CurrentWeather weather, String city, String country, String apiKey) {
+        if (!weather.hasCondition()) {
             throw new RuntimeException("No weather data received from OpenWeatherMap API");
         }
         
-        OpenWeatherMapResponse.Weather weather = response.getWeather().get(0);
-        
         return new WeatherData(
             city,
             country,
             apiKey,
-            weather.getId(),
-            weather.getMain(),
-            weather.getDescription(),
-            weather.getIcon()
+            Integer.toString(weather.weatherId()),
+            weather.main(),
+            weather.description(),
+            weather.icon()
         );
     }
     
-    private boolean isValidApiKey(String apiKey) {
-        return weatherApiConfig.getKeys() != null && weatherApiConfig.getKeys().contains(apiKey);
+    @Override
+    public void checkApiKey(String apiKey, Endpoint endpoint) {
+        validateApiKey(apiKey, endpoint);
     }
     
-    private boolean checkRateLimit(String apiKey) {
-        Optional<ApiKeyUsage> usage = apiKeyUsageRepository.findByApiKey(apiKey);
-        
-        if (usage.isEmpty()) {
-            return true; // First request
+    /**
+     * Look up the key and check that its tier may call the endpoint
+     */
+    private ApiKeyTier validateApiKey(String apiKey, Endpoint endpoint) {
+        long start = System.nanoTime();
+        ApiKeyTier tier = apiKeyRegistry.resolve(apiKey);
+        boolean allowed = tier != null && tier.allows(endpoint);
+        weatherMetrics.record(Stage.KEY_VALIDATION, allowed ? Outcome.SUCCESS : Outcome.REJECTED, start);
+        if (tier == null) {
+            throw new IllegalArgumentException("Invalid API key");
         }
-        
-        ApiKeyUsage apiKeyUsage = usage.get();
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime hourStart = now.withMinute(0).withSecond(0).withNano(0);
-        
-        // If it's a new hour, reset the counter
-        if (apiKeyUsage.getHourStart().isBefore(hourStart)) {
-            apiKeyUsage.setRequestCount(0);
-            apiKeyUsage.setHourStart(hourStart);
+        if (!allowed) {
+            throw new ForbiddenException("API key tier " + tier.name() + " does not include the "
+                + endpoint.name().toLowerCase() + " endpoint");
         }
-        
-        return apiKeyUsage.getRequestCount() < weatherApiConfig.getRateLimit().getRequestsPerHour();
+        return tier;
     }
     
-    private void updateApiKeyUsage(String apiKey) {
-        Optional<ApiKeyUsage> usage = apiKeyUsageRepository.findByApiKey(apiKey);
-        ApiKeyUsage apiKeyUsage;
-        
-        if (usage.isEmpty()) {
-            apiKeyUsage = new ApiKeyUsage(apiKey);
-        } else {
-            apiKeyUsage = usage.get();
-        }
-        
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime hourStart = now.withMinute(0).withSecond(0).withNano(0);
-        
-        // If it's a new hour, reset the counter
-        if (apiKeyUsage.getHourStart().isBefore(hourStart)) {
-            apiKeyUsage.setRequestCount(0);
-            apiKeyUsage.setHourStart(hourStart);
+    /**
+     * Check and consume the rate limit of the key's tier in one atomic step
+     */
+    private void acquireRateLimit(String apiKey, ApiKeyTier tier, int permits) {
+        long start = System.nanoTime();
+        boolean acquired = rateLimiter.tryAcquire(apiKey, permits, tier.quota());
+        weatherMetrics.record(Stage.RATE_LIMIT, acquired ? Outcome.SUCCESS : Outcome.REJECTED, start);
+        if (!acquired) {
+            throw new RuntimeException("Hourly rate limit exceeded for API key: " + apiKey);
         }
-        
-        apiKeyUsage.setRequestCount(apiKeyUsage.getRequestCount() + 1);
-        apiKeyUsage.setLastRequestTime(now);
-        
-        apiKeyUsageRepository.save(apiKeyUsage);
     }
     
-    private boolean isDataRecent(WeatherData data) {
-        LocalDateTime oneHourAgo = LocalDateTime.now().minusHours(1);
-        return data.getTimestamp().isAfter(oneHourAgo);
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
     }
     
-    private WeatherInfoResp convertToResponse(WeatherData data) {
-        return new WeatherInfoResp(
+    // Package-private, with convertToResponse, for the JMH benchmarks (src/jmh/java)
+    boolean isValidApiKey(String apiKey) {
+        return apiKeyRegistry.resolve(apiKey) != null;
+    }
+    
+    /**
+     * Response for the requesting API key; the data is shared by every client asking for the location,
+     * so the key it was fetched with is not theirs to see
+     */
+    WeatherInfoResp convertToResponse(WeatherData data, String apiKey) {
+        WeatherInfoResp response = new WeatherInfoResp(
             data.getWeatherId(),
             data.getMain(),
             data.getDescription(),
             data.getIcon(),
             data.getCity(),
             data.getCountry(),
-            data.getApiKey(),
+            apiKey,
             data.getTimestamp().format(TIMESTAMP_FORMATTER)
         );
+        response.setVersion(versionOf(data));
+        return response;
+    }
+    
+    private SerializedWeatherInfo serialize(WeatherData data) {
+        try {
+            return SerializedWeatherInfo.of(data, convertToResponse(data, null), objectMapper.writerFor(WeatherInfoResp.class));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private WeatherVersion versionOf(WeatherData data) {
+        return WeatherVersion.of(data, weatherDataCache.getFreshness(), LocalDateTime.now());
+    }
+    
+    private WeatherInfoResp convertToResponse(WeatherRollupView row, HistoryTier tier) {
+        WeatherInfoResp response = new WeatherInfoResp(
+            row.weatherId(),
+            row.main(),
+            row.description(),
+            row.icon(),
+            row.city(),
+            row.country(),
+            null,
+            row.periodStart().format(TIMESTAMP_FORMATTER)
+        );
+        response.setResolution(tier.name().toLowerCase());
+        response.setObservations(row.observationCount());
+        return response;
+    }
+    
+    private WeatherInfoResp convertToResponse(WeatherDataView row) {
+        return new WeatherInfoResp(
+            row.weatherId(),
+            row.main(),
+            row.description(),
+            row.icon(),
+            row.city(),
+            row.country(),
+            row.apiKey(),
+            row.timestamp().format(TIMESTAMP_FORMATTER)
+        );
     }
 } 
\ No newline at end of file
@@ -0,0 +1,26 @@
+-- Baseline schema, matching what Hibernate used to generate with ddl-auto: create-drop
+
+CREATE SEQUENCE weather_data_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE api_key_usage_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE weather_data (
+    id          BIGINT       NOT NULL PRIMARY KEY,
+    city        VARCHAR(255) NOT NULL,
+    country     VARCHAR(255) NOT NULL,
+    api_key     VARCHAR(255) NOT NULL,
+    weather_id  VARCHAR(255) NOT NULL,
+    main        VARCHAR(255) NOT NULL,
+    description VARCHAR(255) NOT NULL,
+    icon        VARCHAR(255) NOT NULL,
+    timestamp   TIMESTAMP(6) NOT NULL,
+    created_at  TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE api_key_usage (
+    id                BIGINT       NOT NULL PRIMARY KEY,
+    api_key           VARCHAR(255) NOT NULL,
+    request_count     INTEGER      NOT NULL,
+    last_request_time TIMESTAMP(6) NOT NULL,
+    hour_start        TIMESTAMP(6) NOT NULL,
+    CONSTRAINT uk_api_key_usage_api_key UNIQUE (api_key)
+);
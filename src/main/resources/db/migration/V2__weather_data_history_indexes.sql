@@ -0,0 +1,6 @@
+-- Latest/history lookups by location and history by API key read a range of one index
+-- in (timestamp, id) order instead of scanning and sorting the whole table.
+-- The id column is the keyset tie-breaker used by history pagination.
+
+CREATE INDEX idx_weather_data_location_ts ON weather_data (city, country, timestamp, id);
+CREATE INDEX idx_weather_data_api_key_ts ON weather_data (api_key, timestamp, id);
@@ -0,0 +1,39 @@
+-- Retention tiers: raw weather_data rows past their retention are compacted into hourly rollups,
+-- hourly rollups past theirs into daily rollups. A rollup keeps the dominant condition of its
+-- period, how many observations had it and how many observations there were in total.
+
+CREATE SEQUENCE weather_rollup_hourly_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE weather_rollup_daily_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE weather_rollup_hourly (
+    id                BIGINT       NOT NULL PRIMARY KEY,
+    city              VARCHAR(255) NOT NULL,
+    country           VARCHAR(255) NOT NULL,
+    period_start      TIMESTAMP(6) NOT NULL,
+    weather_id        VARCHAR(255) NOT NULL,
+    main              VARCHAR(255) NOT NULL,
+    description       VARCHAR(255) NOT NULL,
+    icon              VARCHAR(255) NOT NULL,
+    dominant_count    INTEGER      NOT NULL,
+    observation_count INTEGER      NOT NULL,
+    CONSTRAINT uk_weather_rollup_hourly_location_period UNIQUE (city, country, period_start)
+);
+
+CREATE TABLE weather_rollup_daily (
+    id                BIGINT       NOT NULL PRIMARY KEY,
+    city              VARCHAR(255) NOT NULL,
+    country           VARCHAR(255) NOT NULL,
+    period_start      TIMESTAMP(6) NOT NULL,
+    weather_id        VARCHAR(255) NOT NULL,
+    main              VARCHAR(255) NOT NULL,
+    description       VARCHAR(255) NOT NULL,
+    icon              VARCHAR(255) NOT NULL,
+    dominant_count    INTEGER      NOT NULL,
+    observation_count INTEGER      NOT NULL,
+    CONSTRAINT uk_weather_rollup_daily_location_period UNIQUE (city, country, period_start)
+);
+
+-- Compaction and purge walk each tier oldest first
+CREATE INDEX idx_weather_data_ts ON weather_data (timestamp, id);
+CREATE INDEX idx_weather_rollup_hourly_period ON weather_rollup_hourly (period_start, id);
+CREATE INDEX idx_weather_rollup_daily_period ON weather_rollup_daily (period_start, id);
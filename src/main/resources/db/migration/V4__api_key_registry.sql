@@ -0,0 +1,10 @@
+-- API keys with their tier (api.key-registry.tiers). Revoked keys are kept, so a key listed
+-- under api.keys is not brought back by the next start.
+
+CREATE TABLE api_key (
+    api_key    VARCHAR(255) NOT NULL PRIMARY KEY,
+    tier       VARCHAR(64)  NOT NULL,
+    revoked    BOOLEAN      NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL
+);
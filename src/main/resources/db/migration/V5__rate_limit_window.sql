@@ -0,0 +1,8 @@
+-- Shared hourly usage per API key for the cluster rate limiter engine. Every instance consumes
+-- permits with one conditional UPDATE, which also rolls the row over to a new hour.
+
+CREATE TABLE rate_limit_window (
+    api_key     VARCHAR(255) NOT NULL PRIMARY KEY,
+    window_hour BIGINT       NOT NULL,
+    used        INTEGER      NOT NULL
+);
@@ -0,0 +1,5 @@
+-- OpenWeatherMap city id of the location a row was fetched for, when it resolved to a listed city.
+-- Locations are stored under their canonical city and country, which identify the id as well,
+-- so lookups keep using (city, country); rows of cities not in the list have no id.
+
+ALTER TABLE weather_data ADD COLUMN city_id BIGINT;
@@ -0,0 +1,128 @@
+package com.kg2s.apikey;
+
+import com.kg2s.cache.WeatherDataCache;
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.ApiKey;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.repository.ApiKeyRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for the API key registry, its tiers and the admin endpoint
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:apikeytest",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false",
+    "api.key-registry.admin-token=secret",
+    "api.key-registry.tiers.tiny.requests-per-hour=2",
+    "api.key-registry.tiers.history-only.endpoints=history"
+})
+@AutoConfigureMockMvc
+class ApiKeyRegistryTest {
+
+    private static final String WEATHER = "/api/v1/weather/London/uk";
+    private static final String ADMIN = "/api/v1/admin/api-keys";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApiKeyRegistry apiKeyRegistry;
+
+    @Autowired
+    private ApiKeyRepository apiKeyRepository;
+
+    @Autowired
+    private WeatherDataCache weatherDataCache;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @BeforeEach
+    void setUp() {
+        WeatherData data = new WeatherData("London", "GB", "test-key", "800", "Clear", "clear sky", "01d");
+        data.setTimestamp(LocalDateTime.now().minusMinutes(5));
+        weatherDataCache.put(data);
+    }
+
+    @AfterEach
+    void tearDown() {
+        weatherDataCache.invalidateAll();
+    }
+
+    @Test
+    void configuredKeysAreImportedWithTheDefaultTier() {
+        for (String key : weatherApiConfig.getKeys()) {
+            assertEquals("standard", apiKeyRegistry.resolve(key).name());
+        }
+        assertNull(apiKeyRegistry.resolve("unknown"));
+    }
+
+    @Test
+    void keysAddedAndRevokedLiveTakeEffectAtOnce() throws Exception {
+        mockMvc.perform(get(WEATHER).param("apiKey", "live-key")).andExpect(status().isBadRequest());
+
+        mockMvc.perform(post(ADMIN).header("X-Admin-Token", "secret")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"apiKey\":\"live-key\",\"tier\":\"tiny\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.tier").value("tiny"));
+        mockMvc.perform(get(WEATHER).param("apiKey", "live-key")).andExpect(status().isOk());
+        mockMvc.perform(get(WEATHER).param("apiKey", "live-key")).andExpect(status().isOk());
+        mockMvc.perform(get(WEATHER).param("apiKey", "live-key")).andExpect(status().isInternalServerError());
+
+        mockMvc.perform(delete(ADMIN + "/live-key").header("X-Admin-Token", "secret"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revoked").value(true));
+        mockMvc.perform(get(WEATHER).param("apiKey", "live-key")).andExpect(status().isBadRequest());
+        mockMvc.perform(delete(ADMIN + "/missing-key").header("X-Admin-Token", "secret"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void tierRestrictsEndpoints() throws Exception {
+        String apiKey = apiKeyRegistry.register(null, "history-only").getApiKey();
+
+        mockMvc.perform(get(WEATHER).param("apiKey", apiKey)).andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/v1/weather/history").param("apiKey", apiKey)).andExpect(status().isOk());
+    }
+
+    @Test
+    void reloadPicksUpKeysWrittenElsewhere() {
+        apiKeyRepository.save(new ApiKey("other-instance-key", "tiny"));
+        assertNull(apiKeyRegistry.resolve("other-instance-key"));
+
+        apiKeyRegistry.reload();
+        assertNotNull(apiKeyRegistry.resolve("other-instance-key"));
+    }
+
+    @Test
+    void adminEndpointRequiresTheToken() throws Exception {
+        mockMvc.perform(get(ADMIN + "/tiers")).andExpect(status().isForbidden());
+        mockMvc.perform(get(ADMIN + "/tiers").header("X-Admin-Token", "wrong")).andExpect(status().isForbidden());
+        mockMvc.perform(get(ADMIN + "/tiers").header("X-Admin-Token", "secret"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[?(@.name == 'tiny')].quota.requestsPerHour").value(2));
+    }
+}
@@ -0,0 +1,405 @@
+package com.kg2s.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kg2s.Application;
+import com.kg2s.cache.WeatherDataCache;
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.resilience.CircuitBreaker;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description End-to-end load test of the application against a local OpenWeatherMap stand-in.
+ * Load is open-model: requests arrive at a fixed average rate (Poisson arrivals) whether or not
+ * earlier ones have been answered, and latency is measured from the intended arrival time, so a
+ * stalled server shows up in the percentiles instead of slowing the load down. Cities follow a
+ * Zipf distribution and requests rotate over the configured API keys and the weather endpoints.
+ * The report is written as JSON to target/load-test-report.json.
+ * Run with: mvn test -Pbenchmark -Dtest=LoadTestHarness [-Dload.rate=200 -Dstub.errorRate=0.05 ...]
+ */
+@Tag("benchmark")
+class LoadTestHarness {
+
+    // Load
+    private static final int RATE = Integer.getInteger("load.rate", 100);
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration", 30);
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup", 5);
+    private static final int CITIES = Integer.getInteger("load.cities", 2000);
+    private static final double ZIPF_EXPONENT = doubleProperty("load.zipf", 1.0);
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("load.maxInFlight", 5000);
+    private static final String REPORT = System.getProperty("load.report", "target/load-test-report.json");
+
+    // Upstream stand-in
+    private static final int LATENCY_MEDIAN_MILLIS = Integer.getInteger("stub.latencyMedianMs", 80);
+    private static final int LATENCY_P99_MILLIS = Integer.getInteger("stub.latencyP99Ms", 600);
+    private static final double ERROR_RATE = doubleProperty("stub.errorRate", 0.01);
+    private static final double THROTTLE_RATE = doubleProperty("stub.throttleRate", 0.005);
+
+    private static final int BATCH_SIZE = 10;
+
+    private enum Endpoint {
+        // Share of the requests, out of 100
+        PATH(70), QUERY(20), BATCH(5), HISTORY(5);
+
+        private final int weight;
+
+        Endpoint(int weight) {
+            this.weight = weight;
+        }
+
+        static Endpoint pick(int percent) {
+            int cumulative = 0;
+            for (Endpoint endpoint : values()) {
+                cumulative += endpoint.weight;
+                if (percent < cumulative) {
+                    return endpoint;
+                }
+            }
+            return PATH;
+        }
+    }
+
+    private static final int DROPPED = -2;
+    private static final int FAILED = -1;
+
+    /**
+     * Outcome of each request of a phase, by arrival index
+     */
+    private static final class Phase {
+        private final Endpoint[] endpoints;
+        private final int[] statuses;
+        private final long[] latencies;
+        private int sent;
+
+        Phase(int capacity) {
+            endpoints = new Endpoint[capacity];
+            statuses = new int[capacity];
+            latencies = new long[capacity];
+        }
+    }
+
+    @Test
+    void runLoad() throws Exception {
+        UpstreamStub.Latency latency = UpstreamStub.Latency.logNormal(Duration.ofMillis(LATENCY_MEDIAN_MILLIS),
+            Duration.ofMillis(LATENCY_P99_MILLIS));
+        try (UpstreamStub upstream = UpstreamStub.start(latency, ERROR_RATE, THROTTLE_RATE)) {
+            // Command line arguments, so they take precedence over application.yml
+            ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).run(
+                "--server.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest",
+                "--openweathermap.api.base-url=" + upstream.baseUrl(),
+                "--openweathermap.api.quota.enabled=false",
+                "--openweathermap.api.pool.max-total=500",
+                "--openweathermap.api.pool.max-per-route=500",
+                "--api.rate-limit.requests-per-hour=" + Integer.MAX_VALUE,
+                "--logging.level.com.kg2s=WARN",
+                "--logging.level.org.hibernate.SQL=WARN");
+            ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+            try {
+                String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+                List<String> apiKeys = context.getBean(WeatherApiConfig.class).getKeys();
+                HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build();
+                ZipfSampler cities = new ZipfSampler(CITIES, ZIPF_EXPONENT);
+
+                drive(client, baseUrl, apiKeys, cities, WARMUP_SECONDS);
+
+                WeatherDataCache cache = context.getBean(WeatherDataCache.class);
+                long callsBefore = upstream.calls();
+                long errorsBefore = upstream.errors();
+                long throttledBefore = upstream.throttled();
+                long hitsBefore = cache.getHits();
+                long staleHitsBefore = cache.getStaleHits();
+                long missesBefore = cache.getMisses();
+                Map<String, long[]> gcBefore = gcTotals();
+                long cpuBefore = processCpuNanos();
+                long start = System.nanoTime();
+
+                Phase phase = drive(client, baseUrl, apiKeys, cities, DURATION_SECONDS);
+
+                double seconds = (System.nanoTime() - start) / 1e9;
+                Map<String, Object> report = new LinkedHashMap<>();
+                report.put("config", config());
+                report.put("durationSeconds", round(seconds));
+                report.putAll(requests(phase, seconds));
+                report.put("latencyMillis", latencies(phase));
+                long calls = upstream.calls() - callsBefore;
+                report.put("upstream", ordered(
+                    "calls", calls,
+                    "errors", upstream.errors() - errorsBefore,
+                    "throttled", upstream.throttled() - throttledBefore,
+                    "callsPerRequest", round((double) calls / Math.max(1, phase.sent)),
+                    "circuitBreaker", context.getBean(CircuitBreaker.class).getState().name()));
+                report.put("cache", ordered(
+                    "hits", cache.getHits() - hitsBefore,
+                    "staleHits", cache.getStaleHits() - staleHitsBefore,
+                    "misses", cache.getMisses() - missesBefore));
+                report.put("gc", gc(gcBefore, gcTotals()));
+                report.put("cpuSeconds", round((processCpuNanos() - cpuBefore) / 1e9));
+
+                File file = new File(REPORT);
+                file.getAbsoluteFile().getParentFile().mkdirs();
+                ObjectMapper objectMapper = new ObjectMapper();
+                objectMapper.writerWithDefaultPrettyPrinter().writeValue(file, report);
+                System.out.printf("%n%s%nReport written to %s%n",
+                    objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(report), file.getAbsolutePath());
+
+                assertTrue(phase.sent > 0);
+            } finally {
+                clientExecutor.shutdownNow();
+                context.close();
+            }
+        }
+    }
+
+    /**
+     * Send requests at the configured average rate for the given time and wait for the answers
+     */
+    private Phase drive(HttpClient client, String baseUrl, List<String> apiKeys, ZipfSampler cities, int seconds)
+            throws InterruptedException {
+        // Room for arrivals well above the average rate
+        Phase phase = new Phase((int) (RATE * seconds * 1.2) + 100);
+        AtomicInteger inFlight = new AtomicInteger();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        double arrival = start;
+
+        while (phase.sent < phase.statuses.length) {
+            // Exponential gaps between arrivals
+            arrival += -Math.log(1 - random.nextDouble()) * 1e9 / RATE;
+            long intended = (long) arrival;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            int index = phase.sent++;
+            Endpoint endpoint = Endpoint.pick(random.nextInt(100));
+            phase.endpoints[index] = endpoint;
+            if (inFlight.get() >= MAX_IN_FLIGHT) {
+                phase.statuses[index] = DROPPED;
+                continue;
+            }
+            inFlight.incrementAndGet();
+            String apiKey = apiKeys.get(index % apiKeys.size());
+            client.sendAsync(request(baseUrl, endpoint, apiKey, cities), HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    phase.latencies[index] = System.nanoTime() - intended;
+                    phase.statuses[index] = failure != null ? FAILED : response.statusCode();
+                    inFlight.decrementAndGet();
+                });
+        }
+
+        // Answers still outstanding when the arrivals stop
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return phase;
+    }
+
+    private static HttpRequest request(String baseUrl, Endpoint endpoint, String apiKey, ZipfSampler cities) {
+        String city = "City" + cities.next();
+        return switch (endpoint) {
+            case PATH -> HttpRequest.newBuilder(URI.create(
+                baseUrl + "/api/v1/weather/" + city + "/gb?apiKey=" + apiKey)).build();
+            case QUERY -> HttpRequest.newBuilder(URI.create(
+                baseUrl + "/api/v1/weather/query?city=" + city + "&country=gb&apiKey=" + apiKey)).build();
+            case HISTORY -> HttpRequest.newBuilder(URI.create(
+                baseUrl + "/api/v1/weather/history/" + city + "/gb?limit=20")).build();
+            case BATCH -> {
+                StringBuilder body = new StringBuilder("[");
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    body.append(i == 0 ? "" : ",").append("{\"city\":\"City").append(cities.next())
+                        .append("\",\"country\":\"gb\"}");
+                }
+                yield HttpRequest.newBuilder(URI.create(baseUrl + "/api/v1/weather/batch?apiKey=" + apiKey))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString()))
+                    .build();
+            }
+        };
+    }
+
+    private static Map<String, Object> config() {
+        return ordered(
+            "rate", RATE,
+            "durationSeconds", DURATION_SECONDS,
+            "warmupSeconds", WARMUP_SECONDS,
+            "cities", CITIES,
+            "zipfExponent", ZIPF_EXPONENT,
+            "maxInFlight", MAX_IN_FLIGHT,
+            "stubLatencyMedianMillis", LATENCY_MEDIAN_MILLIS,
+            "stubLatencyP99Millis", LATENCY_P99_MILLIS,
+            "stubErrorRate", ERROR_RATE,
+            "stubThrottleRate", THROTTLE_RATE);
+    }
+
+    private static Map<String, Object> requests(Phase phase, double seconds) {
+        Map<String, Long> statuses = new TreeMap<>();
+        int completed = 0;
+        for (int i = 0; i < phase.sent; i++) {
+            int status = phase.statuses[i];
+            String name = switch (status) {
+                case DROPPED -> "dropped";
+                case FAILED -> "failed";
+                case 0 -> "unanswered";
+                default -> String.valueOf(status);
+            };
+            statuses.merge(name, 1L, Long::sum);
+            if (status > 0) {
+                completed++;
+            }
+        }
+        return ordered(
+            "sent", phase.sent,
+            "completed", completed,
+            "throughput", round(completed / seconds),
+            "statuses", statuses);
+    }
+
+    /**
+     * Latency percentiles of the answered requests, overall and per endpoint
+     */
+    private static Map<String, Object> latencies(Phase phase) {
+        Map<String, Object> latencies = new LinkedHashMap<>();
+        latencies.put("all", percentiles(phase, null));
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint.name().toLowerCase(), percentiles(phase, endpoint));
+        }
+        return latencies;
+    }
+
+    private static Map<String, Object> percentiles(Phase phase, Endpoint endpoint) {
+        long[] sorted = new long[phase.sent];
+        int count = 0;
+        for (int i = 0; i < phase.sent; i++) {
+            if (phase.statuses[i] > 0 && (endpoint == null || phase.endpoints[i] == endpoint)) {
+                sorted[count++] = phase.latencies[i];
+            }
+        }
+        sorted = Arrays.copyOf(sorted, count);
+        Arrays.sort(sorted);
+        if (count == 0) {
+            return ordered("count", 0);
+        }
+        return ordered(
+            "count", count,
+            "p50", millis(percentile(sorted, 0.50)),
+            "p90", millis(percentile(sorted, 0.90)),
+            "p99", millis(percentile(sorted, 0.99)),
+            "p999", millis(percentile(sorted, 0.999)),
+            "max", millis(sorted[count - 1]),
+            "mean", millis((long) Arrays.stream(sorted).average().orElse(0)));
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    /**
+     * Collections and collection time per collector. The harness runs in the application's JVM,
+     * so these include the load generator's own garbage.
+     */
+    private static Map<String, long[]> gcTotals() {
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals.put(collector.getName(), new long[] {collector.getCollectionCount(), collector.getCollectionTime()});
+        }
+        return totals;
+    }
+
+    private static Map<String, Object> gc(Map<String, long[]> before, Map<String, long[]> after) {
+        List<Map<String, Object>> collectors = new ArrayList<>();
+        after.forEach((name, totals) -> {
+            long[] start = before.getOrDefault(name, new long[2]);
+            collectors.add(ordered("name", name, "collections", totals[0] - start[0],
+                "timeMillis", totals[1] - start[1]));
+        });
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return ordered("collectors", collectors, "heapUsedMb", heapUsed / (1024 * 1024));
+    }
+
+    private static long processCpuNanos() {
+        return ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os
+            ? os.getProcessCpuTime() : 0;
+    }
+
+    private static Map<String, Object> ordered(Object... keyValues) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            map.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+
+    /**
+     * Draws city indexes 1..n with probability proportional to 1 / rank^exponent
+     */
+    static final class ZipfSampler {
+        private final double[] cumulative;
+
+        ZipfSampler(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= sum;
+            }
+        }
+
+        int next() {
+            int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+            return (index >= 0 ? index : -index - 1) + 1;
+        }
+    }
+}
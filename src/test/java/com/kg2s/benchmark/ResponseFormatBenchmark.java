@@ -0,0 +1,113 @@
+package com.kg2s.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kg2s.config.MessageConverterConfig;
+import com.kg2s.domain.WeatherInfoResp;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Compares bytes on the wire and serialization CPU of JSON, CBOR and Smile for a
+ * history page of List&lt;WeatherInfoResp&gt;, each with and without gzip.
+ * Run with: mvn test -Pbenchmark -Dtest=ResponseFormatBenchmark
+ */
+@Tag("benchmark")
+class ResponseFormatBenchmark {
+
+    private static final int ITEMS = 1_000;
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int ITERATIONS = 5_000;
+    private static final String[][] CONDITIONS = {
+        {"800", "Clear", "clear sky", "01d"},
+        {"801", "Clouds", "few clouds", "02d"},
+        {"803", "Clouds", "broken clouds", "04d"},
+        {"500", "Rain", "light rain", "10d"},
+        {"701", "Mist", "mist", "50d"}
+    };
+
+    private record Result(String format, int bytes, int gzipBytes, double serializeMicros, double gzipMicros) {
+    }
+
+    @Test
+    void compareFormats() throws IOException {
+        List<WeatherInfoResp> page = historyPage();
+        List<Result> results = List.of(
+            run("json", new ObjectMapper(), page),
+            run("cbor", new ObjectMapper(MessageConverterConfig.cborFactory()), page),
+            run("smile", new ObjectMapper(MessageConverterConfig.smileFactory()), page));
+
+        System.out.printf("%n%d history items per response, %d iterations%n", ITEMS, ITERATIONS);
+        System.out.printf("%-8s %10s %8s %12s %8s %14s%n", "format", "bytes", "vs json", "gzip bytes",
+            "us/op", "us/op + gzip");
+        int jsonBytes = results.get(0).bytes();
+        for (Result result : results) {
+            System.out.printf("%-8s %10d %7.0f%% %12d %8.1f %14.1f%n", result.format(), result.bytes(),
+                100.0 * result.bytes() / jsonBytes, result.gzipBytes(), result.serializeMicros(),
+                result.gzipMicros());
+        }
+        assertTrue(results.get(1).bytes() < jsonBytes && results.get(2).bytes() < jsonBytes);
+    }
+
+    private Result run(String format, ObjectMapper mapper, List<WeatherInfoResp> page) throws IOException {
+        ObjectWriter writer = mapper.writerFor(mapper.getTypeFactory().constructCollectionType(List.class,
+            WeatherInfoResp.class));
+        byte[] body = writer.writeValueAsBytes(page);
+        byte[] gzipped = gzip(body);
+
+        long sink = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sink += writer.writeValueAsBytes(page).length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sink += writer.writeValueAsBytes(page).length;
+        }
+        double serializeMicros = (System.nanoTime() - start) / 1_000.0 / ITERATIONS;
+
+        int gzipIterations = ITERATIONS / 10;
+        start = System.nanoTime();
+        for (int i = 0; i < gzipIterations; i++) {
+            sink += gzip(writer.writeValueAsBytes(page)).length;
+        }
+        double gzipMicros = (System.nanoTime() - start) / 1_000.0 / gzipIterations;
+
+        assertTrue(sink > 0);
+        return new Result(format, body.length, gzipped.length, serializeMicros, gzipMicros);
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Ten-minute observations of one location, a handful of conditions repeating
+     */
+    private static List<WeatherInfoResp> historyPage() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        LocalDateTime timestamp = LocalDateTime.of(2026, 10, 18, 12, 0);
+        List<WeatherInfoResp> page = new ArrayList<>(ITEMS);
+        for (int i = 0; i < ITEMS; i++) {
+            String[] condition = CONDITIONS[(i / 6) % CONDITIONS.length];
+            page.add(new WeatherInfoResp(condition[0], condition[1], condition[2], condition[3], "London", "uk",
+                "5b595d4b-01d3-4d2c-9c51-508d344f2022", timestamp.minusMinutes(10L * i).format(formatter)));
+        }
+        return page;
+    }
+}
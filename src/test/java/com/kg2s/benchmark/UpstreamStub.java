@@ -0,0 +1,211 @@
+package com.kg2s.benchmark;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Local stand-in for the OpenWeatherMap /weather endpoint, answering in its response
+ * format after a latency drawn from a distribution, with configurable shares of
+ * 500 errors and 429 throttling. A minimal keep-alive HTTP/1.1 server with one virtual thread per
+ * connection, so that the stub itself never limits concurrency (com.sun.net.httpserver tops out at
+ * a few hundred requests per second).
+ */
+class UpstreamStub implements AutoCloseable {
+
+    private static final String[][] CONDITIONS = {
+        {"800", "Clear", "clear sky", "01d"},
+        {"801", "Clouds", "few clouds", "02d"},
+        {"803", "Clouds", "broken clouds", "04d"},
+        {"500", "Rain", "light rain", "10d"},
+        {"701", "Mist", "mist", "50d"}
+    };
+
+    private static final byte[] ERROR = response("500 Internal Server Error", "",
+        "{\"cod\":500,\"message\":\"Internal error\"}");
+    private static final byte[] THROTTLED = response("429 Too Many Requests", "Retry-After: 1\r\n",
+        "{\"cod\":429,\"message\":\"Your account is temporarily blocked due to exceeding of requests limitation\"}");
+
+    /**
+     * Upstream response time
+     */
+    interface Latency {
+        Duration next();
+
+        static Latency fixed(Duration latency) {
+            return () -> latency;
+        }
+
+        static Latency uniform(Duration min, Duration max) {
+            return () -> Duration.ofNanos(ThreadLocalRandom.current().nextLong(min.toNanos(), max.toNanos() + 1));
+        }
+
+        /**
+         * Long-tailed: half the calls are faster than the median, one in a hundred slower than p99
+         */
+        static Latency logNormal(Duration median, Duration p99) {
+            double mu = Math.log(median.toNanos());
+            double sigma = (Math.log(p99.toNanos()) - mu) / 2.326;
+            return () -> Duration.ofNanos((long) Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Latency latency;
+    private final double errorRate;
+    private final double throttleRate;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+
+    private UpstreamStub(Latency latency, double errorRate, double throttleRate) throws IOException {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.throttleRate = throttleRate;
+        this.serverSocket = new ServerSocket(0, 4096, InetAddress.getLoopbackAddress());
+        executor.execute(this::accept);
+    }
+
+    static UpstreamStub start(Duration latency) throws IOException {
+        return start(Latency.fixed(latency), 0, 0);
+    }
+
+    /**
+     * @param errorRate share of calls answered with 500
+     * @param throttleRate share of calls answered with 429
+     */
+    static UpstreamStub start(Latency latency, double errorRate, double throttleRate) throws IOException {
+        return new UpstreamStub(latency, errorRate, throttleRate);
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                executor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket; InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = socket.getOutputStream()) {
+            String requestLine;
+            while ((requestLine = readRequest(in)) != null) {
+                calls.increment();
+                Thread.sleep(latency.next());
+                out.write(answer(requestLine));
+                out.flush();
+            }
+        } catch (IOException | InterruptedException e) {
+            // connection closed by the client or the stub shutting down
+        }
+    }
+
+    private byte[] answer(String requestLine) {
+        double outcome = ThreadLocalRandom.current().nextDouble();
+        if (outcome < throttleRate) {
+            throttled.increment();
+            return THROTTLED;
+        }
+        if (outcome < throttleRate + errorRate) {
+            errors.increment();
+            return ERROR;
+        }
+        String location = queryParameter(requestLine, "q");
+        String city = location.contains(",") ? location.substring(0, location.indexOf(',')) : location;
+        String[] condition = CONDITIONS[Math.floorMod(location.hashCode(), CONDITIONS.length)];
+        return response("200 OK", "", "{\"weather\":[{\"id\":\"" + condition[0] + "\",\"main\":\"" + condition[1]
+            + "\",\"description\":\"" + condition[2] + "\",\"icon\":\"" + condition[3] + "\"}],"
+            + "\"main\":{\"temp\":18.5,\"feels_like\":17.9,\"temp_min\":16.0,\"temp_max\":20.1,"
+            + "\"pressure\":1015,\"humidity\":60},\"name\":\"" + city + "\",\"cod\":200}");
+    }
+
+    /**
+     * Read a GET request up to the blank line ending its headers and return its request line,
+     * null when the connection was closed
+     */
+    private static String readRequest(InputStream in) throws IOException {
+        StringBuilder requestLine = new StringBuilder();
+        boolean inRequestLine = true;
+        int matched = 0;
+        int b;
+        while ((b = in.read()) != -1) {
+            matched = (b == '\r' || b == '\n') ? matched + 1 : 0;
+            if (matched == 4) {
+                return requestLine.toString();
+            }
+            if (b == '\r' || b == '\n') {
+                inRequestLine = false;
+            } else if (inRequestLine) {
+                requestLine.append((char) b);
+            }
+        }
+        return null;
+    }
+
+    private static String queryParameter(String requestLine, String name) {
+        int start = requestLine.indexOf(name + "=");
+        if (start < 0) {
+            return "";
+        }
+        start += name.length() + 1;
+        int end = start;
+        while (end < requestLine.length() && "& ".indexOf(requestLine.charAt(end)) < 0) {
+            end++;
+        }
+        return URLDecoder.decode(requestLine.substring(start, end), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] response(String status, String headers, String body) {
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        byte[] head = ("HTTP/1.1 " + status + "\r\n"
+            + "Content-Type: application/json\r\n"
+            + headers
+            + "Content-Length: " + bodyBytes.length + "\r\n"
+            + "Connection: keep-alive\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] bytes = new byte[head.length + bodyBytes.length];
+        System.arraycopy(head, 0, bytes, 0, head.length);
+        System.arraycopy(bodyBytes, 0, bytes, head.length, bodyBytes.length);
+        return bytes;
+    }
+
+    String baseUrl() {
+        return "http://localhost:" + serverSocket.getLocalPort();
+    }
+
+    long calls() {
+        return calls.sum();
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long throttled() {
+        return throttled.sum();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,137 @@
+package com.kg2s.benchmark;
+
+import com.kg2s.Application;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Compares platform and virtual request threads when every request waits on a slow upstream.
+ * Run with: mvn test -Pbenchmark -Dtest=VirtualThreadBenchmark
+ */
+@Tag("benchmark")
+class VirtualThreadBenchmark {
+    
+    private static final Duration UPSTREAM_LATENCY = Duration.ofMillis(500);
+    private static final int PLATFORM_MAX_THREADS = 20;
+    private static final int CONCURRENCY = 200;
+    private static final int REQUESTS = 1_500;
+    private static final int WARMUP_REQUESTS = 200;
+    private static final String API_KEY = "5b595d4b-01d3-4d2c-9c51-508d344f2022";
+    
+    private record Result(String mode, double throughput, long p50Millis, long p99Millis, long maxMillis, int errors) {
+    }
+    
+    @Test
+    void compareThreadModels() throws Exception {
+        try (UpstreamStub upstream = UpstreamStub.start(UPSTREAM_LATENCY)) {
+            Result platform = run(false, upstream);
+            Result virtual = run(true, upstream);
+            
+            System.out.printf("%nUpstream latency %d ms, %d requests, %d concurrent clients, %d platform threads%n",
+                UPSTREAM_LATENCY.toMillis(), REQUESTS, CONCURRENCY, PLATFORM_MAX_THREADS);
+            System.out.printf("%-10s %12s %8s %8s %8s %7s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+            for (Result result : List.of(platform, virtual)) {
+                System.out.printf("%-10s %12.1f %8d %8d %8d %7d%n", result.mode(), result.throughput(),
+                    result.p50Millis(), result.p99Millis(), result.maxMillis(), result.errors());
+            }
+            assertEquals(0, platform.errors());
+            assertEquals(0, virtual.errors());
+        }
+    }
+    
+    private Result run(boolean virtualThreads, UpstreamStub upstream) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        // Command line arguments, so they take precedence over application.yml
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class).run(
+            "--server.port=0",
+            "--spring.threads.virtual.enabled=" + virtualThreads,
+            "--server.tomcat.threads.max=" + PLATFORM_MAX_THREADS,
+            "--spring.datasource.url=jdbc:h2:mem:benchmark-" + mode,
+            "--openweathermap.api.base-url=" + upstream.baseUrl(),
+            "--openweathermap.api.quota.enabled=false",
+            "--openweathermap.api.pool.max-total=" + CONCURRENCY,
+            "--openweathermap.api.pool.max-per-route=" + CONCURRENCY,
+            "--api.rate-limit.requests-per-hour=" + Integer.MAX_VALUE,
+            "--logging.level.com.kg2s=WARN",
+            "--logging.level.org.hibernate.SQL=WARN");
+        
+        ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(clientExecutor)
+                .build();
+            
+            drive(client, baseUrl, "warmup", WARMUP_REQUESTS);
+            
+            long[] latencies = new long[REQUESTS];
+            long start = System.nanoTime();
+            int errors = drive(client, baseUrl, mode, REQUESTS, latencies);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            
+            Arrays.sort(latencies);
+            return new Result(mode, REQUESTS / seconds, percentile(latencies, 0.50),
+                percentile(latencies, 0.99), latencies[latencies.length - 1], errors);
+        } finally {
+            clientExecutor.shutdownNow();
+            context.close();
+        }
+    }
+    
+    private int drive(HttpClient client, String baseUrl, String prefix, int requests) throws Exception {
+        return drive(client, baseUrl, prefix, requests, new long[requests]);
+    }
+    
+    /**
+     * Send requests for distinct cities, so each one misses the cache and waits on the upstream
+     */
+    private int drive(HttpClient client, String baseUrl, String prefix, int requests, long[] latencies)
+            throws Exception {
+        Semaphore inFlight = new Semaphore(CONCURRENCY);
+        AtomicInteger errors = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            HttpRequest request = HttpRequest.newBuilder(
+                URI.create(baseUrl + "/api/v1/weather/" + prefix + "City" + i + "/gb?apiKey=" + API_KEY)).build();
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, failure) -> {
+                    latencies[index] = (System.nanoTime() - sent) / 1_000_000;
+                    if (failure != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    }
+                    inFlight.release();
+                    return null;
+                }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        return errors.get();
+    }
+    
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+}
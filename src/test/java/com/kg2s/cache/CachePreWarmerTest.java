@@ -0,0 +1,111 @@
+package com.kg2s.cache;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.repository.WeatherDataRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for refreshing hot locations ahead of expiry
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:prewarmertest",
+    "api.pre-warm.interval=1h",
+    "api.pre-warm.min-frequency=1",
+    "api.retention.enabled=false",
+    "api.write-behind.flush-interval=50ms",
+    "openweathermap.api.base-url=http://owm.test/data/2.5",
+    "openweathermap.api.key=test",
+    "openweathermap.api.quota.enabled=false"
+})
+@AutoConfigureMockMvc
+class CachePreWarmerTest {
+
+    private static final String LONDON = """
+        {"weather":[{"id":803,"main":"Clouds","description":"broken clouds","icon":"04d"}],
+         "sys":{"country":"GB"},"id":2643743,"name":"London","cod":200}
+        """;
+
+    @Autowired
+    private CachePreWarmer cachePreWarmer;
+
+    @Autowired
+    private WeatherDataCache weatherDataCache;
+
+    @Autowired
+    private FrequencySketch<LocationKey> requestFrequency;
+
+    @Autowired
+    private BackgroundRefresher backgroundRefresher;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void refreshesAreStoredOutsideTheClientsHistory() throws Exception {
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(once(), requestTo("http://owm.test/data/2.5/weather?id=2643743&appid=test&units=metric"))
+            .andRespond(withSuccess(LONDON, MediaType.APPLICATION_JSON));
+
+        // Last fetched by a client, about to expire and requested often
+        String apiKey = weatherApiConfig.getKeys().get(0);
+        WeatherData fetched = new WeatherData("London", "GB", apiKey, "800", "Clear", "clear sky", "01d");
+        fetched.setTimestamp(LocalDateTime.now().minus(weatherDataCache.getFreshness()).plusMinutes(1));
+        weatherDataRepository.save(fetched);
+        weatherDataCache.put(fetched);
+        requestFrequency.increment(LocationKey.of("London", "GB"));
+
+        long completed = backgroundRefresher.getCompletedCount();
+        cachePreWarmer.preWarm();
+        awaitUntil(() -> backgroundRefresher.getCompletedCount() > completed);
+        awaitUntil(() -> weatherDataRepository.count() == 2);
+        server.verify();
+
+        WeatherData refreshed = weatherDataRepository.findLatestByCityAndCountry("London", "GB").orElseThrow();
+        assertEquals("803", refreshed.getWeatherId());
+        assertEquals(WeatherData.SYSTEM_API_KEY, refreshed.getApiKey());
+        mockMvc.perform(get("/api/v1/weather/history").param("apiKey", apiKey))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].id").value("800"));
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "Timed out");
+    }
+}
@@ -0,0 +1,50 @@
+package com.kg2s.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Accuracy and aging tests for the request frequency sketch
+ */
+class FrequencySketchTest {
+
+    @Test
+    void hotKeysStandOutFromTheLongTail() {
+        FrequencySketch<LocationKey> sketch = new FrequencySketch<>(1024);
+        for (int i = 0; i < 500; i++) {
+            sketch.increment(LocationKey.of("City" + i, "xx"));
+        }
+        for (int i = 0; i < 50; i++) {
+            sketch.increment(LocationKey.of("London", "uk"));
+            sketch.increment(LocationKey.of("Paris", "fr"));
+        }
+
+        assertTrue(sketch.frequency(LocationKey.of("London", "uk")) >= 50, "Never undercounts");
+        assertTrue(sketch.frequency(LocationKey.of("Paris", "fr")) >= 50, "Never undercounts");
+        int tailOvercounted = 0;
+        for (int i = 0; i < 500; i++) {
+            if (sketch.frequency(LocationKey.of("City" + i, "xx")) > 3) {
+                tailOvercounted++;
+            }
+        }
+        assertTrue(tailOvercounted < 5, "Tail keys should stay cold, overcounted: " + tailOvercounted);
+        assertEquals(0, sketch.frequency(LocationKey.of("Nowhere", "zz")));
+    }
+
+    @Test
+    void countersAreHalvedEverySamplePeriod() {
+        FrequencySketch<LocationKey> sketch = new FrequencySketch<>(16);
+        LocationKey hot = LocationKey.of("London", "uk");
+        // Sample period is ten times the width of 32 counters
+        for (int i = 0; i < 319; i++) {
+            sketch.increment(hot);
+        }
+        assertEquals(319, sketch.frequency(hot));
+        sketch.increment(hot);
+        assertEquals(160, sketch.frequency(hot));
+    }
+}
@@ -0,0 +1,118 @@
+package com.kg2s.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for coalescing concurrent loads of one key into a single call
+ */
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final SingleFlight<String, String> flights = new SingleFlight<>();
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = callAll(() -> {
+            loads.incrementAndGet();
+            awaitQuietly(release);
+            return "value";
+        });
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flights.getExecutionCount());
+        assertEquals(CALLERS - 1, flights.getCoalescedCount());
+    }
+
+    @Test
+    void everyCallerGetsTheLeadersException() throws Exception {
+        IllegalStateException failure = new IllegalStateException("upstream down");
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<String>> results = callAll(() -> {
+            awaitQuietly(release);
+            throw failure;
+        });
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException thrown = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(failure, thrown.getCause());
+        }
+        assertEquals(1, flights.getExecutionCount());
+    }
+
+    @Test
+    void keyIsFreedOnceTheLoadEnds() {
+        assertThrows(IllegalStateException.class, () -> flights.execute("London", () -> {
+            throw new IllegalStateException("upstream down");
+        }));
+        assertEquals(0, flights.getInFlightCount());
+
+        assertEquals("first", flights.execute("London", () -> "first"));
+        assertEquals("second", flights.execute("London", () -> "second"), "A later call loads again");
+        assertEquals(3, flights.getExecutionCount());
+        assertEquals(0, flights.getCoalescedCount());
+        assertEquals(0, flights.getInFlightCount());
+    }
+
+    /**
+     * Start the leader, then every other caller once the leader is loading, and wait until they all joined it
+     */
+    private List<Future<String>> callAll(Supplier<String> loader) throws InterruptedException {
+        CountDownLatch loading = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        results.add(callers.submit(() -> flights.execute("London", () -> {
+            loading.countDown();
+            return loader.get();
+        })));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < CALLERS; i++) {
+            results.add(callers.submit(() -> flights.execute("London", () -> "not the leader")));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (flights.getCoalescedCount() < CALLERS - 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(CALLERS - 1, flights.getCoalescedCount());
+        return results;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
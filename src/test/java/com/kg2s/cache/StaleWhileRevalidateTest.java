@@ -0,0 +1,88 @@
+package com.kg2s.cache;
+
+import com.kg2s.domain.WeatherData;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for the stale grace window of the cache and the bounded background refresher
+ */
+class StaleWhileRevalidateTest {
+
+    private final WeatherDataCache cache = new WeatherDataCache(100, Duration.ofHours(1), Duration.ofMinutes(10));
+
+    @Test
+    void staleEntryIsServedOnlyWithinGraceWindow() {
+        cache.put(observedMinutesAgo("London", 65));
+        assertTrue(cache.get("London", "uk").isEmpty());
+        assertTrue(cache.getStale("London", "uk").isPresent());
+        assertEquals(1, cache.getStaleHits());
+
+        cache.put(observedMinutesAgo("Paris", 75));
+        assertTrue(cache.getStale("Paris", "uk").isEmpty());
+        assertTrue(cache.get("Paris", "uk").isEmpty());
+        assertEquals(1, cache.size(), "Entries past the grace window are dropped");
+    }
+
+    @Test
+    void freshEntryIsNotStale() {
+        cache.put(observedMinutesAgo("London", 5));
+        assertTrue(cache.getStale("London", "uk").isEmpty());
+        assertTrue(cache.get("London", "uk").isPresent());
+    }
+
+    @Test
+    void refresherRunsOneRefreshPerLocationAndDropsOverflow() throws Exception {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1));
+        BackgroundRefresher refresher = new BackgroundRefresher(executor);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        Runnable blocked = () -> {
+            awaitQuietly(release);
+            done.countDown();
+        };
+
+        try {
+            assertTrue(refresher.schedule(LocationKey.of("London", "uk"), blocked));
+            assertFalse(refresher.schedule(LocationKey.of("London", "uk"), blocked), "Already pending");
+            assertTrue(refresher.schedule(LocationKey.of("Paris", "fr"), blocked));
+            assertFalse(refresher.schedule(LocationKey.of("Berlin", "de"), blocked), "Thread and queue are full");
+            assertEquals(1, refresher.getRejectedCount());
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            assertEquals(2, refresher.getCompletedCount());
+            assertEquals(0, refresher.getPendingCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static WeatherData observedMinutesAgo(String city, long minutes) {
+        WeatherData data = new WeatherData(city, "uk", "key", "800", "Clear", "clear sky", "01d");
+        data.setTimestamp(LocalDateTime.now().minusMinutes(minutes));
+        return data;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
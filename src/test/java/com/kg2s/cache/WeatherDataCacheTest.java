@@ -0,0 +1,108 @@
+package com.kg2s.cache;
+
+import com.kg2s.domain.WeatherData;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for freshness, ordering of puts, bulk eviction and the counters of the weather cache
+ */
+class WeatherDataCacheTest {
+
+    private final WeatherDataCache cache = new WeatherDataCache(10, Duration.ofMinutes(30));
+
+    @Test
+    void entryIsFreshUpToTheEndOfTheWindow() {
+        cache.put(observed("London", LocalDateTime.now().minusMinutes(30).plusSeconds(5)));
+        cache.put(observed("Paris", LocalDateTime.now().minusMinutes(30).minusSeconds(5)));
+
+        assertTrue(cache.get("London", "uk").isPresent());
+        assertTrue(cache.get("Paris", "uk").isEmpty());
+        assertEquals(1, cache.size(), "Without a grace window an expired entry is dropped when read");
+    }
+
+    @Test
+    void latePutNeverReplacesNewerData() {
+        WeatherData newer = observed("London", LocalDateTime.now().minusMinutes(1));
+        WeatherData older = observed("London", LocalDateTime.now().minusMinutes(10));
+        cache.put(newer);
+        cache.put(older);
+        assertEquals(newer.getTimestamp(), cache.peek("London", "uk").orElseThrow().getTimestamp());
+
+        WeatherData newest = observed("London", LocalDateTime.now());
+        cache.put(newest);
+        assertEquals(newest.getTimestamp(), cache.peek("London", "uk").orElseThrow().getTimestamp());
+    }
+
+    @Test
+    void fullCacheEvictsOldestDownToNinetyPercent() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i <= 10; i++) {
+            cache.put(observed("City" + i, now.minusMinutes(20 - i)));
+        }
+
+        assertEquals(9, cache.size());
+        assertEquals(2, cache.getEvictions());
+        assertTrue(cache.peek("City0", "uk").isEmpty());
+        assertTrue(cache.peek("City1", "uk").isEmpty());
+        assertTrue(cache.peek("City2", "uk").isPresent());
+    }
+
+    @Test
+    void expiredEntriesAreEvictedFirst() {
+        LocalDateTime now = LocalDateTime.now();
+        cache.put(observed("Expired0", now.minusHours(2)));
+        cache.put(observed("Expired1", now.minusHours(1)));
+        for (int i = 0; i < 9; i++) {
+            cache.put(observed("City" + i, now.minusMinutes(20 - i)));
+        }
+
+        assertEquals(9, cache.size(), "Dropping the expired entries made room enough");
+        assertEquals(2, cache.getExpirations());
+        assertEquals(0, cache.getEvictions());
+        for (int i = 0; i < 9; i++) {
+            assertTrue(cache.peek("City" + i, "uk").isPresent());
+        }
+    }
+
+    @Test
+    void countersFollowReads() {
+        cache.put(observed("London", LocalDateTime.now()));
+        cache.put(observed("Paris", LocalDateTime.now().minusHours(1)));
+
+        cache.get("London", "uk");
+        cache.get("London", "uk");
+        cache.get("Paris", "uk");
+        cache.get("Berlin", "de");
+        cache.peek("London", "uk");
+
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    void invalidatedEntryIsGone() {
+        cache.put(observed("London", LocalDateTime.now()));
+        cache.put(observed("Paris", LocalDateTime.now()));
+
+        cache.invalidate("London", "uk");
+        assertFalse(cache.peekServable("London", "uk").isPresent());
+        assertTrue(cache.peek("Paris", "uk").isPresent());
+        assertEquals(1, cache.size());
+    }
+
+    private static WeatherData observed(String city, LocalDateTime timestamp) {
+        WeatherData data = new WeatherData(city, "uk", "key", "800", "Clear", "clear sky", "01d");
+        data.setTimestamp(timestamp);
+        return data;
+    }
+}
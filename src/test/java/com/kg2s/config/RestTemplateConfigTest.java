@@ -0,0 +1,115 @@
+package com.kg2s.config;
+
+import com.kg2s.http.InstrumentedConnectionManager;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests that the upstream RestTemplate goes through the configured connection pool
+ */
+class RestTemplateConfigTest {
+
+    private static final Duration LEASE_TIMEOUT = Duration.ofMillis(300);
+
+    private final RestTemplateConfig restTemplateConfig = new RestTemplateConfig();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    private HttpServer server;
+    private InstrumentedConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/weather", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            byte[] body = "{\"cod\":200}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        OpenWeatherMapConfig openWeatherMapConfig = new OpenWeatherMapConfig();
+        openWeatherMapConfig.getPool().setMaxTotal(3);
+        openWeatherMapConfig.getPool().setMaxPerRoute(1);
+        openWeatherMapConfig.getPool().setLeaseTimeout(LEASE_TIMEOUT);
+        connectionManager = restTemplateConfig.upstreamConnectionManager(openWeatherMapConfig);
+        httpClient = restTemplateConfig.upstreamHttpClient(connectionManager, openWeatherMapConfig);
+        restTemplate = restTemplateConfig.restTemplate(new RestTemplateBuilder(), httpClient);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.close();
+        server.stop(0);
+    }
+
+    @Test
+    void restTemplateUsesTheConfiguredPool() {
+        HttpComponentsClientHttpRequestFactory requestFactory =
+            assertInstanceOf(HttpComponentsClientHttpRequestFactory.class, restTemplate.getRequestFactory());
+        assertSame(httpClient, requestFactory.getHttpClient());
+        assertEquals(3, connectionManager.getMaxTotal());
+        assertEquals(1, connectionManager.getDefaultMaxPerRoute());
+    }
+
+    @Test
+    void fullyReadResponseReturnsItsConnection() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("{\"cod\":200}", restTemplate.getForObject(url(), String.class));
+        }
+
+        assertEquals(0, connectionManager.getTotalStats().getLeased());
+        assertEquals(1, connectionManager.getTotalStats().getAvailable());
+        assertEquals(1, clientPorts.size(), "Every call went over the same kept-alive connection");
+        assertEquals(3, connectionManager.getLeaseCount());
+    }
+
+    @Test
+    void leaseGivesUpAfterTheLeaseTimeout() {
+        // The only connection of the route stays leased while its response is being read
+        long start = System.nanoTime();
+        ResourceAccessException thrown = assertThrows(ResourceAccessException.class, () ->
+            restTemplate.execute(url(), HttpMethod.GET, null, response -> restTemplate.getForObject(url(), String.class)));
+        Duration waited = Duration.ofNanos(System.nanoTime() - start);
+
+        assertInstanceOf(ConnectionRequestTimeoutException.class, thrown.getCause());
+        assertTrue(waited.compareTo(LEASE_TIMEOUT) >= 0 && waited.compareTo(Duration.ofSeconds(3)) < 0,
+            "Waited " + waited);
+        assertEquals(0, connectionManager.getTotalStats().getLeased());
+    }
+
+    private String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/weather";
+    }
+}
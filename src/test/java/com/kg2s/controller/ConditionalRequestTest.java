@@ -0,0 +1,147 @@
+package com.kg2s.controller;
+
+import com.kg2s.cache.WeatherDataCache;
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.WeatherData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for ETag, Last-Modified and Cache-Control on the weather endpoints
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:conditionaltest",
+    "api.rate-limit.requests-per-hour=3",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false"
+})
+@AutoConfigureMockMvc
+class ConditionalRequestTest {
+
+    private static final String PATH = "/api/v1/weather/London/uk";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WeatherDataCache weatherDataCache;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @BeforeEach
+    void setUp() {
+        WeatherData data = new WeatherData("London", "GB", "test-key", "800", "Clear", "clear sky", "01d");
+        data.setTimestamp(LocalDateTime.now().minusMinutes(30));
+        weatherDataCache.put(data);
+    }
+
+    @AfterEach
+    void tearDown() {
+        weatherDataCache.invalidateAll();
+        weatherApiConfig.getRateLimit().setCountNotModified(true);
+    }
+
+    @Test
+    void matchingValidatorsAnswerNotModifiedWithoutBody() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(0);
+        MvcResult first = mockMvc.perform(get(PATH).param("apiKey", apiKey))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, startsWith("max-age=")))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        String lastModified = first.getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+        long maxAge = Long.parseLong(first.getResponse().getHeader(HttpHeaders.CACHE_CONTROL).substring(8));
+        assertTrue(maxAge > 25 * 60 && maxAge <= 30 * 60, "Remaining freshness, was " + maxAge);
+
+        mockMvc.perform(get(PATH).param("apiKey", apiKey).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().exists(HttpHeaders.CACHE_CONTROL))
+                .andExpect(content().string(""));
+        mockMvc.perform(get(PATH).param("apiKey", apiKey).header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void notModifiedAnswersAreCountedWhenConfigured() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(1);
+        String etag = mockMvc.perform(get("/api/v1/weather/query")
+                        .param("city", "London").param("country", "uk").param("apiKey", apiKey))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        int notModified = 0;
+        for (int i = 0; i < 5; i++) {
+            int status = mockMvc.perform(get(PATH).param("apiKey", apiKey).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andReturn().getResponse().getStatus();
+            if (status == 304) {
+                notModified++;
+            }
+        }
+        assertEquals(2, notModified, "Limit of 3 per hour, one used by the first request");
+    }
+
+    @Test
+    void notModifiedAnswersAreFreeWhenNotCounted() throws Exception {
+        weatherApiConfig.getRateLimit().setCountNotModified(false);
+        String apiKey = weatherApiConfig.getKeys().get(2);
+        String etag = mockMvc.perform(get(PATH).param("apiKey", apiKey))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(get(PATH).param("apiKey", apiKey).header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isNotModified());
+        }
+        mockMvc.perform(get(PATH).param("apiKey", apiKey).header(HttpHeaders.IF_NONE_MATCH, "\"outdated\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    void eachFormatHasItsOwnValidators() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(3);
+        String jsonEtag = mockMvc.perform(get(PATH).param("apiKey", apiKey))
+                .andExpect(status().isOk())
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // A cache holding the JSON body must not have it confirmed for a CBOR request
+        String cborEtag = mockMvc.perform(get(PATH).param("apiKey", apiKey)
+                        .accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, jsonEtag))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(jsonEtag, cborEtag);
+
+        mockMvc.perform(get(PATH).param("apiKey", apiKey)
+                        .accept(MediaType.APPLICATION_CBOR).header(HttpHeaders.IF_NONE_MATCH, cborEtag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, cborEtag))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+    }
+}
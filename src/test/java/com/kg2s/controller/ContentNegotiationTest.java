@@ -0,0 +1,158 @@
+package com.kg2s.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kg2s.config.MessageConverterConfig;
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.ApiKeyUsage;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.domain.WeatherInfoResp;
+import com.kg2s.ratelimit.RateLimiter;
+import com.kg2s.repository.WeatherDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for binary response formats and response compression on a running server
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "spring.datasource.url=jdbc:h2:mem:negotiationtest",
+    "api.rate-limit.requests-per-hour=1000",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false"
+})
+class ContentNegotiationTest {
+
+    private static final TypeReference<List<WeatherInfoResp>> RESPONSE_LIST = new TypeReference<>() {};
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() {
+        weatherDataRepository.deleteAllInBatch();
+        List<WeatherData> history = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().minusDays(2);
+        for (int i = 0; i < 200; i++) {
+            WeatherData data = new WeatherData("London", "GB", weatherApiConfig.getKeys().get(0),
+                i % 3 == 0 ? "500" : "800", i % 3 == 0 ? "Rain" : "Clear",
+                i % 3 == 0 ? "light rain" : "clear sky", i % 3 == 0 ? "10d" : "01d");
+            data.setTimestamp(start.plusMinutes(10L * i));
+            history.add(data);
+        }
+        weatherDataRepository.saveAll(history);
+    }
+
+    @Test
+    void binaryFormatsCarryTheSameItemsInFewerBytes() throws Exception {
+        HttpResponse<byte[]> json = get("application/json", null);
+        List<WeatherInfoResp> expected = new ObjectMapper().readValue(json.body(), RESPONSE_LIST);
+        assertEquals(200, expected.size());
+
+        HttpResponse<byte[]> cbor = get("application/cbor", null);
+        assertEquals("application/cbor", cbor.headers().firstValue("Content-Type").orElseThrow());
+        assertSameItems(expected, new ObjectMapper(MessageConverterConfig.cborFactory()).readValue(cbor.body(), RESPONSE_LIST));
+        assertTrue(cbor.body().length < json.body().length / 2, "CBOR " + cbor.body().length + " bytes");
+
+        HttpResponse<byte[]> smile = get("application/x-jackson-smile", null);
+        assertEquals("application/x-jackson-smile", smile.headers().firstValue("Content-Type").orElseThrow());
+        assertSameItems(expected, new ObjectMapper(MessageConverterConfig.smileFactory()).readValue(smile.body(), RESPONSE_LIST));
+        assertTrue(smile.body().length < json.body().length / 2, "Smile " + smile.body().length + " bytes");
+    }
+
+    @Test
+    void largeResponsesAreGzippedSmallOnesAreNot() throws Exception {
+        HttpResponse<byte[]> large = get("application/json", "gzip");
+        assertEquals("gzip", large.headers().firstValue("Content-Encoding").orElse(null));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(large.body()))) {
+            assertEquals(200, new ObjectMapper().readValue(in, RESPONSE_LIST).size());
+        }
+
+        HttpResponse<byte[]> streamed = get("application/x-ndjson", "gzip");
+        assertEquals("gzip", streamed.headers().firstValue("Content-Encoding").orElse(null));
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(streamed.body()))) {
+            assertEquals(200, new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().count());
+        }
+
+        HttpResponse<byte[]> small = send(HttpRequest.newBuilder(uri("/api/v1/weather/history/London/uk?limit=1"))
+            .header("Accept-Encoding", "gzip").build());
+        assertEquals(200, small.statusCode());
+        assertTrue(small.headers().firstValue("Content-Encoding").isEmpty(), "Below the size threshold");
+    }
+
+    @Test
+    void unacceptableFormatIsRefusedBeforeTheKeyIsCharged() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(1);
+        long rows = weatherDataRepository.count();
+        HttpResponse<byte[]> response = send(HttpRequest.newBuilder(uri("/api/v1/weather/Paris/fr?apiKey=" + apiKey))
+            .header("Accept", "text/html").build());
+
+        assertEquals(406, response.statusCode());
+        assertEquals(0, requestCount(apiKey), "No permit taken");
+        assertEquals(rows, weatherDataRepository.count(), "Nothing fetched or stored");
+    }
+
+    private int requestCount(String apiKey) {
+        return rateLimiter.snapshot().stream()
+            .filter(usage -> usage.getApiKey().equals(apiKey))
+            .mapToInt(ApiKeyUsage::getRequestCount)
+            .sum();
+    }
+
+    private HttpResponse<byte[]> get(String accept, String acceptEncoding) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri("/api/v1/weather/history/London/uk?limit=200"))
+            .header("Accept", accept);
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        HttpResponse<byte[]> response = send(request.build());
+        assertEquals(200, response.statusCode());
+        return response;
+    }
+
+    private HttpResponse<byte[]> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static void assertSameItems(List<WeatherInfoResp> expected, List<WeatherInfoResp> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+            assertEquals(expected.get(i).getDescription(), actual.get(i).getDescription());
+        }
+    }
+}
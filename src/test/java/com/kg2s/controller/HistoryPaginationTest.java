@@ -0,0 +1,161 @@
+package com.kg2s.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.repository.WeatherDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for keyset pagination of the history and streaming it as newline-delimited JSON
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:historytest",
+    "api.rate-limit.requests-per-hour=100",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false"
+})
+@AutoConfigureMockMvc
+class HistoryPaginationTest {
+
+    private static final String PATH = "/api/v1/weather/history/London/GB";
+
+    private static final int ROWS = 7;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        weatherDataRepository.deleteAll();
+        // Five rows share a timestamp, so only the id tells them apart
+        LocalDateTime shared = LocalDateTime.now().minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+        List<WeatherData> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            WeatherData row = new WeatherData("London", "GB", apiKey(), "800", "Clear", "row-" + i, "01d");
+            row.setTimestamp(i < 5 ? shared : shared.minusMinutes(i));
+            rows.add(row);
+        }
+        weatherDataRepository.saveAll(rows);
+    }
+
+    @Test
+    void pagesFollowTheCursorWithoutDuplicatesOrGaps() throws Exception {
+        List<String> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder page = get(PATH).param("limit", "2");
+            if (cursor != null) {
+                page.param("cursor", cursor);
+            }
+            MvcResult result = mockMvc.perform(page).andExpect(status().isOk()).andReturn();
+            List<String> descriptions = JsonPath.read(result.getResponse().getContentAsString(), "$[*].description");
+            seen.addAll(descriptions);
+            cursor = result.getResponse().getHeader("X-Next-Cursor");
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(4, pages);
+        assertEquals(ROWS, seen.size());
+        assertEquals(ROWS, new HashSet<>(seen).size(), "No row twice, so none left out: " + seen);
+    }
+
+    @Test
+    void linkHeaderKeepsTheQueryAndCarriesTheCursor() throws Exception {
+        // The link is built from the query string as sent
+        MvcResult first = mockMvc.perform(get(PATH + "?limit=3")).andExpect(status().isOk()).andReturn();
+        String cursor = first.getResponse().getHeader("X-Next-Cursor");
+        assertEquals("<http://localhost" + PATH + "?limit=3&cursor=" + cursor + ">; rel=\"next\"",
+            first.getResponse().getHeader(HttpHeaders.LINK));
+
+        MvcResult last = mockMvc.perform(get(PATH).param("limit", "3").param("cursor", cursor))
+            .andExpect(status().isOk())
+            .andReturn();
+        MvcResult end = mockMvc.perform(get(PATH).param("limit", "3")
+                .param("cursor", last.getResponse().getHeader("X-Next-Cursor")))
+            .andExpect(status().isOk())
+            .andReturn();
+        assertNull(end.getResponse().getHeader("X-Next-Cursor"));
+        assertNull(end.getResponse().getHeader(HttpHeaders.LINK));
+    }
+
+    @Test
+    void malformedOrTamperedCursorIsRejected() throws Exception {
+        MvcResult first = mockMvc.perform(get(PATH).param("limit", "2")).andReturn();
+        String issued = new String(Base64.getUrlDecoder().decode(first.getResponse().getHeader("X-Next-Cursor")),
+            StandardCharsets.UTF_8);
+        String tampered = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(issued.replaceAll("\\|[^|]*$", "|WEEKLY").getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get(PATH).param("cursor", "not a cursor!")).andExpect(status().isBadRequest());
+        mockMvc.perform(get(PATH).param("cursor", tampered)).andExpect(status().isBadRequest());
+        mockMvc.perform(get(PATH).param("cursor", Base64.getUrlEncoder()
+                .encodeToString("yesterday|7".getBytes(StandardCharsets.UTF_8))))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void historyStreamsOneObjectPerLine() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/v1/weather/history").param("apiKey", apiKey())
+                .accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.endsWith("\n"));
+        String[] lines = body.split("\n");
+        assertEquals(ROWS, lines.length);
+        for (String line : lines) {
+            JsonNode item = objectMapper.readTree(line);
+            assertTrue(item.isObject(), line);
+            assertEquals("London", item.get("city").asText());
+        }
+    }
+
+    private String apiKey() {
+        return weatherApiConfig.getKeys().get(0);
+    }
+}
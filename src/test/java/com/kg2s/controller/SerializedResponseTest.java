@@ -0,0 +1,169 @@
+package com.kg2s.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.kg2s.cache.SerializedResponseCache;
+import com.kg2s.cache.WeatherDataCache;
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.domain.WeatherInfoResp;
+import com.kg2s.domain.WeatherVersion;
+import com.kg2s.http.SerializedWeatherInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for fresh cache hits answered from serialized JSON bytes
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:serializedresponsetest",
+    "api.cache.serialized-responses=true",
+    "api.rate-limit.requests-per-hour=100",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false"
+})
+@AutoConfigureMockMvc
+class SerializedResponseTest {
+
+    private static final String PATH = "/api/v1/weather/London/uk";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WeatherDataCache weatherDataCache;
+
+    @Autowired
+    private SerializedResponseCache serializedResponses;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void setUp() {
+        weatherDataCache.put(london(LocalDateTime.now().minusMinutes(30)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        weatherDataCache.invalidateAll();
+        serializedResponses.invalidateAll();
+        weatherApiConfig.getCache().setSerializedResponses(true);
+    }
+
+    @Test
+    void hitsReuseBytesWithRequestingKey() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(0);
+        long written = serializedResponses.getRenders();
+        long reused = serializedResponses.getHits();
+
+        MvcResult first = mockMvc.perform(get(PATH).param("apiKey", apiKey))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andReturn();
+        MvcResult second = mockMvc.perform(get(PATH).param("apiKey", apiKey).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        byte[] body = first.getResponse().getContentAsByteArray();
+        assertEquals(body.length, first.getResponse().getContentLength());
+        assertEquals(first.getResponse().getContentAsString(), second.getResponse().getContentAsString());
+        assertEquals(written + 1, serializedResponses.getRenders());
+        assertEquals(reused + 1, serializedResponses.getHits());
+
+        // Same body as the usual path, apart from the key
+        weatherApiConfig.getCache().setSerializedResponses(false);
+        MvcResult usual = mockMvc.perform(get(PATH).param("apiKey", apiKey)).andExpect(status().isOk()).andReturn();
+        JsonNode serialized = objectMapper.readTree(body);
+        ObjectNode expected = (ObjectNode) objectMapper.readTree(usual.getResponse().getContentAsByteArray());
+        assertEquals(apiKey, serialized.get("apiKey").asText());
+        assertEquals(expected, serialized);
+        assertEquals(usual.getResponse().getHeader(HttpHeaders.ETAG), first.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void newDataIsSerializedAgainAndValidatorsStillApply() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(1);
+        String etag = mockMvc.perform(get(PATH).param("apiKey", apiKey))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(PATH).param("apiKey", apiKey).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        long written = serializedResponses.getRenders();
+        weatherDataCache.put(london(LocalDateTime.now().minusMinutes(1)));
+        MvcResult refreshed = mockMvc.perform(get(PATH).param("apiKey", apiKey).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(etag, refreshed.getResponse().getHeader(HttpHeaders.ETAG));
+        assertEquals(written + 1, serializedResponses.getRenders());
+    }
+
+    @Test
+    void binaryFormatsTakeTheUsualPath() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(2);
+        long written = serializedResponses.getRenders();
+        MvcResult cbor = mockMvc.perform(get(PATH).param("apiKey", apiKey)
+                        .accept(MediaType.parseMediaType("application/cbor")))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/cbor"))
+                .andReturn();
+        assertEquals(written, serializedResponses.getRenders());
+        // The cached data was fetched with another key, the body carries the requesting one
+        WeatherInfoResp response = new CBORMapper().readValue(cbor.getResponse().getContentAsByteArray(),
+            WeatherInfoResp.class);
+        assertEquals(apiKey, response.getApiKey());
+    }
+
+    @Test
+    void keysAreEscapedWhenSpliced() throws Exception {
+        WeatherData data = london(LocalDateTime.now());
+        WeatherInfoResp response = new WeatherInfoResp("800", "Clear", "clear sky", "01d", "London", "GB",
+            null, "2026-10-18 12:00:00");
+        response.setVersion(WeatherVersion.of(data, Duration.ofHours(1), LocalDateTime.now()));
+        SerializedWeatherInfo serialized = SerializedWeatherInfo.of(data, response,
+            objectMapper.writerFor(WeatherInfoResp.class));
+
+        for (String apiKey : new String[] {"plain-key", "quote\"back\\slash", "naïve\tkey"}) {
+            SerializedWeatherInfo.Body body = serialized.withApiKey(apiKey);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            body.writeTo(out);
+            assertEquals(body.contentLength(), out.size());
+            WeatherInfoResp read = objectMapper.readValue(out.toByteArray(), WeatherInfoResp.class);
+            assertEquals(apiKey, read.getApiKey());
+            assertEquals("clear sky", read.getDescription());
+        }
+    }
+
+    private static WeatherData london(LocalDateTime timestamp) {
+        WeatherData data = new WeatherData("London", "GB", "test-key", "800", "Clear", "clear sky", "01d");
+        data.setTimestamp(timestamp);
+        return data;
+    }
+}
@@ -0,0 +1,223 @@
+package com.kg2s.controller;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.ApiKeyUsage;
+import com.kg2s.ratelimit.RateLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.client.ResponseCreator;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.StringJoiner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.client.ExpectedCount.manyTimes;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for the batch endpoint: per-location outcomes, shared lookups, rate limiting
+ * per location and bounded upstream parallelism
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:batchtest",
+    "api.rate-limit.requests-per-hour=100",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false",
+    "api.batch.fetch-threads=4",
+    "api.batch.fetch-queue-capacity=8",
+    "openweathermap.api.base-url=http://owm.test/data/2.5",
+    "openweathermap.api.key=test",
+    "openweathermap.api.quota.enabled=false",
+    "openweathermap.api.circuit-breaker.enabled=false"
+})
+@AutoConfigureMockMvc
+class WeatherBatchTest {
+
+    private static final String CLEAR = """
+        {"weather":[{"id":800,"main":"Clear","description":"clear sky","icon":"01d"}],"cod":200}
+        """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private RateLimiter rateLimiter;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @Autowired
+    private ExecutorService upstreamFetchExecutor;
+
+    private MockRestServiceServer server;
+
+    @BeforeEach
+    void setUp() {
+        server = MockRestServiceServer.bindTo(restTemplate).ignoreExpectOrder(true).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        weatherApiConfig.getBatch().setParallelism(8);
+    }
+
+    @Test
+    void failedLocationsAreReportedInTheirOwnItems() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(0);
+        server.expect(once(), requestTo(url("Alphaville")))
+            .andRespond(withSuccess(CLEAR, MediaType.APPLICATION_JSON));
+        server.expect(once(), requestTo(url("Nowhere")))
+            .andRespond(withStatus(HttpStatus.NOT_FOUND));
+
+        batch(apiKey, "Alphaville", "Nowhere", " ")
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(3))
+            .andExpect(jsonPath("$[0].status").value("OK"))
+            .andExpect(jsonPath("$[0].weather.description").value("clear sky"))
+            .andExpect(jsonPath("$[1].status").value("ERROR"))
+            .andExpect(jsonPath("$[1].city").value("Nowhere"))
+            .andExpect(jsonPath("$[2].status").value("ERROR"))
+            .andExpect(jsonPath("$[2].error").value("City and country are required"));
+        assertEquals(3, requestCount(apiKey), "Every location takes a permit, failed ones included");
+    }
+
+    @Test
+    void spellingsOfOneLocationShareOneCall() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(1);
+        server.expect(once(), requestTo(url("Betatown")))
+            .andRespond(withSuccess(CLEAR, MediaType.APPLICATION_JSON));
+
+        batch(apiKey, "Betatown", "betatown", " BETATOWN ")
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].status").value("OK"))
+            .andExpect(jsonPath("$[1].status").value("OK"))
+            .andExpect(jsonPath("$[2].status").value("OK"))
+            .andExpect(jsonPath("$[2].city").value(" BETATOWN "))
+            .andExpect(jsonPath("$[2].weather.city").value("Betatown"));
+        server.verify();
+        assertEquals(3, requestCount(apiKey));
+    }
+
+    @Test
+    void callsOfOneBatchStayWithinItsParallelism() throws Exception {
+        weatherApiConfig.getBatch().setParallelism(2);
+        String apiKey = weatherApiConfig.getKeys().get(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        server.expect(manyTimes(), requestTo(startsWith("http://owm.test/data/2.5/weather?q=Gamma")))
+            .andRespond(slow(running, maxRunning));
+
+        batch(apiKey, "Gamma1", "Gamma2", "Gamma3", "Gamma4", "Gamma5", "Gamma6")
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[*].status", everyItem(is("OK"))));
+        assertEquals(2, maxRunning.get());
+    }
+
+    @Test
+    void locationsBeyondTheSharedQueueFailOnTheirOwn() throws Exception {
+        String apiKey = weatherApiConfig.getKeys().get(3);
+        server.expect(once(), requestTo(url("Deltaburg")))
+            .andRespond(withSuccess(CLEAR, MediaType.APPLICATION_JSON));
+        batch(apiKey, "Deltaburg").andExpect(jsonPath("$[0].status").value("OK"));
+
+        // Other batches hold every thread and queued call of the shared pool
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) upstreamFetchExecutor;
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            while (executor.getActiveCount() < executor.getMaximumPoolSize()
+                    || executor.getQueue().remainingCapacity() > 0) {
+                try {
+                    executor.execute(() -> awaitQuietly(release));
+                } catch (RejectedExecutionException e) {
+                    // Full until a started thread takes its call from the queue
+                    Thread.onSpinWait();
+                }
+            }
+            batch(apiKey, "Deltaburg", "Deltaville", "Deltaton")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("OK"))
+                .andExpect(jsonPath("$[0].weather.city").value("Deltaburg"))
+                .andExpect(jsonPath("$[1].status").value("ERROR"))
+                .andExpect(jsonPath("$[1].error").value("Too many OpenWeatherMap calls queued, try again shortly"))
+                .andExpect(jsonPath("$[2].status").value("ERROR"));
+        } finally {
+            release.countDown();
+        }
+        server.verify();
+        assertEquals(4, requestCount(apiKey));
+    }
+
+    private ResultActions batch(String apiKey, String... cities) throws Exception {
+        StringJoiner body = new StringJoiner(",", "[", "]");
+        for (String city : cities) {
+            body.add("{\"city\":\"" + city + "\",\"country\":\"zz\"}");
+        }
+        return mockMvc.perform(post("/api/v1/weather/batch").param("apiKey", apiKey)
+            .contentType(MediaType.APPLICATION_JSON).content(body.toString()));
+    }
+
+    /**
+     * Answers after a pause, recording how many calls were answering at once
+     */
+    private static ResponseCreator slow(AtomicInteger running, AtomicInteger maxRunning) {
+        return request -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return withSuccess(CLEAR, MediaType.APPLICATION_JSON).createResponse(request);
+        };
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int requestCount(String apiKey) {
+        return rateLimiter.snapshot().stream()
+            .filter(usage -> usage.getApiKey().equals(apiKey))
+            .mapToInt(ApiKeyUsage::getRequestCount)
+            .sum();
+    }
+
+    private static String url(String city) {
+        return "http://owm.test/data/2.5/weather?q=" + city + ",ZZ&appid=test&units=metric";
+    }
+}
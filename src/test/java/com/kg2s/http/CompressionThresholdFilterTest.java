@@ -0,0 +1,129 @@
+package com.kg2s.http;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for holding responses back until they reach the compression threshold
+ */
+class CompressionThresholdFilterTest {
+
+    @Test
+    void smallBodyIsSentWithItsLength() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter(1024).doFilter(new MockHttpServletRequest(), response,
+            (req, res) -> res.getOutputStream().write("small".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(5, response.getContentLength());
+        assertEquals("small", response.getContentAsString());
+    }
+
+    @Test
+    void writeListenerIsHandedToTheRealResponse() throws Exception {
+        ListeningResponse response = new ListeningResponse(new MockHttpServletResponse());
+        WriteListener listener = new WriteListener() {
+            @Override
+            public void onWritePossible() {
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        };
+        FilterChain chain = (req, res) -> {
+            res.getOutputStream().write("held".getBytes(StandardCharsets.UTF_8));
+            res.getOutputStream().setWriteListener(listener);
+            res.getOutputStream().write(" then streamed".getBytes(StandardCharsets.UTF_8));
+        };
+        filter(1024).doFilter(new MockHttpServletRequest(), response, chain);
+
+        assertSame(listener, response.listener.get());
+        assertEquals("held then streamed", response.written.toString(StandardCharsets.UTF_8));
+        assertNull(response.getHeader("Content-Length"));
+    }
+
+    @Test
+    void readinessComesFromTheRealResponseOnceReleased() throws Exception {
+        ListeningResponse response = new ListeningResponse(new MockHttpServletResponse());
+        response.ready = false;
+        AtomicReference<Boolean> ready = new AtomicReference<>();
+        FilterChain chain = (req, res) -> {
+            res.getOutputStream().write(new byte[2048]);
+            ready.set(res.getOutputStream().isReady());
+        };
+        filter(1024).doFilter(new MockHttpServletRequest(), response, chain);
+
+        assertFalse(ready.get());
+    }
+
+    private static CompressionThresholdFilter filter(int threshold) {
+        ServerProperties serverProperties = new ServerProperties();
+        serverProperties.getCompression().setMinResponseSize(DataSize.ofBytes(threshold));
+        CompressionThresholdFilter filter = new CompressionThresholdFilter();
+        ReflectionTestUtils.setField(filter, "serverProperties", serverProperties);
+        return filter;
+    }
+
+    /**
+     * A response whose stream takes a write listener, as a container's does
+     */
+    private static final class ListeningResponse extends HttpServletResponseWrapper {
+
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final AtomicReference<WriteListener> listener = new AtomicReference<>();
+        private boolean ready = true;
+
+        ListeningResponse(MockHttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return new ServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    written.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    written.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return ready;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    listener.set(writeListener);
+                }
+            };
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+        }
+    }
+}
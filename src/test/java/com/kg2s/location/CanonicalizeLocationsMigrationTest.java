@@ -0,0 +1,86 @@
+package com.kg2s.location;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for moving rows stored before V6 to their canonical location
+ */
+class CanonicalizeLocationsMigrationTest {
+
+    private static final String CITIES = """
+        2643743,London,GB
+        2867714,Munich,DE,München
+        """;
+
+    private DriverManagerDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource("jdbc:h2:mem:canonicalize" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+            "sa", "");
+        jdbc = new JdbcTemplate(dataSource);
+        // The schema as it was when the rows were written
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration").target("6").load().migrate();
+    }
+
+    @Test
+    void rowsMoveToTheirCanonicalLocation() throws IOException {
+        insertObservation(1, "london", "uk");
+        insertObservation(2, " LONDON ", "gb");
+        insertObservation(3, "München", "de");
+        insertObservation(4, "saint-étienne", "fr");
+        migrate();
+
+        assertEquals(List.of(Map.of("CITY", "London", "COUNTRY", "GB", "CITY_ID", 2643743L, "ROWS", 2L),
+                Map.of("CITY", "Munich", "COUNTRY", "DE", "CITY_ID", 2867714L, "ROWS", 1L)),
+            jdbc.queryForList("SELECT city, country, city_id, COUNT(*) AS rows FROM weather_data"
+                + " WHERE city_id IS NOT NULL GROUP BY city, country, city_id ORDER BY city"));
+        assertEquals(Map.of("CITY", "Saint Etienne", "COUNTRY", "FR"),
+            jdbc.queryForMap("SELECT city, country FROM weather_data WHERE city_id IS NULL"));
+    }
+
+    @Test
+    void rollupsOfOnePeriodAreMerged() throws IOException {
+        insertRollup(1, "London", "GB", "800", 3, 4);
+        insertRollup(2, "london", "uk", "800", 2, 3);
+        insertRollup(3, "LONDON", "GB", "500", 1, 1);
+        migrate();
+
+        assertEquals(Map.of("CITY", "London", "COUNTRY", "GB", "WEATHER_ID", "800", "DOMINANT_COUNT", 5,
+                "OBSERVATION_COUNT", 8),
+            jdbc.queryForMap("SELECT city, country, weather_id, dominant_count, observation_count"
+                + " FROM weather_rollup_hourly"));
+    }
+
+    private void migrate() throws IOException {
+        LocationIndex index = new LocationIndex(new StringReader(CITIES), Map.of("UK", "GB"));
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration")
+            .javaMigrations(new V7__CanonicalizeLocations(index)).load().migrate();
+    }
+
+    private void insertObservation(long id, String city, String country) {
+        jdbc.update("INSERT INTO weather_data (id, city, country, api_key, weather_id, main, description, icon,"
+            + " timestamp, created_at) VALUES (?, ?, ?, 'test-key', '800', 'Clear', 'clear sky', '01d',"
+            + " CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", id, city, country);
+    }
+
+    private void insertRollup(long id, String city, String country, String weatherId, int dominant, int observations) {
+        jdbc.update("INSERT INTO weather_rollup_hourly (id, city, country, period_start, weather_id, main,"
+            + " description, icon, dominant_count, observation_count) VALUES (?, ?, ?, TIMESTAMP '2026-10-01 10:00:00',"
+            + " ?, 'Clear', 'clear sky', '01d', ?, ?)", id, city, country, weatherId, dominant, observations);
+    }
+}
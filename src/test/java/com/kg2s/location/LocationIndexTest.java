@@ -0,0 +1,116 @@
+package com.kg2s.location;
+
+import com.kg2s.config.WeatherApiConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for resolving client locations to canonical cities
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:locationindextest",
+    "api.rate-limit.requests-per-hour=100",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false",
+    "openweathermap.api.base-url=http://owm.test/data/2.5",
+    "openweathermap.api.key=test",
+    "openweathermap.api.quota.enabled=false"
+})
+@AutoConfigureMockMvc
+class LocationIndexTest {
+
+    private static final String CITIES = """
+        # id,name,country,other names
+        3448439,São Paulo,BR
+        2867714,Munich,DE,München|Muenchen
+        2643743,London,GB
+        4951788,Springfield,US
+        4409896,Springfield,US
+        """;
+
+    private static final String LONDON = """
+        {"weather":[{"id":803,"main":"Clouds","description":"broken clouds","icon":"04d"}],
+         "sys":{"country":"GB"},"id":2643743,"name":"London","cod":200}
+        """;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private RestTemplate restTemplate;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @Test
+    void foldsCaseWhitespaceDiacriticsAndOtherNames() throws IOException {
+        LocationIndex index = index();
+        ResolvedLocation saoPaulo = new ResolvedLocation(3448439, "São Paulo", "BR");
+        assertEquals(saoPaulo, index.resolve("São Paulo", "BR"));
+        assertEquals(saoPaulo, index.resolve("  sao   PAULO ", "br"));
+        assertEquals(saoPaulo, index.resolve("Sao-Paulo", " Br"));
+
+        ResolvedLocation munich = new ResolvedLocation(2867714, "Munich", "DE");
+        assertEquals(munich, index.resolve("MÜNCHEN", "de"));
+        assertEquals(munich, index.resolve("muenchen", "DE"));
+        assertEquals(new ResolvedLocation(2643743, "London", "GB"), index.resolve("london", "uk"));
+        assertEquals(3448439, index.cityId("São Paulo", "BR"));
+    }
+
+    @Test
+    void unlistedLocationsResolveToTheirFoldedForm() throws IOException {
+        LocationIndex index = index();
+        ResolvedLocation stEtienne = index.resolve(" saint-ÉTIENNE ", "fr");
+        assertEquals(new ResolvedLocation(0, "Saint Etienne", "FR"), stEtienne);
+        assertFalse(stEtienne.isKnown());
+        assertEquals(stEtienne, index.resolve(stEtienne.city(), stEtienne.country()));
+        assertEquals(new ResolvedLocation(0, "Strasse", "DE"), index.resolve("straße", "de"));
+        assertEquals(0, index.cityId(stEtienne.city(), stEtienne.country()));
+    }
+
+    @Test
+    void firstListedCityKeepsASharedName() throws IOException {
+        assertEquals(4951788, index().resolve("springfield", "us").cityId());
+    }
+
+    @Test
+    void spellingsOfOneCityShareOneUpstreamCallById() throws Exception {
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(once(), requestTo("http://owm.test/data/2.5/weather?id=2643743&appid=test&units=metric"))
+            .andRespond(withSuccess(LONDON, MediaType.APPLICATION_JSON));
+
+        String apiKey = weatherApiConfig.getKeys().get(0);
+        for (String path : new String[] {"/London/uk", "/london/gb", "/ London /UK", "/LONDON/Gb"}) {
+            mockMvc.perform(get("/api/v1/weather" + path).param("apiKey", apiKey))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.city").value("London"))
+                .andExpect(jsonPath("$.country").value("GB"));
+        }
+        server.verify();
+    }
+
+    private static LocationIndex index() throws IOException {
+        return new LocationIndex(new StringReader(CITIES), Map.of("uk", "GB"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.kg2s.metrics;
+
+import com.kg2s.cache.WeatherDataCache;
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.metrics.WeatherMetrics.Outcome;
+import com.kg2s.metrics.WeatherMetrics.Stage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for the request stage timers and their Prometheus export
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:metricstest",
+    "api.rate-limit.requests-per-hour=1",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+class WeatherMetricsTest {
+
+    private static final Outcome[] LOOKUPS = {Outcome.HIT, Outcome.STALE, Outcome.MISS};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private WeatherMetrics weatherMetrics;
+
+    @Autowired
+    private WeatherDataCache weatherDataCache;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @AfterEach
+    void tearDown() {
+        weatherDataCache.invalidateAll();
+    }
+
+    @Test
+    void stagesAndComponentsAreExported() throws Exception {
+        WeatherData data = new WeatherData("London", "GB", "test-key", "800", "Clear", "clear sky", "01d");
+        data.setTimestamp(LocalDateTime.now().minusMinutes(5));
+        weatherDataCache.put(data);
+        String apiKey = weatherApiConfig.getKeys().get(0);
+
+        mockMvc.perform(get("/api/v1/weather/London/uk").param("apiKey", apiKey)).andExpect(status().isOk());
+        mockMvc.perform(get("/api/v1/weather/London/uk").param("apiKey", apiKey));
+        mockMvc.perform(get("/api/v1/weather/London/uk").param("apiKey", "unknown"));
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString(
+                    "weather_request_stage_seconds_count{outcome=\"hit\",stage=\"cache\",} 1.0")))
+                .andExpect(content().string(containsString(
+                    "weather_request_stage_seconds_count{outcome=\"rejected\",stage=\"rate_limit\",} 1.0")))
+                .andExpect(content().string(containsString(
+                    "weather_request_stage_seconds_count{outcome=\"rejected\",stage=\"key_validation\",} 1.0")))
+                .andExpect(content().string(containsString(
+                    "weather_request_stage_seconds_bucket{outcome=\"hit\",stage=\"cache\",le=")))
+                .andExpect(content().string(containsString("weather_ratelimit_rejections_total 1.0")))
+                .andExpect(content().string(containsString("weather_cache_requests_total{result=\"hit\",}")))
+                .andExpect(content().string(containsString("weather_upstream_pool_pending")))
+                .andExpect(content().string(containsString("weather_write_behind_queue")));
+    }
+
+    @Test
+    void recordingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        for (int i = 0; i < 20_000; i++) {
+            weatherMetrics.record(Stage.DATABASE, LOOKUPS[i % LOOKUPS.length], System.nanoTime() - i * 1_000L);
+        }
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 100_000; i++) {
+            weatherMetrics.record(Stage.DATABASE, LOOKUPS[i % LOOKUPS.length], System.nanoTime() - i * 1_000L);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(allocated < 16 * 1024, "Allocated " + allocated + " bytes for 100000 records");
+    }
+}
@@ -0,0 +1,144 @@
+package com.kg2s.persistence;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.ApiKeyUsage;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.repository.ApiKeyUsageRepository;
+import com.kg2s.repository.WeatherDataRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.env.Environment;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests that failed write-behind batches are retried, then written entity by entity
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:writebehindwritertest",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false"
+})
+class WriteBehindWriterTest {
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private ApiKeyUsageRepository apiKeyUsageRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Environment environment;
+
+    @BeforeEach
+    void setUp() {
+        weatherDataRepository.deleteAll();
+    }
+
+    @Test
+    void batchIsRetriedWhileTheDatabaseFails() {
+        // The inserts are issued, then the transaction fails and rolls back, twice
+        AtomicInteger failures = new AtomicInteger(2);
+        WriteBehindWriter writer = writer(failing(failures), 3);
+        List<WeatherData> observations = List.of(observation("London"), observation("Paris"), observation("Berlin"));
+
+        writer.start();
+        observations.forEach(writer::enqueue);
+        writer.stop();
+
+        assertEquals(2, writer.getRetryCount());
+        assertEquals(3, writer.getFlushedEntityCount());
+        assertEquals(0, writer.getFailedEntityCount());
+        assertEquals(3, weatherDataRepository.count());
+        for (WeatherData data : observations) {
+            assertTrue(weatherDataRepository.findById(data.getId()).isPresent(), "Id names the written row");
+        }
+    }
+
+    @Test
+    void onlyTheEntityThatCannotBeWrittenIsDropped() {
+        WriteBehindWriter writer = writer(weatherDataRepository, 1);
+        WeatherData invalid = new WeatherData("Madrid", "ES", "test-key", "800", null, "clear sky", "01d");
+
+        writer.start();
+        writer.enqueue(observation("London"));
+        writer.enqueue(invalid);
+        writer.enqueue(observation("Paris"));
+        writer.stop();
+
+        assertEquals(1, writer.getRetryCount());
+        assertEquals(2, writer.getFlushedEntityCount());
+        assertEquals(1, writer.getFailedEntityCount());
+        assertEquals(2, weatherDataRepository.count());
+        assertNull(invalid.getId());
+    }
+
+    @Test
+    void supersededUsageSnapshotsAreCountedApart() {
+        WriteBehindWriter writer = writer(weatherDataRepository, 1);
+        ApiKeyUsage earlier = new ApiKeyUsage("merge-key");
+        earlier.setRequestCount(1);
+        ApiKeyUsage later = new ApiKeyUsage("merge-key");
+        later.setRequestCount(2);
+        later.setLastRequestTime(earlier.getLastRequestTime().plusSeconds(1));
+
+        writer.start();
+        writer.enqueue(observation("London"));
+        writer.enqueue(List.of(earlier, later));
+        writer.stop();
+
+        assertEquals(1, writer.getFlushCount());
+        assertEquals(2, writer.getFlushedEntityCount());
+        assertEquals(1, writer.getMergedEntityCount());
+        assertEquals(3.0, writer.getAverageBatchSize());
+        assertEquals(2, apiKeyUsageRepository.findByApiKey("merge-key").orElseThrow().getRequestCount().intValue());
+    }
+
+    private WriteBehindWriter writer(WeatherDataRepository repository, int maxRetries) {
+        WeatherApiConfig config = new WeatherApiConfig();
+        config.getWriteBehind().setFlushInterval(Duration.ofMillis(300));
+        config.getWriteBehind().setMaxRetries(maxRetries);
+        config.getWriteBehind().setRetryBackoff(Duration.ofMillis(10));
+        return new WriteBehindWriter(repository, apiKeyUsageRepository, transactionManager, config, environment);
+    }
+
+    /**
+     * The repository, except that saveAll throws after saving while failures are left
+     */
+    private WeatherDataRepository failing(AtomicInteger failures) {
+        return (WeatherDataRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {WeatherDataRepository.class}, (proxy, method, args) -> {
+                Object result;
+                try {
+                    result = method.invoke(weatherDataRepository, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                if (method.getName().equals("saveAll") && failures.getAndDecrement() > 0) {
+                    throw new DataAccessResourceFailureException("Database unavailable");
+                }
+                return result;
+            });
+    }
+
+    private static WeatherData observation(String city) {
+        return new WeatherData(city, "GB", "test-key", "800", "Clear", "clear sky", "01d");
+    }
+}
@@ -0,0 +1,154 @@
+package com.kg2s.ratelimit;
+
+import com.kg2s.Application;
+import com.kg2s.domain.RateLimitWindow;
+import com.kg2s.repository.RateLimitWindowRepository;
+import org.h2.tools.Server;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Runs several application instances against one H2 server and checks that the
+ * cluster rate limiter holds the limit across all of them
+ */
+class ClusterRateLimiterTest {
+
+    private static final int INSTANCES = 3;
+    private static final int THREADS_PER_INSTANCE = 8;
+    private static final int ATTEMPTS_PER_THREAD = 300;
+    private static final int REQUESTS_PER_HOUR = 1_000;
+
+    private static Server server;
+    private static final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+    @BeforeAll
+    static void startInstances() throws Exception {
+        server = Server.createTcpServer("-tcpPort", "0", "-ifNotExists").start();
+        String url = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:cluster;DB_CLOSE_DELAY=-1";
+        for (int i = 0; i < INSTANCES; i++) {
+            instances.add(SpringApplication.run(Application.class,
+                "--server.port=0",
+                "--spring.datasource.url=" + url,
+                "--api.rate-limit.engine=cluster",
+                "--api.rate-limit.requests-per-hour=" + REQUESTS_PER_HOUR,
+                "--api.pre-warm.enabled=false",
+                "--api.retention.enabled=false"));
+        }
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        instances.forEach(ConfigurableApplicationContext::close);
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void instancesTogetherNeverGrantMoreThanLimit() throws Exception {
+        String apiKey = "cluster-key";
+        List<ClusterRateLimiter> rateLimiters = new ArrayList<>();
+        for (ConfigurableApplicationContext instance : instances) {
+            rateLimiters.add(assertInstanceOf(ClusterRateLimiter.class, instance.getBean(RateLimiter.class)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(INSTANCES * THREADS_PER_INSTANCE);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (ClusterRateLimiter rateLimiter : rateLimiters) {
+                for (int i = 0; i < THREADS_PER_INSTANCE; i++) {
+                    futures.add(executor.submit(() -> {
+                        start.await();
+                        for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                            if (rateLimiter.tryAcquire(apiKey)) {
+                                granted.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(REQUESTS_PER_HOUR, granted.get());
+        RateLimitWindow window = instances.get(0).getBean(RateLimitWindowRepository.class).findById(apiKey).orElseThrow();
+        assertEquals(REQUESTS_PER_HOUR, window.getUsed());
+
+        long databaseCalls = rateLimiters.stream().mapToLong(ClusterRateLimiter::getDatabaseCallCount).sum();
+        assertTrue(databaseCalls < REQUESTS_PER_HOUR / 2, databaseCalls + " database calls for " + REQUESTS_PER_HOUR + " grants");
+    }
+
+    @Test
+    void windowRollsOverAtTheNextHour() {
+        RateLimitWindowRepository repository = instances.get(0).getBean(RateLimitWindowRepository.class);
+        MutableClock clock = new MutableClock(Instant.parse("2025-08-08T10:59:59Z"));
+        RateLimiter first = new ClusterRateLimiter(clock, repository, 2, 10);
+        RateLimiter second = new ClusterRateLimiter(clock, repository, 2, 10);
+
+        assertTrue(first.tryAcquire("rollover-key"));
+        assertTrue(second.tryAcquire("rollover-key"));
+        assertFalse(first.tryAcquire("rollover-key"));
+        assertFalse(second.tryAcquire("rollover-key"));
+
+        clock.instant = Instant.parse("2025-08-08T11:00:00Z");
+        assertTrue(second.tryAcquire("rollover-key"));
+        assertEquals(1, repository.findById("rollover-key").orElseThrow().getUsed());
+
+        // A larger quota for the key is honoured within the same hour
+        assertTrue(first.tryAcquire("rollover-key", 2, Quota.perHour(3)));
+        assertFalse(first.tryAcquire("rollover-key", 1, Quota.perHour(3)));
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.kg2s.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Concurrency stress tests for the rate limiter engines
+ */
+class RateLimiterConcurrencyTest {
+    
+    private static final int THREADS = 32;
+    private static final int ATTEMPTS_PER_THREAD = 2_000;
+    private static final int REQUESTS_PER_HOUR = 5_000;
+    private static final String API_KEY = "5b595d4b-01d3-4d2c-9c51-508d344f2022";
+    
+    private final Clock clock = Clock.fixed(Instant.parse("2025-08-08T10:15:00Z"), ZoneId.of("UTC"));
+    
+    @Test
+    void hourlyWindowNeverGrantsMoreThanLimit() throws Exception {
+        assertEquals(REQUESTS_PER_HOUR, hammer(new HourlyWindowRateLimiter(clock, REQUESTS_PER_HOUR), 1));
+    }
+    
+    @Test
+    void tokenBucketNeverGrantsMoreThanLimit() throws Exception {
+        assertEquals(REQUESTS_PER_HOUR, hammer(new TokenBucketRateLimiter(clock, REQUESTS_PER_HOUR), 1));
+    }
+    
+    @Test
+    void multiPermitAcquisitionIsAllOrNothing() throws Exception {
+        // 5000 is not a multiple of 3, so the last partial batch must be refused as a whole
+        assertEquals(REQUESTS_PER_HOUR / 3 * 3, hammer(new HourlyWindowRateLimiter(clock, REQUESTS_PER_HOUR), 3));
+    }
+    
+    @Test
+    void hourlyWindowResetsAtTheNextHour() {
+        MutableClock mutableClock = new MutableClock(Instant.parse("2025-08-08T10:59:59Z"));
+        RateLimiter rateLimiter = new HourlyWindowRateLimiter(mutableClock, 1);
+        
+        assertTrue(rateLimiter.tryAcquire(API_KEY));
+        assertFalse(rateLimiter.tryAcquire(API_KEY));
+        
+        mutableClock.instant = Instant.parse("2025-08-08T11:00:00Z");
+        assertTrue(rateLimiter.tryAcquire(API_KEY));
+        assertEquals(1, rateLimiter.snapshot().get(0).getRequestCount());
+    }
+    
+    @Test
+    void tokenBucketAppliesTheQuotaOfEachKey() {
+        MutableClock mutableClock = new MutableClock(Instant.parse("2025-08-08T10:00:00Z"));
+        RateLimiter rateLimiter = new TokenBucketRateLimiter(mutableClock, 5);
+        Quota premium = new Quota(3_600, 10);
+        
+        assertTrue(rateLimiter.tryAcquire("premium", 10, premium));
+        assertFalse(rateLimiter.tryAcquire("premium", 1, premium));
+        assertTrue(rateLimiter.tryAcquire("standard", 5));
+        assertFalse(rateLimiter.tryAcquire("standard", 1));
+        
+        // One token a second for the premium key, one every 12 minutes for the default
+        mutableClock.instant = Instant.parse("2025-08-08T10:00:03Z");
+        assertTrue(rateLimiter.tryAcquire("premium", 3, premium));
+        assertFalse(rateLimiter.tryAcquire("standard", 1));
+    }
+    
+    /**
+     * Let all threads race for permits of the same key and return how many requests were granted
+     */
+    private int hammer(RateLimiter rateLimiter, int permits) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int attempt = 0; attempt < ATTEMPTS_PER_THREAD; attempt++) {
+                        if (rateLimiter.tryAcquire(API_KEY, permits)) {
+                            granted.addAndGet(permits);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(granted.get(), rateLimiter.snapshot().get(0).getRequestCount());
+        return granted.get();
+    }
+    
+    private static class MutableClock extends Clock {
+        private volatile Instant instant;
+        
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+        
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+        
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+        
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
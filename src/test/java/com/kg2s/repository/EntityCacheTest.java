@@ -0,0 +1,97 @@
+package com.kg2s.repository;
+
+import com.kg2s.domain.ApiKeyUsage;
+import com.kg2s.domain.WeatherData;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Checks that repeated lookups are answered from the second-level and query cache
+ * without SQL, and that writes to the table make them read it again
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:entitycachetest",
+    "api.pre-warm.enabled=false",
+    "api.retention.enabled=false"
+})
+class EntityCacheTest {
+
+    private static final int LOOKUPS = 100;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private ApiKeyUsageRepository apiKeyUsageRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        weatherDataRepository.deleteAll();
+        apiKeyUsageRepository.deleteAll();
+    }
+
+    @Test
+    void steadyStateLookupsIssueNoSql() {
+        WeatherData data = weatherDataRepository.save(weather("Paris", "fr", LocalDateTime.now().minusMinutes(5)));
+        apiKeyUsageRepository.save(new ApiKeyUsage("cached-key"));
+        weatherDataRepository.findLatestByCityAndCountry("Paris", "fr");
+        apiKeyUsageRepository.findByApiKey("cached-key");
+
+        statistics.clear();
+        for (int i = 0; i < LOOKUPS; i++) {
+            assertEquals(data.getId(), weatherDataRepository.findLatestByCityAndCountry("Paris", "fr").orElseThrow().getId());
+            assertEquals("cached-key", apiKeyUsageRepository.findByApiKey("cached-key").orElseThrow().getApiKey());
+            assertEquals("Paris", weatherDataRepository.findById(data.getId()).orElseThrow().getCity());
+        }
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(LOOKUPS, statistics.getQueryRegionStatistics(WeatherDataRepository.LATEST_CACHE_REGION).getHitCount());
+        assertEquals(LOOKUPS, statistics.getQueryRegionStatistics(ApiKeyUsageRepository.BY_KEY_CACHE_REGION).getHitCount());
+        assertEquals(LOOKUPS, statistics.getDomainDataRegionStatistics(WeatherData.CACHE_REGION).getHitCount());
+        assertTrue(meterRegistry.get("weather.entity-cache.hit.ratio")
+            .tag("region", WeatherDataRepository.LATEST_CACHE_REGION).gauge().value() > 0.99);
+    }
+
+    @Test
+    void writesInvalidateCachedQueries() {
+        weatherDataRepository.save(weather("Rome", "it", LocalDateTime.now().minusMinutes(30)));
+        ApiKeyUsage usage = apiKeyUsageRepository.save(new ApiKeyUsage("counted-key"));
+        weatherDataRepository.findLatestByCityAndCountry("Rome", "it");
+        assertEquals(0, apiKeyUsageRepository.findByApiKey("counted-key").orElseThrow().getRequestCount());
+
+        WeatherData newer = weatherDataRepository.save(weather("Rome", "it", LocalDateTime.now()));
+        usage.setRequestCount(3);
+        apiKeyUsageRepository.save(usage);
+
+        assertEquals(newer.getId(), weatherDataRepository.findLatestByCityAndCountry("Rome", "it").orElseThrow().getId());
+        assertEquals(3, apiKeyUsageRepository.findByApiKey("counted-key").orElseThrow().getRequestCount());
+    }
+
+    private static WeatherData weather(String city, String country, LocalDateTime timestamp) {
+        WeatherData data = new WeatherData(city, country, "test-key", "800", "Clear", "clear sky", "01d");
+        data.setTimestamp(timestamp);
+        return data;
+    }
+}
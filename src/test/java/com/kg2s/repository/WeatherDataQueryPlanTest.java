@@ -0,0 +1,153 @@
+package com.kg2s.repository;
+
+import com.kg2s.domain.WeatherData;
+import com.kg2s.domain.WeatherDataView;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Checks that the weather_data read queries, as generated by Hibernate, are planned
+ * on the history indexes created by the Flyway migrations instead of a table scan
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "com.kg2s.repository.WeatherDataQueryPlanTest$RecordingInspector")
+class WeatherDataQueryPlanTest {
+    
+    private static final String LOCATION_INDEX = "IDX_WEATHER_DATA_LOCATION_TS";
+    private static final String API_KEY_INDEX = "IDX_WEATHER_DATA_API_KEY_TS";
+    private static final String TIMESTAMP_INDEX = "IDX_WEATHER_DATA_TS";
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+    
+    @Autowired
+    private WeatherDataRepository repository;
+    
+    @Autowired
+    private HourlyWeatherRollupRepository hourlyRollupRepository;
+    
+    @Autowired
+    private DailyWeatherRollupRepository dailyRollupRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeEach
+    void recordFromHere() {
+        RecordingInspector.STATEMENTS.clear();
+    }
+    
+    @Test
+    void latestByLocationUsesLocationIndex() {
+        repository.findLatestByCityAndCountry("London", "uk");
+        assertPlanUses(LOCATION_INDEX);
+    }
+    
+    @Test
+    void historyPageByLocationUsesLocationIndex() {
+        repository.findPageByCityAndCountry("London", "uk", EARLIEST, LATEST, Long.MIN_VALUE, PageRequest.of(0, 10));
+        assertPlanUses(LOCATION_INDEX);
+    }
+    
+    @Test
+    void historyPageByApiKeyUsesApiKeyIndex() {
+        repository.findPageByApiKey("key", EARLIEST, LATEST, Long.MIN_VALUE, PageRequest.of(0, 10));
+        assertPlanUses(API_KEY_INDEX);
+    }
+    
+    @Test
+    void historyStreamsUseHistoryIndexes() {
+        try (Stream<WeatherDataView> rows = repository.streamByCityAndCountry("London", "uk", EARLIEST, LATEST)) {
+            rows.count();
+        }
+        assertPlanUses(LOCATION_INDEX);
+        
+        RecordingInspector.STATEMENTS.clear();
+        try (Stream<WeatherDataView> rows = repository.streamByApiKey("key", EARLIEST, LATEST)) {
+            rows.count();
+        }
+        assertPlanUses(API_KEY_INDEX);
+    }
+    
+    @Test
+    void rollupPagesUseLocationPeriodKeys() {
+        hourlyRollupRepository.findPageByCityAndCountry("London", "uk", EARLIEST, LATEST, Long.MIN_VALUE,
+            PageRequest.of(0, 10));
+        assertPlanUses("UK_WEATHER_ROLLUP_HOURLY_LOCATION_PERIOD");
+        
+        RecordingInspector.STATEMENTS.clear();
+        dailyRollupRepository.findPageByCityAndCountry("London", "uk", EARLIEST, LATEST, Long.MIN_VALUE,
+            PageRequest.of(0, 10));
+        assertPlanUses("UK_WEATHER_ROLLUP_DAILY_LOCATION_PERIOD");
+    }
+    
+    @Test
+    void compactionWalksTiersByTimestampIndexes() {
+        repository.findOldest(LATEST, PageRequest.of(0, 500));
+        assertPlanUses(TIMESTAMP_INDEX);
+        
+        RecordingInspector.STATEMENTS.clear();
+        hourlyRollupRepository.findOldest(LATEST, PageRequest.of(0, 500));
+        assertPlanUses("IDX_WEATHER_ROLLUP_HOURLY_PERIOD");
+    }
+    
+    @Test
+    void historyPageProjectsRowsNewestFirst() {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 8, 10, 0);
+        for (int i = 0; i < 3; i++) {
+            WeatherData data = new WeatherData("London", "uk", "key", "800", "Clear", "clear sky " + i, "01d");
+            data.setTimestamp(start.plusMinutes(i));
+            repository.save(data);
+        }
+        repository.flush();
+        
+        List<WeatherDataView> page = repository.findPageByCityAndCountry("London", "uk", EARLIEST, LATEST,
+            Long.MIN_VALUE, PageRequest.of(0, 2));
+        
+        assertEquals(2, page.size());
+        assertEquals("clear sky 2", page.get(0).description());
+        assertEquals(start.plusMinutes(1), page.get(1).timestamp());
+    }
+    
+    private void assertPlanUses(String index) {
+        String select = RecordingInspector.STATEMENTS.stream()
+            .filter(sql -> sql.trim().toLowerCase().startsWith("select"))
+            .reduce((first, second) -> second)
+            .orElseThrow(() -> new AssertionError("No query was issued"));
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + select, String.class);
+        
+        assertTrue(plan.toUpperCase().contains(index), () -> "Expected " + index + " in plan:\n" + plan);
+        assertFalse(plan.contains("tableScan"), () -> "Unexpected table scan in plan:\n" + plan);
+    }
+    
+    /**
+     * Records the SQL Hibernate sends so the test can explain exactly that statement
+     */
+    public static class RecordingInspector implements StatementInspector {
+        
+        private static final long serialVersionUID = 1L;
+        
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
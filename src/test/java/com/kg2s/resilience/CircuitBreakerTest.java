@@ -0,0 +1,150 @@
+package com.kg2s.resilience;
+
+import com.kg2s.exception.UpstreamUnavailableException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description State machine tests for the circuit breaker
+ */
+class CircuitBreakerTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-08-08T10:15:00Z"));
+
+    @Test
+    void opensOnFailureRateAndFailsFast() {
+        CircuitBreaker breaker = breaker(Duration.ofSeconds(10));
+        for (int i = 0; i < 5; i++) {
+            succeed(breaker);
+        }
+        for (int i = 0; i < 4; i++) {
+            fail(breaker);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState(), "Below minimum calls");
+        fail(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        AtomicInteger calls = new AtomicInteger();
+        UpstreamUnavailableException e = assertThrows(UpstreamUnavailableException.class,
+            () -> breaker.execute(calls::incrementAndGet));
+        assertEquals(0, calls.get(), "Open circuit must not run the call");
+        assertEquals(Duration.ofSeconds(30), e.getRetryAfter());
+        assertEquals(1, breaker.status().notPermittedCalls());
+    }
+
+    @Test
+    void halfOpenClosesAfterSuccessfulTrials() {
+        CircuitBreaker breaker = openBreaker();
+        clock.advance(Duration.ofSeconds(30));
+
+        succeed(breaker);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        succeed(breaker);
+        succeed(breaker);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenReopensAfterFailedTrials() {
+        CircuitBreaker breaker = openBreaker();
+        clock.advance(Duration.ofSeconds(30));
+
+        fail(breaker);
+        fail(breaker);
+        succeed(breaker);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(UpstreamUnavailableException.class, () -> breaker.execute(() -> "late"));
+    }
+
+    @Test
+    void opensOnSlowCallsEvenWhenTheySucceed() {
+        CircuitBreaker breaker = breaker(Duration.ofMillis(1));
+        for (int i = 0; i < 10; i++) {
+            breaker.execute(() -> {
+                sleep(Duration.ofMillis(3));
+                return "slow";
+            });
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void ignoredExceptionsDoNotOpen() {
+        CircuitBreaker breaker = breaker(Duration.ofSeconds(10));
+        for (int i = 0; i < 20; i++) {
+            assertThrows(IllegalArgumentException.class, () -> breaker.execute(() -> {
+                throw new IllegalArgumentException("city not found");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private CircuitBreaker breaker(Duration slowCallDuration) {
+        return new CircuitBreaker("test", clock, e -> !(e instanceof IllegalArgumentException),
+            20, 10, 50, 80, slowCallDuration, Duration.ofSeconds(30), 3);
+    }
+
+    private CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = breaker(Duration.ofSeconds(10));
+        for (int i = 0; i < 10; i++) {
+            fail(breaker);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static void succeed(CircuitBreaker breaker) {
+        breaker.execute(() -> "ok");
+    }
+
+    private static void fail(CircuitBreaker breaker) {
+        assertThrows(IllegalStateException.class, () -> breaker.execute(() -> {
+            throw new IllegalStateException("upstream down");
+        }));
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private volatile Instant instant;
+
+        MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.kg2s.resilience;
+
+import com.kg2s.cache.FetchKey;
+import com.kg2s.cache.LocationKey;
+import com.kg2s.cache.SingleFlight;
+import com.kg2s.config.OpenWeatherMapConfig;
+import com.kg2s.exception.UpstreamQuotaExceededException;
+import com.kg2s.resilience.UpstreamQuotaGovernor.Priority;
+import com.kg2s.service.impl.OpenWeatherMapServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.anything;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for the upstream call budget: both buckets, priorities, the background
+ * reserve, bounded waits and throttling by the upstream
+ */
+class UpstreamQuotaGovernorTest {
+
+    @Test
+    void refusesOnceMinuteBudgetIsSpent() {
+        UpstreamQuotaGovernor governor = governor(3, 1000, Duration.ZERO, Duration.ZERO, 0);
+        for (int i = 0; i < 3; i++) {
+            governor.acquire(Priority.USER);
+        }
+
+        UpstreamQuotaExceededException e = assertThrows(UpstreamQuotaExceededException.class,
+            () -> governor.acquire(Priority.USER));
+        Duration retryAfter = e.getRetryAfter();
+        assertTrue(retryAfter.compareTo(Duration.ofSeconds(15)) > 0 && retryAfter.compareTo(Duration.ofSeconds(20)) <= 0,
+            "One call every 20s, was " + retryAfter);
+        assertEquals(3, governor.status().grantedUserCalls());
+        assertEquals(1, governor.status().shedUserCalls());
+    }
+
+    @Test
+    void refusesOnceDayBudgetIsSpent() {
+        UpstreamQuotaGovernor governor = governor(100, 2, Duration.ofSeconds(1), Duration.ZERO, 0);
+        governor.acquire(Priority.USER);
+        governor.acquire(Priority.USER);
+
+        UpstreamQuotaExceededException e = assertThrows(UpstreamQuotaExceededException.class,
+            () -> governor.acquire(Priority.USER));
+        assertTrue(e.getRetryAfter().compareTo(Duration.ofHours(11)) > 0, "One call every 12h, was " + e.getRetryAfter());
+        assertEquals(98, governor.status().availableThisMinute());
+    }
+
+    @Test
+    void waitingUserCallsGoBeforeBackgroundCalls() throws Exception {
+        // One call a second, the first one after the pause
+        UpstreamQuotaGovernor governor = governor(60, 100_000, Duration.ofSeconds(5), Duration.ofSeconds(5), 0);
+        governor.throttled(Duration.ofMillis(300));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> background = executor.submit(() -> governor.acquire(Priority.BACKGROUND));
+            awaitWaiting(governor, 1);
+            Future<?> user = executor.submit(() -> governor.acquire(Priority.USER));
+            awaitWaiting(governor, 2);
+
+            user.get(5, TimeUnit.SECONDS);
+            assertEquals(1, governor.status().waiting(), "Background call still waiting for the next second");
+            background.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, governor.status().grantedBackgroundCalls());
+    }
+
+    @Test
+    void userFetchDoesNotWaitOnARefreshOfTheSameLocation() throws Exception {
+        // One call a second; refreshes leave half the minute to users, so the next one waits about a second
+        UpstreamQuotaGovernor governor = governor(60, 100_000, Duration.ofMillis(200), Duration.ofSeconds(5), 50);
+        for (int i = 0; i < 30; i++) {
+            governor.acquire(Priority.BACKGROUND);
+        }
+        SingleFlight<FetchKey, Priority> fetches = new SingleFlight<>();
+        LocationKey london = LocationKey.of("London", "GB");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Priority> refresh = executor.submit(() -> fetches.execute(FetchKey.of(london, Priority.BACKGROUND),
+                () -> {
+                    governor.acquire(Priority.BACKGROUND);
+                    return Priority.BACKGROUND;
+                }));
+            awaitWaiting(governor, 1);
+
+            // Granted within the user limit while the refresh still waits for its share
+            Priority fetched = fetches.execute(FetchKey.of(london, Priority.USER), () -> {
+                governor.acquire(Priority.USER);
+                return Priority.USER;
+            });
+            assertEquals(Priority.USER, fetched);
+            assertEquals(1, governor.status().waiting());
+            assertEquals(0, fetches.getCoalescedCount());
+            assertEquals(Priority.BACKGROUND, refresh.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, governor.status().shedUserCalls());
+    }
+
+    @Test
+    void backgroundCallsLeaveReserveToUsers() {
+        UpstreamQuotaGovernor governor = governor(10, 1000, Duration.ZERO, Duration.ZERO, 50);
+        for (int i = 0; i < 5; i++) {
+            governor.acquire(Priority.BACKGROUND);
+        }
+        assertThrows(UpstreamQuotaExceededException.class, () -> governor.acquire(Priority.BACKGROUND));
+        for (int i = 0; i < 5; i++) {
+            governor.acquire(Priority.USER);
+        }
+        assertThrows(UpstreamQuotaExceededException.class, () -> governor.acquire(Priority.USER));
+        assertEquals(1, governor.status().shedBackgroundCalls());
+    }
+
+    @Test
+    void waitsForTheNextCallWithinTheLimit() {
+        // One call every 100ms once the first minute's calls are spent
+        UpstreamQuotaGovernor governor = governor(600, 100_000, Duration.ofSeconds(1), Duration.ZERO, 0);
+        for (int i = 0; i < 600; i++) {
+            governor.acquire(Priority.USER);
+        }
+        long start = System.nanoTime();
+        governor.acquire(Priority.USER);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMillis >= 50 && waitedMillis < 1000, "Waited " + waitedMillis + "ms");
+        assertEquals(0, governor.status().shedUserCalls());
+    }
+
+    @Test
+    void upstreamThrottlingPausesTheBudget() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "7");
+        server.expect(anything()).andRespond(withStatus(HttpStatus.TOO_MANY_REQUESTS).headers(headers));
+
+        OpenWeatherMapConfig config = new OpenWeatherMapConfig();
+        config.setBaseUrl("http://owm.test/data/2.5");
+        config.setKey("test");
+        config.setUnits("metric");
+        config.getCircuitBreaker().setEnabled(false);
+        UpstreamQuotaGovernor governor = governor(60, 1000, Duration.ofSeconds(1), Duration.ZERO, 0);
+        OpenWeatherMapServiceImpl service = new OpenWeatherMapServiceImpl();
+        ReflectionTestUtils.setField(service, "openWeatherMapConfig", config);
+        ReflectionTestUtils.setField(service, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(service, "quotaGovernor", governor);
+        service.init();
+
+        UpstreamQuotaExceededException e = assertThrows(UpstreamQuotaExceededException.class,
+            () -> service.getWeatherData("London", "uk"));
+        assertEquals(Duration.ofSeconds(7), e.getRetryAfter());
+        server.verify();
+
+        // No further call is let through while the upstream asked to wait
+        assertTrue(governor.status().throttledMillis() > 6000);
+        UpstreamQuotaExceededException refused = assertThrows(UpstreamQuotaExceededException.class,
+            () -> service.getWeatherData("London", "uk"));
+        assertTrue(refused.getRetryAfter().compareTo(Duration.ofSeconds(6)) > 0);
+    }
+
+    private static UpstreamQuotaGovernor governor(int perMinute, int perDay, Duration userMaxWait,
+                                                  Duration backgroundMaxWait, int backgroundReserve) {
+        return new UpstreamQuotaGovernor("test", perMinute, perDay, 10, userMaxWait, backgroundMaxWait,
+            backgroundReserve);
+    }
+
+    private static void awaitWaiting(UpstreamQuotaGovernor governor, int waiting) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (governor.status().waiting() < waiting && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(waiting, governor.status().waiting());
+    }
+}
@@ -0,0 +1,163 @@
+package com.kg2s.retention;
+
+import com.kg2s.config.WeatherApiConfig;
+import com.kg2s.domain.DailyWeatherRollup;
+import com.kg2s.domain.HourlyWeatherRollup;
+import com.kg2s.domain.WeatherData;
+import com.kg2s.domain.WeatherHistoryPage;
+import com.kg2s.domain.WeatherInfoResp;
+import com.kg2s.domain.WeatherRollup;
+import com.kg2s.repository.DailyWeatherRollupRepository;
+import com.kg2s.repository.HourlyWeatherRollupRepository;
+import com.kg2s.repository.WeatherDataRepository;
+import com.kg2s.service.WeatherService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for compacting weather history into rollup tiers and paging across them
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:retentiontest",
+    "api.retention.interval=1h",
+    "api.pre-warm.enabled=false"
+})
+class HistoryCompactorTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 18, 12, 0);
+    private static final LocalDateTime OLD_DAY = LocalDateTime.of(2026, 10, 10, 0, 0);
+
+    @Autowired
+    private HistoryCompactor historyCompactor;
+
+    @Autowired
+    private WeatherService weatherService;
+
+    @Autowired
+    private WeatherApiConfig weatherApiConfig;
+
+    @Autowired
+    private WeatherDataRepository weatherDataRepository;
+
+    @Autowired
+    private HourlyWeatherRollupRepository hourlyRollupRepository;
+
+    @Autowired
+    private DailyWeatherRollupRepository dailyRollupRepository;
+
+    private int batchSize;
+
+    @BeforeEach
+    void setUp() {
+        batchSize = weatherApiConfig.getRetention().getBatchSize();
+        weatherDataRepository.deleteAllInBatch();
+        hourlyRollupRepository.deleteAllInBatch();
+        dailyRollupRepository.deleteAllInBatch();
+
+        observe("London", "800", "Clear", OLD_DAY.withHour(8).withMinute(5));
+        observe("London", "800", "Clear", OLD_DAY.withHour(8).withMinute(20));
+        observe("London", "500", "Rain", OLD_DAY.withHour(8).withMinute(40));
+        observe("London", "500", "Rain", OLD_DAY.withHour(9).withMinute(10));
+        observe("Paris", "500", "Rain", OLD_DAY.withHour(8).withMinute(30));
+        observe("London", "800", "Clear", NOW.minusHours(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        weatherApiConfig.getRetention().setBatchSize(batchSize);
+    }
+
+    @Test
+    void rawHistoryIsCompactedIntoHourlyThenDailyRollups() {
+        historyCompactor.compact(NOW);
+
+        assertEquals(1, weatherDataRepository.count(), "Only raw history within retention is kept");
+        List<HourlyWeatherRollup> hourly = hourlyRollups("London");
+        assertEquals(2, hourly.size());
+        assertRollup(hourly.get(0), OLD_DAY.withHour(8), "800", 2, 3);
+        assertRollup(hourly.get(1), OLD_DAY.withHour(9), "500", 1, 1);
+        assertEquals(1, hourlyRollups("Paris").size());
+
+        historyCompactor.compact(NOW.plusDays(120));
+
+        assertEquals(0, weatherDataRepository.count());
+        assertEquals(0, hourlyRollupRepository.count());
+        List<DailyWeatherRollup> daily = dailyRollupRepository.findAll().stream()
+            .filter(rollup -> rollup.getCity().equals("London"))
+            .sorted(Comparator.comparing(DailyWeatherRollup::getPeriodStart))
+            .toList();
+        assertEquals(2, daily.size());
+        assertRollup(daily.get(0), OLD_DAY, "800", 2, 4);
+        assertRollup(daily.get(1), NOW.toLocalDate().atStartOfDay(), "800", 1, 1);
+    }
+
+    @Test
+    void periodsLargerThanABatchAreCompactedInParts() {
+        weatherApiConfig.getRetention().setBatchSize(2);
+
+        historyCompactor.compact(NOW);
+
+        List<HourlyWeatherRollup> hourly = hourlyRollups("London");
+        assertEquals(2, hourly.size());
+        assertRollup(hourly.get(0), OLD_DAY.withHour(8), "800", 2, 3);
+        assertRollup(hourly.get(1), OLD_DAY.withHour(9), "500", 1, 1);
+    }
+
+    @Test
+    void historyPagesContinueFromRawIntoRollups() {
+        historyCompactor.compact(NOW);
+
+        WeatherHistoryPage first = weatherService.getWeatherHistory("London", "uk", null, null, null, 2);
+        assertEquals(2, first.getItems().size());
+        WeatherInfoResp raw = first.getItems().get(0);
+        assertNull(raw.getResolution());
+        WeatherInfoResp rainyHour = first.getItems().get(1);
+        assertEquals("hourly", rainyHour.getResolution());
+        assertEquals("500", rainyHour.getId());
+        assertEquals(1, rainyHour.getObservations());
+        assertTrue(first.hasNext());
+
+        WeatherHistoryPage second = weatherService.getWeatherHistory("London", "uk", null, null,
+            first.getNextCursor(), 2);
+        assertEquals(1, second.getItems().size());
+        assertEquals("800", second.getItems().get(0).getId());
+        assertEquals(3, second.getItems().get(0).getObservations());
+        assertFalse(second.hasNext());
+    }
+
+    private void observe(String city, String weatherId, String main, LocalDateTime timestamp) {
+        WeatherData data = new WeatherData(city, city.equals("London") ? "GB" : "FR", "test-key", weatherId,
+            main, main.toLowerCase(), "01d");
+        data.setTimestamp(timestamp);
+        weatherDataRepository.save(data);
+    }
+
+    private List<HourlyWeatherRollup> hourlyRollups(String city) {
+        return hourlyRollupRepository.findAll().stream()
+            .filter(rollup -> rollup.getCity().equals(city))
+            .sorted(Comparator.comparing(HourlyWeatherRollup::getPeriodStart))
+            .toList();
+    }
+
+    private static void assertRollup(WeatherRollup rollup, LocalDateTime periodStart,
+                                     String weatherId, int dominantCount, int observationCount) {
+        assertEquals(periodStart, rollup.getPeriodStart());
+        assertEquals(weatherId, rollup.getWeatherId());
+        assertEquals(dominantCount, rollup.getDominantCount());
+        assertEquals(observationCount, rollup.getObservationCount());
+    }
+}
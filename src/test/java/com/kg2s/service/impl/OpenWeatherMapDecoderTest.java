@@ -0,0 +1,103 @@
+package com.kg2s.service.impl;
+
+import com.kg2s.config.OpenWeatherMapConfig;
+import com.kg2s.domain.CurrentWeather;
+import com.kg2s.resilience.CircuitBreaker;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+/**
+ * @author Yanfu Zhang
+ * @date 2026-10-18
+ * @description Tests for the streaming OpenWeatherMap response decoder
+ */
+class OpenWeatherMapDecoderTest {
+
+    private static final String LONDON = """
+        {"coord":{"lon":-0.1257,"lat":51.5085},
+         "weather":[{"id":803,"main":"Clouds","description":"broken clouds","icon":"04d"},
+                    {"id":500,"main":"Rain","description":"light rain","icon":"10d"}],
+         "base":"stations",
+         "main":{"temp":288.15,"feels_like":287.61,"pressure":1012,"humidity":72},
+         "wind":{"speed":4.63,"deg":240},"rain":{"1h":[0.2,{"nested":null}]},"dt":1792324800,
+         "sys":{"type":2,"id":2075535,"country":"GB"},"id":2643743,"name":"London","cod":200}
+        """;
+
+    private final OpenWeatherMapDecoder decoder = new OpenWeatherMapDecoder();
+
+    @Test
+    void readsFirstConditionAndSkipsTheRest() throws IOException {
+        CurrentWeather weather = decoder.decode(stream(LONDON));
+
+        assertEquals(new CurrentWeather(803, "Clouds", "broken clouds", "04d"), weather);
+        assertTrue(weather.hasCondition());
+    }
+
+    @Test
+    void repeatedValuesShareOneString() throws IOException {
+        CurrentWeather first = decoder.decode(stream(LONDON));
+        CurrentWeather second = decoder.decode(LONDON.getBytes(StandardCharsets.UTF_8));
+
+        assertSame(first.main(), second.main());
+        assertSame(first.description(), second.description());
+        assertSame(first.icon(), second.icon());
+    }
+
+    @Test
+    void toleratesMissingAndOddlyTypedFields() throws IOException {
+        assertFalse(decoder.decode(stream("{\"weather\":[],\"cod\":200}")).hasCondition());
+        assertFalse(decoder.decode(stream("{\"cod\":\"404\",\"message\":\"city not found\"}")).hasCondition());
+        assertEquals(new CurrentWeather(800, "Clear", null, "01d"), decoder.decode(stream(
+            "{\"weather\":[{\"id\":\"800\",\"main\":\"Clear\",\"description\":{\"text\":\"x\"},\"icon\":\"01d\"}]}")));
+
+        assertThrows(IOException.class, () -> decoder.decode(stream("[1,2]")));
+        assertThrows(IOException.class, () -> decoder.decode(stream("{\"weather\":[{\"id\":\"eight\"}]}")));
+    }
+
+    @Test
+    void serviceDecodesTheResponseBody() {
+        RestTemplate restTemplate = new RestTemplate();
+        MockRestServiceServer server = MockRestServiceServer.bindTo(restTemplate).build();
+        server.expect(requestTo("http://owm.test/data/2.5/weather?q=London,uk&appid=test&units=metric"))
+            .andExpect(method(HttpMethod.GET))
+            .andExpect(header("Accept", MediaType.APPLICATION_JSON_VALUE))
+            .andRespond(withSuccess(LONDON, MediaType.APPLICATION_JSON));
+
+        OpenWeatherMapConfig config = new OpenWeatherMapConfig();
+        config.setBaseUrl("http://owm.test/data/2.5");
+        config.setKey("test");
+        config.setUnits("metric");
+        config.getCircuitBreaker().setEnabled(false);
+        config.getQuota().setEnabled(false);
+        OpenWeatherMapServiceImpl service = new OpenWeatherMapServiceImpl();
+        ReflectionTestUtils.setField(service, "openWeatherMapConfig", config);
+        ReflectionTestUtils.setField(service, "restTemplate", restTemplate);
+        ReflectionTestUtils.setField(service, "circuitBreaker", (CircuitBreaker) null);
+        service.init();
+
+        assertEquals(new CurrentWeather(803, "Clouds", "broken clouds", "04d"), service.getWeatherData("London", "uk"));
+        server.verify();
+    }
+
+    private static ByteArrayInputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}